@@ -1,6 +1,11 @@
 package AST;
 
 import Environment.Environment;
+import VM.Bytecode;
+import VM.Emitter;
+
+import java.util.Map;
+import java.util.Set;
 
 /**
  * The Assignment class represents a variable assignment,
@@ -38,4 +43,154 @@ public class Assignment extends Statement
     {
         env.setVariable(var, exp.eval(env));
     }
+
+    /**
+     * Optimizes the Expression of this Assignment.
+     *
+     * @return the optimized Assignment.
+     */
+    @Override
+    public Statement optimize()
+    {
+        return new Assignment(var, exp.optimize());
+    }
+
+    /**
+     * Resolves this Assignment to a SlotAssignment if its variable has an
+     * address, and leaves it to assign by name otherwise. From here on the
+     * variable is surely assigned.
+     *
+     * @param scope the Scope in which this Statement is executed.
+     *
+     * @return the resolved Statement.
+     */
+    @Override
+    public Statement resolve(Scope scope)
+    {
+        Expression e = exp.resolve(scope);
+        int depth = scope.assignedDepthOf(var);
+        Statement resolved = depth < 0 ? new Assignment(var, e) : new SlotAssignment(var, depth, scope.slotOf(var), e);
+        scope.assign(var);
+        return resolved;
+    }
+
+    /**
+     * Retrieves the name of the variable assigned.
+     *
+     * @return the name.
+     */
+    String getVariable()
+    {
+        return var;
+    }
+
+    /**
+     * Retrieves the Expression assigned.
+     *
+     * @return the Expression.
+     */
+    Expression getExpression()
+    {
+        return exp;
+    }
+
+    /**
+     * Counts this Assignment and the nodes of its Expression.
+     *
+     * @return the number of nodes.
+     */
+    @Override
+    public int size()
+    {
+        return 1 + exp.size();
+    }
+
+    /**
+     * Substitutes the variables of the Expression and renames the variable assigned.
+     *
+     * @param map the Expression that replaces each variable.
+     *
+     * @return the new Assignment.
+     */
+    @Override
+    public Statement substitute(Map<String, Expression> map)
+    {
+        return new Assignment(Inliner.rename(var, map), exp.substitute(map));
+    }
+
+    /**
+     * Inlines the calls in the Expression; if what is left is a call, the
+     * Inliner may replace the whole Assignment by the body of the procedure.
+     *
+     * @param inliner the Inliner.
+     *
+     * @return the Statement that replaces this Assignment.
+     */
+    @Override
+    public Statement inline(Inliner inliner)
+    {
+        Expression e = exp.inline(inliner);
+        if (e instanceof ProcedureCall)
+        {
+            Statement s = inliner.expand((ProcedureCall) e, value -> new Assignment(var, value));
+            if (s != null)
+            {
+                return s;
+            }
+        }
+        return new Assignment(var, e);
+    }
+
+    /**
+     * Collects the names read by the Expression.
+     *
+     * @param reads the set the names of the variables are added to.
+     * @param calls the set the names of the procedures are added to.
+     *
+     * @return false if the names cannot be known.
+     */
+    @Override
+    public boolean readNames(Set<String> reads, Set<String> calls)
+    {
+        return exp.readNames(reads, calls);
+    }
+
+    /**
+     * Adds the assigned variable to the set.
+     *
+     * @param names the set the names are added to.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean assignedNames(Set<String> names)
+    {
+        names.add(var);
+        return true;
+    }
+
+    /**
+     * Emits the Expression, then the store by name.
+     *
+     * @param e the Emitter that receives the code.
+     */
+    @Override
+    public void compile(Emitter e)
+    {
+        exp.compile(e);
+        e.emit(Bytecode.STORE_NAME, e.nameOf(var));
+    }
+
+    /**
+     * Builds the Action that sets the variable by name.
+     *
+     * @return the Action.
+     */
+    @Override
+    public Closure.Action closure()
+    {
+        Closure.Value v = exp.closure();
+        String n = var;
+        return env -> env.setVariable(n, v.eval(env));
+    }
 }
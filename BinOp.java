@@ -1,11 +1,18 @@
 package AST;
 
 import Environment.Environment;
+import VM.Bytecode;
+import VM.Emitter;
+
+import java.util.Map;
+import java.util.Set;
 
 /**
  * The BinOp class represents any binary operator such as
  * multiplication, division, addition, and subtraction.
  * BinOp is an instance of an Expression.
+ * BinOp.of creates a subclass specialized for its operator, whose eval
+ * performs that operation directly instead of switching on the operator.
  *
  * @author Annabelle Ju
  * @version 03/27/2020
@@ -30,6 +37,27 @@ public class BinOp extends Expression
         exp2 = e2;
     }
 
+    /**
+     * Creates the BinOp specialized for the given operator.
+     *
+     * @param s  the string representation of the binary operator.
+     * @param e1 the lefthand expression being operated on.
+     * @param e2 the righthand expression being operated on.
+     *
+     * @return an Add, Sub, Mul or Div, or a plain BinOp for any other operator.
+     */
+    public static BinOp of(String s, Expression e1, Expression e2)
+    {
+        switch (s)
+        {
+            case "+": return new Add(e1, e2);
+            case "-": return new Sub(e1, e2);
+            case "*": return new Mul(e1, e2);
+            case "/": return new Div(e1, e2);
+            default: return new BinOp(s, e1, e2);
+        }
+    }
+
     /**
      * Evaluates this binary operation by performing
      * the operator on the two Expressions.
@@ -65,4 +93,463 @@ public class BinOp extends Expression
             }
         }
     }
+
+    /**
+     * Optimizes both operands, then computes this operation if both are
+     * Numbers and removes it if it is an identity: x+0, 0+x, x-0, x*1, 1*x
+     * and x/1 become x, while x*0, 0*x and x-x become 0 when x is pure and
+     * cannot trap. A division by a constant 0 is left to fail at run time, as before.
+     *
+     * @return the optimized Expression.
+     */
+    @Override
+    public Expression optimize()
+    {
+        Expression left = exp1.optimize();
+        Expression right = exp2.optimize();
+
+        Expression folded = fold(op, left, right);
+        if (folded != null)
+        {
+            return folded;
+        }
+        if (left == exp1 && right == exp2)
+        {
+            return this;
+        }
+        return of(op, left, right);
+    }
+
+    /**
+     * Helper method: fold computes an operation on two Numbers, removes an
+     * identity, or reassociates a sum or a difference with a constant,
+     * returning null if none applies.
+     */
+    private static Expression fold(String op, Expression left, Expression right)
+    {
+        if (left instanceof Number && right instanceof Number
+                && !(op.equals("/") && isNumber(right, 0)))
+        {
+            return new Number(new BinOp(op, left, right).eval(null));
+        }
+
+        switch (op)
+        {
+            case "+":
+            {
+                if (isNumber(right, 0)) return left;
+                if (isNumber(left, 0)) return right;
+                return reassociate(op, left, right);
+            }
+            case "-":
+            {
+                if (isNumber(right, 0)) return left;
+                if (isDroppable(left) && left.sameAs(right)) return new Number(0);
+                return reassociate(op, left, right);
+            }
+            case "*":
+            {
+                if (isNumber(right, 1)) return left;
+                if (isNumber(left, 1)) return right;
+                if ((isNumber(right, 0) && isDroppable(left)) || (isNumber(left, 0) && isDroppable(right)))
+                    return new Number(0);
+                break;
+            }
+            case "/":
+            {
+                if (isNumber(right, 1)) return left;
+                break;
+            }
+            default:
+            {
+                break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Helper method: reassociate moves a constant added to or subtracted from
+     * a sum or a difference onto its righthand operand, as in
+     * (a + b) - 1 = a + (b - 1), so that a variable the result is assigned
+     * to can be added to in place. Int arithmetic wraps around, so the value
+     * is the same, and a is still evaluated before b. It returns null if
+     * the constant does not follow a sum or a difference.
+     */
+    private static Expression reassociate(String op, Expression left, Expression right)
+    {
+        if (!(right instanceof Number) || !(left instanceof BinOp)
+            || !(((BinOp) left).op.equals("+") || ((BinOp) left).op.equals("-")))
+        {
+            return null;
+        }
+        BinOp inner = (BinOp) left;
+        String combined = inner.op.equals(op) ? "+" : "-";
+        Expression rest = fold(combined, inner.exp2, right);
+        if (rest == null)
+        {
+            rest = of(combined, inner.exp2, right);
+        }
+        Expression folded = fold(inner.op, inner.exp1, rest);
+        return folded != null ? folded : of(inner.op, inner.exp1, rest);
+    }
+
+    /**
+     * Helper method: isDroppable tells whether an Expression can be left
+     * unevaluated: it has no effect and cannot fail.
+     */
+    private static boolean isDroppable(Expression e)
+    {
+        return e.isPure() && !e.canTrap();
+    }
+
+    /**
+     * Helper method: isNumber tells whether an Expression is the given Number.
+     */
+    private static boolean isNumber(Expression e, int n)
+    {
+        return e instanceof Number && ((Number) e).getValue() == n;
+    }
+
+    /**
+     * A BinOp is pure if both its operands are.
+     *
+     * @return true if both operands are pure.
+     */
+    @Override
+    public boolean isPure()
+    {
+        return exp1.isPure() && exp2.isPure();
+    }
+
+    /**
+     * A BinOp can trap if either operand can, or if it divides by anything
+     * but a constant other than 0.
+     *
+     * @return true if evaluating this BinOp might fail.
+     */
+    @Override
+    public boolean canTrap()
+    {
+        if (op.equals("/") && !(exp2 instanceof Number && ((Number) exp2).getValue() != 0))
+        {
+            return true;
+        }
+        return exp1.canTrap() || exp2.canTrap();
+    }
+
+    /**
+     * Collects the names read by both operands.
+     *
+     * @param reads the set the names of the variables are added to.
+     * @param calls the set the names of the procedures are added to.
+     *
+     * @return false if the names of either operand cannot be known.
+     */
+    @Override
+    public boolean readNames(Set<String> reads, Set<String> calls)
+    {
+        return exp1.readNames(reads, calls) & exp2.readNames(reads, calls);
+    }
+
+    /**
+     * A BinOp is local if both its operands are.
+     *
+     * @param callable the names of the procedures it may call.
+     *
+     * @return true if both operands are local.
+     */
+    @Override
+    public boolean isLocal(Set<String> callable)
+    {
+        return exp1.isLocal(callable) && exp2.isLocal(callable);
+    }
+
+    /**
+     * Counts this BinOp and the nodes of its operands.
+     *
+     * @return the number of nodes.
+     */
+    @Override
+    public int size()
+    {
+        return 1 + exp1.size() + exp2.size();
+    }
+
+    /**
+     * Substitutes the variables of both operands.
+     *
+     * @param map the Expression that replaces each variable.
+     *
+     * @return the new BinOp.
+     */
+    @Override
+    public Expression substitute(Map<String, Expression> map)
+    {
+        return BinOp.of(op, exp1.substitute(map), exp2.substitute(map));
+    }
+
+    /**
+     * Inlines the calls in both operands.
+     *
+     * @param inliner the Inliner.
+     *
+     * @return the new BinOp.
+     */
+    @Override
+    public Expression inline(Inliner inliner)
+    {
+        return BinOp.of(op, exp1.inline(inliner), exp2.inline(inliner));
+    }
+
+    /**
+     * Compares this BinOp to another Expression.
+     *
+     * @param other the Expression to be compared.
+     *
+     * @return true if other is a BinOp of the same operator and operands.
+     */
+    @Override
+    public boolean sameAs(Expression other)
+    {
+        if (!(other instanceof BinOp))
+        {
+            return false;
+        }
+        BinOp bin = (BinOp) other;
+        return bin.op.equals(op) && exp1.sameAs(bin.exp1) && exp2.sameAs(bin.exp2);
+    }
+
+    /**
+     * Resolves both operands of this BinOp, then removes the identities
+     * that only became safe once variables read from slots cannot trap.
+     *
+     * @param scope the Scope in which this Expression is evaluated.
+     *
+     * @return the resolved Expression.
+     */
+    @Override
+    public Expression resolve(Scope scope)
+    {
+        Expression left = exp1.resolve(scope);
+        Expression right = exp2.resolve(scope);
+        Expression folded = fold(op, left, right);
+        return folded != null ? folded : of(op, left, right);
+    }
+
+    /**
+     * Add is the BinOp for +.
+     */
+    public static final class Add extends BinOp
+    {
+        private final Expression left;
+        private final Expression right;
+
+        /**
+         * Constructor for objects of class Add.
+         *
+         * @param e1 the lefthand expression.
+         * @param e2 the righthand expression.
+         */
+        public Add(Expression e1, Expression e2)
+        {
+            super("+", e1, e2);
+            left = e1;
+            right = e2;
+        }
+
+        /**
+         * Evaluates this addition.
+         *
+         * @param env the Environment in which to evaluate the Expression.
+         *
+         * @return the sum of the two Expressions.
+         */
+        @Override
+        public int eval(Environment env)
+        {
+            return left.eval(env) + right.eval(env);
+        }
+    }
+
+    /**
+     * Sub is the BinOp for -.
+     */
+    public static final class Sub extends BinOp
+    {
+        private final Expression left;
+        private final Expression right;
+
+        /**
+         * Constructor for objects of class Sub.
+         *
+         * @param e1 the lefthand expression.
+         * @param e2 the righthand expression.
+         */
+        public Sub(Expression e1, Expression e2)
+        {
+            super("-", e1, e2);
+            left = e1;
+            right = e2;
+        }
+
+        /**
+         * Evaluates this subtraction.
+         *
+         * @param env the Environment in which to evaluate the Expression.
+         *
+         * @return the difference of the two Expressions.
+         */
+        @Override
+        public int eval(Environment env)
+        {
+            return left.eval(env) - right.eval(env);
+        }
+    }
+
+    /**
+     * Mul is the BinOp for *.
+     */
+    public static final class Mul extends BinOp
+    {
+        private final Expression left;
+        private final Expression right;
+
+        /**
+         * Constructor for objects of class Mul.
+         *
+         * @param e1 the lefthand expression.
+         * @param e2 the righthand expression.
+         */
+        public Mul(Expression e1, Expression e2)
+        {
+            super("*", e1, e2);
+            left = e1;
+            right = e2;
+        }
+
+        /**
+         * Evaluates this multiplication.
+         *
+         * @param env the Environment in which to evaluate the Expression.
+         *
+         * @return the product of the two Expressions.
+         */
+        @Override
+        public int eval(Environment env)
+        {
+            return left.eval(env) * right.eval(env);
+        }
+    }
+
+    /**
+     * Div is the BinOp for /.
+     */
+    public static final class Div extends BinOp
+    {
+        private final Expression left;
+        private final Expression right;
+
+        /**
+         * Constructor for objects of class Div.
+         *
+         * @param e1 the lefthand expression.
+         * @param e2 the righthand expression.
+         */
+        public Div(Expression e1, Expression e2)
+        {
+            super("/", e1, e2);
+            left = e1;
+            right = e2;
+        }
+
+        /**
+         * Evaluates this division.
+         *
+         * @param env the Environment in which to evaluate the Expression.
+         *
+         * @return the quotient of the two Expressions.
+         */
+        @Override
+        public int eval(Environment env)
+        {
+            return left.eval(env) / right.eval(env);
+        }
+    }
+
+    /**
+     * Emits both operands, then the operation. An addition or multiplication
+     * whose lefthand operand is a constant or a slot, and whose righthand one
+     * is neither but calls nothing, emits the righthand operand first, so that
+     * the Emitter can fold the other into the operation; reading the slot
+     * later cannot fail nor see another value.
+     *
+     * @param e the Emitter that receives the code.
+     */
+    @Override
+    public void compile(Emitter e)
+    {
+        int code;
+        switch (op)
+        {
+            case "+": code = Bytecode.ADD; break;
+            case "-": code = Bytecode.SUB; break;
+            case "*": code = Bytecode.MUL; break;
+            case "/": code = Bytecode.DIV; break;
+            default: super.compile(e); return;
+        }
+        if ((code == Bytecode.ADD || code == Bytecode.MUL) && isLeaf(exp1) && !isLeaf(exp2) && exp2.isPure())
+        {
+            exp2.compile(e);
+            exp1.compile(e);
+        }
+        else
+        {
+            exp1.compile(e);
+            exp2.compile(e);
+        }
+        e.emit(code);
+    }
+
+    /**
+     * Helper method: isLeaf tells whether an Expression is a constant or a
+     * variable read by its slot.
+     */
+    private static boolean isLeaf(Expression e)
+    {
+        return e instanceof Number || e instanceof SlotVariable;
+    }
+
+    /**
+     * Builds the Value that computes this operation on the Values of both
+     * operands, or on the Value of the lefthand one and a constant.
+     *
+     * @return the Value.
+     */
+    @Override
+    public Closure.Value closure()
+    {
+        Closure.Value l = exp1.closure();
+        if (exp2 instanceof Number)
+        {
+            int k = ((Number) exp2).getValue();
+            switch (op)
+            {
+                case "+": return env -> l.eval(env) + k;
+                case "-": return env -> l.eval(env) - k;
+                case "*": return env -> l.eval(env) * k;
+                case "/": return env -> l.eval(env) / k;
+                default: return super.closure();
+            }
+        }
+        Closure.Value r = exp2.closure();
+        switch (op)
+        {
+            case "+": return env -> l.eval(env) + r.eval(env);
+            case "-": return env -> l.eval(env) - r.eval(env);
+            case "*": return env -> l.eval(env) * r.eval(env);
+            case "/": return env -> l.eval(env) / r.eval(env);
+            default: return super.closure();
+        }
+    }
 }
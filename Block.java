@@ -1,8 +1,12 @@
 package AST;
 
 import Environment.Environment;
+import VM.Emitter;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * The Block class represents a block of input denoted by
@@ -40,4 +44,223 @@ public class Block extends Statement
             curState.exec(env);
         }
     }
+
+    /**
+     * Optimizes every Statement in this Block.
+     *
+     * @return the optimized Block.
+     */
+    @Override
+    public Statement optimize()
+    {
+        ArrayList<Statement> list = new ArrayList<>();
+        for (Statement curState: statements)
+        {
+            list.add(curState.optimize());
+        }
+        return new Block(list);
+    }
+
+    /**
+     * Resolves every Statement in this Block.
+     *
+     * @param scope the Scope in which this Statement is executed.
+     *
+     * @return the resolved Block.
+     */
+    @Override
+    public Statement resolve(Scope scope)
+    {
+        ArrayList<Statement> list = new ArrayList<>();
+        for (Statement curState: statements)
+        {
+            list.add(curState.resolve(scope));
+        }
+        return new Block(list);
+    }
+
+    /**
+     * Collects the variables assigned by every Statement in this Block.
+     *
+     * @param names the set the names are added to.
+     *
+     * @return false if the names of any Statement cannot be known.
+     */
+    @Override
+    public boolean assignedNames(Set<String> names)
+    {
+        boolean known = true;
+        for (Statement curState: statements)
+        {
+            known &= curState.assignedNames(names);
+        }
+        return known;
+    }
+
+    /**
+     * Collects the names read by every Statement in this Block.
+     *
+     * @param reads the set the names of the variables are added to.
+     * @param calls the set the names of the procedures are added to.
+     *
+     * @return false if the names of any Statement cannot be known.
+     */
+    @Override
+    public boolean readNames(Set<String> reads, Set<String> calls)
+    {
+        boolean known = true;
+        for (Statement curState: statements)
+        {
+            known &= curState.readNames(reads, calls);
+        }
+        return known;
+    }
+
+    /**
+     * A Block is local if all its Statements are.
+     *
+     * @param callable the names of the procedures it may call.
+     *
+     * @return true if every Statement is local.
+     */
+    @Override
+    public boolean isLocal(Set<String> callable)
+    {
+        for (Statement s: statements)
+        {
+            if (!s.isLocal(callable))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Retrieves the Statements of this Block.
+     *
+     * @return the Statements.
+     */
+    List<Statement> getStatements()
+    {
+        return statements;
+    }
+
+    /**
+     * Counts this Block and the nodes of its Statements.
+     *
+     * @return the number of nodes.
+     */
+    @Override
+    public int size()
+    {
+        int size = 1;
+        for (Statement s: statements)
+        {
+            size += s.size();
+        }
+        return size;
+    }
+
+    /**
+     * Substitutes the variables of every Statement.
+     *
+     * @param map the Expression that replaces each variable.
+     *
+     * @return the new Block.
+     */
+    @Override
+    public Statement substitute(Map<String, Expression> map)
+    {
+        ArrayList<Statement> list = new ArrayList<>();
+        for (Statement s: statements)
+        {
+            list.add(s.substitute(map));
+        }
+        return new Block(list);
+    }
+
+    /**
+     * Inlines the calls in every Statement.
+     *
+     * @param inliner the Inliner.
+     *
+     * @return the new Block.
+     */
+    @Override
+    public Statement inline(Inliner inliner)
+    {
+        ArrayList<Statement> list = new ArrayList<>();
+        for (Statement s: statements)
+        {
+            list.add(s.inline(inliner));
+        }
+        return new Block(list);
+    }
+
+    /**
+     * Emits every Statement in this Block.
+     *
+     * @param e the Emitter that receives the code.
+     */
+    @Override
+    public void compile(Emitter e)
+    {
+        for (Statement curState: statements)
+        {
+            curState.compile(e);
+        }
+    }
+
+    /**
+     * Builds the Action that carries out the Actions of the Statements in order.
+     *
+     * @return the Action.
+     */
+    @Override
+    public Closure.Action closure()
+    {
+        Closure.Action[] actions = new Closure.Action[statements.size()];
+        for (int i = 0; i < actions.length; i++)
+        {
+            actions[i] = statements.get(i).closure();
+        }
+        if (actions.length == 1)
+        {
+            return actions[0];
+        }
+        return env ->
+        {
+            for (Closure.Action a : actions)
+            {
+                a.exec(env);
+            }
+        };
+    }
+
+    /**
+     * Looks for tail calls in the last Statement of this Block.
+     *
+     * @param procedure the name of the Procedure whose Statement this is.
+     * @param arity     the number of its parameters.
+     *
+     * @return the Block, which may be this one.
+     */
+    @Override
+    public Statement tailCalls(String procedure, int arity)
+    {
+        if (statements.isEmpty())
+        {
+            return this;
+        }
+        int last = statements.size() - 1;
+        Statement tail = statements.get(last).tailCalls(procedure, arity);
+        if (tail == statements.get(last))
+        {
+            return this;
+        }
+        ArrayList<Statement> list = new ArrayList<>(statements);
+        list.set(last, tail);
+        return new Block(list);
+    }
 }
@@ -0,0 +1,268 @@
+package VM;
+
+import AST.Expression;
+import AST.Statement;
+import Environment.Environment;
+import Environment.ProcedureCell;
+
+/**
+ * The Bytecode class holds a compiled Program or procedure body: the
+ * instructions as a flat int array, in which every opcode is followed by
+ * its operands, together with the pools its operands index: names for
+ * variables and procedures looked up at run time, procedures declared by
+ * the code, and Statements and Expressions that are run by the tree walker.
+ * Arithmetic and compare-and-branch instructions also come in a form whose
+ * right operand is a constant in the code, which the Emitter uses in place
+ * of a PUSH followed by the plain instruction. Arithmetic instructions
+ * also take their right operand from a variable, a variable and a constant
+ * can be combined and pushed at once, a variable can be incremented in
+ * place, by a constant or by the value on top of the stack, and a variable can be compared to a constant and branched on, so
+ * that a loop over a counter runs few instructions.
+ * Every name that is called is linked to its ProcedureCell on the first call.
+ *
+ * @author Annabelle Ju
+ * @version 04/17/2020
+ */
+public class Bytecode
+{
+    /** HALT: stop. */
+    public static final int HALT = 0;
+    /** PUSH value: push a constant. */
+    public static final int PUSH = 1;
+    /** LOAD_LOCAL slot: push a variable of the current frame. */
+    public static final int LOAD_LOCAL = 2;
+    /** LOAD_GLOBAL slot: push a variable of the global frame. */
+    public static final int LOAD_GLOBAL = 3;
+    /** LOAD_NAME name: push a variable looked up by name. */
+    public static final int LOAD_NAME = 4;
+    /** STORE_LOCAL slot: pop into a variable of the current frame. */
+    public static final int STORE_LOCAL = 5;
+    /** STORE_GLOBAL slot: pop into a variable of the global frame. */
+    public static final int STORE_GLOBAL = 6;
+    /** STORE_NAME name: pop into a variable set by name. */
+    public static final int STORE_NAME = 7;
+    /** ADD, SUB, MUL, DIV: pop two values, push the result. */
+    public static final int ADD = 8;
+    public static final int SUB = 9;
+    public static final int MUL = 10;
+    public static final int DIV = 11;
+    /** EQ, NE, LT, GT, LE, GE: pop two values, push 1 if the comparison holds, else 0. */
+    public static final int EQ = 12;
+    public static final int NE = 13;
+    public static final int LT = 14;
+    public static final int GT = 15;
+    public static final int LE = 16;
+    public static final int GE = 17;
+    /** JUMP target: continue at target. */
+    public static final int JUMP = 18;
+    /** JUMP_IF_FALSE target: pop a value, continue at target unless it is positive. */
+    public static final int JUMP_IF_FALSE = 19;
+    /** JUMP_UNLESS_EQ .. JUMP_UNLESS_GE target: pop two values, continue at target unless the comparison holds. */
+    public static final int JUMP_UNLESS_EQ = 20;
+    public static final int JUMP_UNLESS_NE = 21;
+    public static final int JUMP_UNLESS_LT = 22;
+    public static final int JUMP_UNLESS_GT = 23;
+    public static final int JUMP_UNLESS_LE = 24;
+    public static final int JUMP_UNLESS_GE = 25;
+    /** PRINT: pop a value and print it. */
+    public static final int PRINT = 26;
+    /** CALL name count: pop count arguments, call the named procedure, push its result. */
+    public static final int CALL = 27;
+    /** DECLARE procedure: declare a procedure of the pool. */
+    public static final int DECLARE = 28;
+    /** EXEC statement: execute a Statement of the pool. */
+    public static final int EXEC = 29;
+    /** EVAL expression: push the value of an Expression of the pool. */
+    public static final int EVAL = 30;
+    /** ADD_CONST .. DIV_CONST value: replace the top of the stack by it and a constant, combined. */
+    public static final int ADD_CONST = 31;
+    public static final int SUB_CONST = 32;
+    public static final int MUL_CONST = 33;
+    public static final int DIV_CONST = 34;
+    /** JUMP_UNLESS_EQ_CONST .. JUMP_UNLESS_GE_CONST value target: pop a value, continue at target unless it compares so to a constant. */
+    public static final int JUMP_UNLESS_EQ_CONST = 35;
+    public static final int JUMP_UNLESS_NE_CONST = 36;
+    public static final int JUMP_UNLESS_LT_CONST = 37;
+    public static final int JUMP_UNLESS_GT_CONST = 38;
+    public static final int JUMP_UNLESS_LE_CONST = 39;
+    public static final int JUMP_UNLESS_GE_CONST = 40;
+    /** JUMP_IF_TRUE target: pop a value, continue at target if it is positive. */
+    public static final int JUMP_IF_TRUE = 41;
+
+    /**
+     * TAIL_CALL name count: pop count arguments and call the named procedure
+     * into slot 0 of the frame; if the procedure is the one running, clear the
+     * frame, set the parameters and continue at 0 instead.
+     */
+    public static final int TAIL_CALL = 42;
+    /** ADD_LOCAL .. DIV_LOCAL slot: replace the top of the stack by it and a variable of the current frame, combined. */
+    public static final int ADD_LOCAL = 43;
+    public static final int SUB_LOCAL = 44;
+    public static final int MUL_LOCAL = 45;
+    public static final int DIV_LOCAL = 46;
+    /** ADD_GLOBAL .. DIV_GLOBAL slot: replace the top of the stack by it and a variable of the global frame, combined. */
+    public static final int ADD_GLOBAL = 47;
+    public static final int SUB_GLOBAL = 48;
+    public static final int MUL_GLOBAL = 49;
+    public static final int DIV_GLOBAL = 50;
+    /** INC_LOCAL slot value: add a constant to a variable of the current frame. */
+    public static final int INC_LOCAL = 51;
+    /** INC_GLOBAL slot value: add a constant to a variable of the global frame. */
+    public static final int INC_GLOBAL = 52;
+    /** JUMP_UNLESS_EQ_LOCAL_CONST .. JUMP_UNLESS_GE_LOCAL_CONST slot value target: continue at target unless a variable of the current frame compares so to a constant. */
+    public static final int JUMP_UNLESS_EQ_LOCAL_CONST = 53;
+    public static final int JUMP_UNLESS_NE_LOCAL_CONST = 54;
+    public static final int JUMP_UNLESS_LT_LOCAL_CONST = 55;
+    public static final int JUMP_UNLESS_GT_LOCAL_CONST = 56;
+    public static final int JUMP_UNLESS_LE_LOCAL_CONST = 57;
+    public static final int JUMP_UNLESS_GE_LOCAL_CONST = 58;
+    /** JUMP_UNLESS_EQ_GLOBAL_CONST .. JUMP_UNLESS_GE_GLOBAL_CONST slot value target: continue at target unless a variable of the global frame compares so to a constant. */
+    public static final int JUMP_UNLESS_EQ_GLOBAL_CONST = 59;
+    public static final int JUMP_UNLESS_NE_GLOBAL_CONST = 60;
+    public static final int JUMP_UNLESS_LT_GLOBAL_CONST = 61;
+    public static final int JUMP_UNLESS_GT_GLOBAL_CONST = 62;
+    public static final int JUMP_UNLESS_LE_GLOBAL_CONST = 63;
+    public static final int JUMP_UNLESS_GE_GLOBAL_CONST = 64;
+    /** LOCAL_ADD_CONST .. LOCAL_DIV_CONST slot value: push a variable of the current frame and a constant, combined. */
+    public static final int LOCAL_ADD_CONST = 65;
+    public static final int LOCAL_SUB_CONST = 66;
+    public static final int LOCAL_MUL_CONST = 67;
+    public static final int LOCAL_DIV_CONST = 68;
+    /** GLOBAL_ADD_CONST .. GLOBAL_DIV_CONST slot value: push a variable of the global frame and a constant, combined. */
+    public static final int GLOBAL_ADD_CONST = 69;
+    public static final int GLOBAL_SUB_CONST = 70;
+    public static final int GLOBAL_MUL_CONST = 71;
+    public static final int GLOBAL_DIV_CONST = 72;
+    /** ADD_TO_LOCAL slot: pop a value and add it to a variable of the current frame. */
+    public static final int ADD_TO_LOCAL = 73;
+    /** ADD_TO_GLOBAL slot: pop a value and add it to a variable of the global frame. */
+    public static final int ADD_TO_GLOBAL = 74;
+
+    /** The change in stack depth of every opcode but CALL and TAIL_CALL. */
+    static final int[] STACK_EFFECT = {
+        0, 1, 1, 1, 1, -1, -1, -1,
+        -1, -1, -1, -1,
+        -1, -1, -1, -1, -1, -1,
+        0, -1, -2, -2, -2, -2, -2, -2,
+        -1, 0, 0, 0, 1,
+        0, 0, 0, 0,
+        -1, -1, -1, -1, -1, -1,
+        -1, 0,
+        0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0,
+        0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 0,
+        1, 1, 1, 1, 1, 1, 1, 1,
+        -1, -1
+    };
+
+    private final int[] code;
+    private final int maxStack;
+    private final String[] names;
+    private final CompiledProcedure[] procedures;
+    private final Statement[] statements;
+    private final Expression[] expressions;
+    private final ProcedureCell[] sites;
+
+    /**
+     * Constructor for objects of class Bytecode.
+     *
+     * @param c     the instructions.
+     * @param max   the greatest depth the operand stack reaches.
+     * @param n     the name pool.
+     * @param procs the procedure pool.
+     * @param stmts the Statement pool.
+     * @param exps  the Expression pool.
+     */
+    public Bytecode(int[] c, int max, String[] n, CompiledProcedure[] procs,
+                    Statement[] stmts, Expression[] exps)
+    {
+        code = c;
+        maxStack = max;
+        names = n;
+        procedures = procs;
+        statements = stmts;
+        expressions = exps;
+        sites = new ProcedureCell[n.length];
+    }
+
+    /**
+     * Retrieves the instructions.
+     *
+     * @return the code array.
+     */
+    public int[] getCode()
+    {
+        return code;
+    }
+
+    /**
+     * Retrieves the greatest depth the operand stack reaches.
+     *
+     * @return the maximum stack depth.
+     */
+    public int getMaxStack()
+    {
+        return maxStack;
+    }
+
+    /**
+     * Retrieves the name pool.
+     *
+     * @return the names.
+     */
+    public String[] getNames()
+    {
+        return names;
+    }
+
+    /**
+     * Retrieves the procedure pool.
+     *
+     * @return the procedures declared by this code.
+     */
+    public CompiledProcedure[] getProcedures()
+    {
+        return procedures;
+    }
+
+    /**
+     * Retrieves the Statement pool.
+     *
+     * @return the Statements run by the tree walker.
+     */
+    public Statement[] getStatements()
+    {
+        return statements;
+    }
+
+    /**
+     * Retrieves the Expression pool.
+     *
+     * @return the Expressions evaluated by the tree walker.
+     */
+    public Expression[] getExpressions()
+    {
+        return expressions;
+    }
+
+    /**
+     * Retrieves the ProcedureCell of a name of the pool, linking the name to
+     * the cell of the global Environment in use if it is not yet linked.
+     *
+     * @param name the index of the name.
+     * @param env  an Environment whose global Environment holds the cell.
+     *
+     * @return the cell of the named procedure.
+     */
+    public ProcedureCell link(int name, Environment env)
+    {
+        ProcedureCell cell = sites[name];
+        if (cell == null || cell.getOwner() != env.getGlobal())
+        {
+            cell = env.getProcedureCell(names[name]);
+            sites[name] = cell;
+        }
+        return cell;
+    }
+}
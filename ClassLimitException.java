@@ -0,0 +1,26 @@
+package VM;
+
+/**
+ * The ClassLimitException class is thrown when the code generated for a
+ * Program goes over a limit of the class file format: a method longer
+ * than 65535 bytes, a branch further than a signed 16-bit offset, or more
+ * local variables than an instruction can index. The Program is still
+ * valid, so the Jit leaves it to the VirtualMachine.
+ *
+ * @author Annabelle Ju
+ * @version 04/17/2020
+ */
+class ClassLimitException extends RuntimeException
+{
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor for objects of class ClassLimitException.
+     *
+     * @param reason the limit that was exceeded.
+     */
+    ClassLimitException(String reason)
+    {
+        super(reason);
+    }
+}
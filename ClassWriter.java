@@ -0,0 +1,588 @@
+package VM;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * The ClassWriter class assembles a JVM class file: its constant pool,
+ * fields and methods. It knows only what the Jit needs, so a method is a
+ * Code attribute with no exception table, and its StackMapTable is made of
+ * full frames that share one set of local variable types per method.
+ *
+ * @author Annabelle Ju
+ * @version 04/17/2020
+ */
+class ClassWriter
+{
+    /** Access flags. */
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    /** The verification type of an int in a stack map frame. */
+    static final int INT = 1;
+
+    private ByteArrayOutputStream pool;
+    private DataOutputStream poolOut;
+    private int poolCount;
+    private HashMap<String, Integer> poolIndex;
+    private int thisClass;
+    private int superClass;
+    private int[] interfaces;
+    private ByteArrayOutputStream members;
+    private DataOutputStream fieldsOut;
+    private int fieldCount;
+    private ArrayList<Code> methods;
+
+    /**
+     * Constructor for objects of class ClassWriter.
+     *
+     * @param name           the internal name of the class, such as VM/JitProgram.
+     * @param superName      the internal name of its superclass.
+     * @param interfaceNames the internal names of the interfaces it implements.
+     */
+    ClassWriter(String name, String superName, String... interfaceNames)
+    {
+        pool = new ByteArrayOutputStream();
+        poolOut = new DataOutputStream(pool);
+        poolCount = 1;
+        poolIndex = new HashMap<>();
+        members = new ByteArrayOutputStream();
+        fieldsOut = new DataOutputStream(members);
+        methods = new ArrayList<>();
+        thisClass = classRef(name);
+        superClass = classRef(superName);
+        interfaces = new int[interfaceNames.length];
+        for (int i = 0; i < interfaces.length; i++)
+        {
+            interfaces[i] = classRef(interfaceNames[i]);
+        }
+    }
+
+    /**
+     * Helper method: constant returns the index of a constant pool entry,
+     * writing the entry the first time its key is seen.
+     */
+    private int constant(String key, int tag, String text, int first, int second)
+    {
+        Integer index = poolIndex.get(key);
+        if (index != null)
+        {
+            return index;
+        }
+        try
+        {
+            poolOut.writeByte(tag);
+            if (text != null)
+            {
+                poolOut.writeUTF(text);
+            }
+            else if (tag == 3)
+            {
+                poolOut.writeInt(first);
+            }
+            else
+            {
+                poolOut.writeShort(first);
+                if (second >= 0)
+                {
+                    poolOut.writeShort(second);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        poolIndex.put(key, poolCount);
+        return poolCount++;
+    }
+
+    /**
+     * Finds or adds a CONSTANT_Utf8 entry.
+     *
+     * @param s the text.
+     *
+     * @return its constant pool index.
+     */
+    int utf8(String s)
+    {
+        return constant("U" + s, 1, s, 0, -1);
+    }
+
+    /**
+     * Finds or adds a CONSTANT_Class entry.
+     *
+     * @param name the internal name of the class.
+     *
+     * @return its constant pool index.
+     */
+    int classRef(String name)
+    {
+        return constant("C" + name, 7, null, utf8(name), -1);
+    }
+
+    /**
+     * Finds or adds a CONSTANT_String entry.
+     *
+     * @param s the string.
+     *
+     * @return its constant pool index.
+     */
+    int string(String s)
+    {
+        return constant("S" + s, 8, null, utf8(s), -1);
+    }
+
+    /**
+     * Finds or adds a CONSTANT_Integer entry.
+     *
+     * @param value the int.
+     *
+     * @return its constant pool index.
+     */
+    int integer(int value)
+    {
+        return constant("I" + value, 3, null, value, -1);
+    }
+
+    /**
+     * Helper method: nameAndType finds or adds a CONSTANT_NameAndType entry.
+     */
+    private int nameAndType(String name, String desc)
+    {
+        return constant("N" + name + " " + desc, 12, null, utf8(name), utf8(desc));
+    }
+
+    /**
+     * Finds or adds a CONSTANT_Fieldref entry.
+     *
+     * @param owner the internal name of the class declaring the field.
+     * @param name  the name of the field.
+     * @param desc  its descriptor.
+     *
+     * @return its constant pool index.
+     */
+    int field(String owner, String name, String desc)
+    {
+        return constant("F" + owner + "." + name + " " + desc, 9, null,
+                        classRef(owner), nameAndType(name, desc));
+    }
+
+    /**
+     * Finds or adds a CONSTANT_Methodref entry.
+     *
+     * @param owner the internal name of the class declaring the method.
+     * @param name  the name of the method.
+     * @param desc  its descriptor.
+     *
+     * @return its constant pool index.
+     */
+    int method(String owner, String name, String desc)
+    {
+        return constant("M" + owner + "." + name + desc, 10, null,
+                        classRef(owner), nameAndType(name, desc));
+    }
+
+    /**
+     * Finds or adds a CONSTANT_InterfaceMethodref entry.
+     *
+     * @param owner the internal name of the interface declaring the method.
+     * @param name  the name of the method.
+     * @param desc  its descriptor.
+     *
+     * @return its constant pool index.
+     */
+    int interfaceMethod(String owner, String name, String desc)
+    {
+        return constant("J" + owner + "." + name + desc, 11, null,
+                        classRef(owner), nameAndType(name, desc));
+    }
+
+    /**
+     * Gives the stack map verification type of a reference to a class.
+     *
+     * @param name the internal name of the class, or of an array type such as [I.
+     *
+     * @return the type, to be passed to Code.setLocals.
+     */
+    int object(String name)
+    {
+        return (7 << 16) | classRef(name);
+    }
+
+    /**
+     * Declares a field of the class.
+     *
+     * @param access the access flags.
+     * @param name   the name of the field.
+     * @param desc   its descriptor.
+     */
+    void addField(int access, String name, String desc)
+    {
+        try
+        {
+            fieldsOut.writeShort(access);
+            fieldsOut.writeShort(utf8(name));
+            fieldsOut.writeShort(utf8(desc));
+            fieldsOut.writeShort(0);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        fieldCount++;
+    }
+
+    /**
+     * Starts a method of the class.
+     *
+     * @param access    the access flags.
+     * @param name      the name of the method.
+     * @param desc      its descriptor.
+     * @param maxStack  the greatest depth its operand stack reaches.
+     * @param maxLocals the number of local variable slots it uses.
+     *
+     * @return the Code to which its instructions are written.
+     */
+    Code addMethod(int access, String name, String desc, int maxStack, int maxLocals)
+    {
+        Code c = new Code(this, access, utf8(name), utf8(desc), maxStack, maxLocals);
+        methods.add(c);
+        return c;
+    }
+
+    /**
+     * Writes out the finished class file.
+     *
+     * @return the bytes of the class file.
+     */
+    byte[] toByteArray()
+    {
+        int code = utf8("Code");
+        int frames = utf8("StackMapTable");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try
+        {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(52);
+            out.writeShort(poolCount);
+            pool.writeTo(out);
+            out.writeShort(ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(interfaces.length);
+            for (int i : interfaces)
+            {
+                out.writeShort(i);
+            }
+            out.writeShort(fieldCount);
+            members.writeTo(out);
+            out.writeShort(methods.size());
+            for (Code c : methods)
+            {
+                c.writeTo(out, code, frames);
+            }
+            out.writeShort(0);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * The Code class holds the instructions of one method while they are
+     * written. Branches name labels, which are patched once placed; placing
+     * a label, or marking the start of code that follows an unconditional
+     * jump, records a stack map frame with the given number of ints on the
+     * operand stack.
+     */
+    static class Code
+    {
+        private ClassWriter owner;
+        private int access;
+        private int name;
+        private int desc;
+        private int maxStack;
+        private int maxLocals;
+        private byte[] code;
+        private int size;
+        private int[] locals;
+        private int[] labels;
+        private int labelCount;
+        private ArrayList<int[]> fixups;
+        private ArrayList<int[]> frames;
+
+        /**
+         * Constructor for objects of class Code.
+         *
+         * @param cw     the ClassWriter of the class.
+         * @param acc    the access flags.
+         * @param n      the constant pool index of the name.
+         * @param d      the constant pool index of the descriptor.
+         * @param stack  the greatest depth of the operand stack.
+         * @param locs   the number of local variable slots.
+         */
+        Code(ClassWriter cw, int acc, int n, int d, int stack, int locs)
+        {
+            owner = cw;
+            access = acc;
+            name = n;
+            desc = d;
+            maxStack = stack;
+            maxLocals = locs;
+            code = new byte[64];
+            locals = new int[0];
+            labels = new int[8];
+            fixups = new ArrayList<>();
+            frames = new ArrayList<>();
+        }
+
+        /**
+         * Sets the types of the local variables, which hold in every frame.
+         *
+         * @param types the verification types, INT or from ClassWriter.object.
+         */
+        void setLocals(int... types)
+        {
+            locals = types;
+        }
+
+        /**
+         * Appends one byte.
+         *
+         * @param b the byte, such as an opcode.
+         */
+        void op(int b)
+        {
+            if (size == code.length)
+            {
+                code = Arrays.copyOf(code, size * 2);
+            }
+            code[size++] = (byte) b;
+        }
+
+        /**
+         * Appends an instruction with a one byte operand, such as iload.
+         *
+         * @param op  the opcode.
+         * @param arg the operand.
+         */
+        void op(int op, int arg)
+        {
+            op(op);
+            op(arg);
+        }
+
+        /**
+         * Appends an instruction with a two byte constant pool operand,
+         * such as getstatic or invokevirtual.
+         *
+         * @param op    the opcode.
+         * @param index the constant pool index.
+         */
+        void ref(int op, int index)
+        {
+            op(op);
+            op(index >> 8);
+            op(index);
+        }
+
+        /**
+         * Appends the shortest instruction that pushes an int constant.
+         *
+         * @param value the constant.
+         */
+        void push(int value)
+        {
+            if (value >= -1 && value <= 5)
+            {
+                op(0x03 + value);
+            }
+            else if (value == (byte) value)
+            {
+                op(0x10, value);
+            }
+            else if (value == (short) value)
+            {
+                op(0x11);
+                op(value >> 8);
+                op(value);
+            }
+            else
+            {
+                ldc(owner.integer(value));
+            }
+        }
+
+        /**
+         * Appends an instruction that pushes a constant of the pool.
+         *
+         * @param index the constant pool index.
+         */
+        void ldc(int index)
+        {
+            if (index < 256)
+            {
+                op(0x12, index);
+            }
+            else
+            {
+                ref(0x13, index);
+            }
+        }
+
+        /**
+         * Creates a label to be placed later.
+         *
+         * @return the label.
+         */
+        int newLabel()
+        {
+            if (labelCount == labels.length)
+            {
+                labels = Arrays.copyOf(labels, labelCount * 2);
+            }
+            labels[labelCount] = -1;
+            return labelCount++;
+        }
+
+        /**
+         * Places a label at the next instruction, recording a frame there.
+         *
+         * @param label the label.
+         * @param depth the number of ints on the operand stack there.
+         */
+        void place(int label, int depth)
+        {
+            labels[label] = size;
+            mark(depth);
+        }
+
+        /**
+         * Records a frame at the next instruction, which a branch reaches
+         * or which follows an unconditional jump.
+         *
+         * @param depth the number of ints on the operand stack there.
+         */
+        void mark(int depth)
+        {
+            int last = frames.size() - 1;
+            if (last >= 0 && frames.get(last)[0] == size)
+            {
+                return;
+            }
+            frames.add(new int[] {size, depth});
+        }
+
+        /**
+         * Appends a branch to a label.
+         *
+         * @param op    the branch opcode, such as goto or if_icmplt.
+         * @param label the label.
+         */
+        void jump(int op, int label)
+        {
+            fixups.add(new int[] {size, label});
+            op(op);
+            op(0);
+            op(0);
+        }
+
+        /**
+         * Helper method: type writes one verification type.
+         */
+        private static void type(DataOutputStream out, int t) throws IOException
+        {
+            out.writeByte(t >> 16 == 0 ? t : t >> 16);
+            if (t >> 16 != 0)
+            {
+                out.writeShort(t & 0xFFFF);
+            }
+        }
+
+        /**
+         * Patches the branches and writes the method, with its Code and
+         * StackMapTable attributes.
+         *
+         * @param out       the stream of the class file.
+         * @param codeName  the constant pool index of "Code".
+         * @param tableName the constant pool index of "StackMapTable".
+         *
+         * @throws IOException if the stream fails.
+         * @throws ClassLimitException if the method or one of its branches is too long.
+         */
+        void writeTo(DataOutputStream out, int codeName, int tableName) throws IOException
+        {
+            if (size > 65535)
+            {
+                throw new ClassLimitException("Method too large");
+            }
+            for (int[] f : fixups)
+            {
+                int offset = labels[f[1]] - f[0];
+                if (offset != (short) offset)
+                {
+                    throw new ClassLimitException("Branch too far");
+                }
+                code[f[0] + 1] = (byte) (offset >> 8);
+                code[f[0] + 2] = (byte) offset;
+            }
+
+            ByteArrayOutputStream table = new ByteArrayOutputStream();
+            DataOutputStream t = new DataOutputStream(table);
+            t.writeShort(frames.size());
+            int previous = -1;
+            for (int[] f : frames)
+            {
+                t.writeByte(255);
+                t.writeShort(f[0] - previous - 1);
+                previous = f[0];
+                t.writeShort(locals.length);
+                for (int type : locals)
+                {
+                    type(t, type);
+                }
+                t.writeShort(f[1]);
+                for (int i = 0; i < f[1]; i++)
+                {
+                    type(t, INT);
+                }
+            }
+
+            out.writeShort(access);
+            out.writeShort(name);
+            out.writeShort(desc);
+            out.writeShort(1);
+            out.writeShort(codeName);
+            int attributes = frames.isEmpty() ? 0 : 6 + table.size();
+            out.writeInt(12 + size + attributes);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(size);
+            out.write(code, 0, size);
+            out.writeShort(0);
+            if (frames.isEmpty())
+            {
+                out.writeShort(0);
+            }
+            else
+            {
+                out.writeShort(1);
+                out.writeShort(tableName);
+                out.writeInt(table.size());
+                table.writeTo(out);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package AST;
+
+import Environment.Environment;
+
+/**
+ * The Closure class holds the functional interfaces of the closure engine.
+ * A tree of AST objects is turned once into a tree of lambdas, each bound
+ * to the operands, slots and constants of its node, so running it does no
+ * dispatch on operators and no string or map work for resolved variables.
+ * A node with no closure of its own is wrapped as is, so the tree walker
+ * runs it.
+ *
+ * @author Annabelle Ju
+ * @version 04/17/2020
+ */
+public final class Closure
+{
+    /**
+     * Constructor for objects of class Closure, which is never instantiated.
+     */
+    private Closure()
+    {
+    }
+
+    /**
+     * A Value computes the value of an Expression.
+     */
+    public interface Value
+    {
+        /**
+         * Computes the value.
+         *
+         * @param env the Environment in which it is computed.
+         *
+         * @return the value.
+         */
+        int eval(Environment env);
+    }
+
+    /**
+     * A Test decides a Condition.
+     */
+    public interface Test
+    {
+        /**
+         * Decides the Condition.
+         *
+         * @param env the Environment in which it is decided.
+         *
+         * @return true if the Condition holds.
+         */
+        boolean test(Environment env);
+    }
+
+    /**
+     * An Action carries out a Statement.
+     */
+    public interface Action
+    {
+        /**
+         * Carries out the Statement.
+         *
+         * @param env the Environment in which it is carried out.
+         */
+        void exec(Environment env);
+    }
+}
@@ -0,0 +1,50 @@
+package VM;
+
+import AST.ProcedureDeclaration;
+import Environment.Environment;
+
+/**
+ * The CompiledProcedure class is a ProcedureDeclaration whose body has
+ * been compiled to Bytecode. Calling it sets up the same frame as the
+ * declaration it was compiled from, then runs the Bytecode in it.
+ *
+ * @author Annabelle Ju
+ * @version 04/17/2020
+ */
+public class CompiledProcedure extends ProcedureDeclaration
+{
+    private Bytecode body;
+
+    /**
+     * Constructor for objects of class CompiledProcedure.
+     *
+     * @param dec  the declaration the body was compiled from.
+     * @param code the compiled body.
+     */
+    public CompiledProcedure(ProcedureDeclaration dec, Bytecode code)
+    {
+        super(dec);
+        body = code;
+    }
+
+    /**
+     * Retrieves the compiled body.
+     *
+     * @return the Bytecode of the body.
+     */
+    public Bytecode getBody()
+    {
+        return body;
+    }
+
+    /**
+     * Runs the Bytecode of this Procedure in the frame of a call.
+     *
+     * @param frame the frame of the call.
+     */
+    @Override
+    protected void run(Environment frame)
+    {
+        VirtualMachine.run(body, frame);
+    }
+}
@@ -1,11 +1,19 @@
 package AST;
 
 import Environment.Environment;
+import VM.Bytecode;
+import VM.Emitter;
+
+import java.util.Map;
+import java.util.Set;
 
 /**
  * The Condition class represents any condition
  * based on the six basic relational operators:
  * =, <>, <, >, <=, >=
+ * Condition.of creates a subclass specialized for its relational operator,
+ * whose test compares the two values directly, so If and While branch on
+ * the comparison itself instead of on a 0 or 1 computed from it.
  *
  * @author Annabelle Ju
  * @version 03/27/2020
@@ -30,6 +38,41 @@ public class Condition extends Expression
         exp2 = e2;
     }
 
+    /**
+     * Creates the Condition specialized for the given relational operator.
+     *
+     * @param e1 the lefthand expression to be evaluated.
+     * @param ro the relational operator to be used.
+     * @param e2 the righthand expression to be evaluated.
+     *
+     * @return an Eq, Ne, Lt, Gt, Le or Ge, or a plain Condition for any other operator.
+     */
+    public static Condition of(Expression e1, String ro, Expression e2)
+    {
+        switch (ro)
+        {
+            case "=": return new Eq(e1, e2);
+            case "<>": return new Ne(e1, e2);
+            case "<": return new Lt(e1, e2);
+            case ">": return new Gt(e1, e2);
+            case "<=": return new Le(e1, e2);
+            case ">=": return new Ge(e1, e2);
+            default: return new Condition(e1, ro, e2);
+        }
+    }
+
+    /**
+     * Tests this condition.
+     *
+     * @param env the Environment in which to evaluate the Expression.
+     *
+     * @return true if the Condition holds.
+     */
+    public boolean test(Environment env)
+    {
+        return eval(env) > 0;
+    }
+
     /**
      * Evaluates this condition and sets it to be either true or false.
      *
@@ -83,4 +126,529 @@ public class Condition extends Expression
 
         return bool;
     }
+
+    /**
+     * Optimizes both sides of this Condition, and computes it
+     * if both sides are Numbers.
+     *
+     * @return a Number 0 or 1 if the Condition is constant,
+     *         otherwise a Condition.
+     */
+    @Override
+    public Expression optimize()
+    {
+        Expression left = exp1.optimize();
+        Expression right = exp2.optimize();
+
+        if (left instanceof Number && right instanceof Number)
+        {
+            return new Number(new Condition(left, relop, right).eval(null));
+        }
+        if (left == exp1 && right == exp2)
+        {
+            return this;
+        }
+        return of(left, relop, right);
+    }
+
+    /**
+     * A Condition is pure if both its sides are.
+     *
+     * @return true if both sides are pure.
+     */
+    @Override
+    public boolean isPure()
+    {
+        return exp1.isPure() && exp2.isPure();
+    }
+
+    /**
+     * A Condition can trap if either of its sides can.
+     *
+     * @return true if either side can trap.
+     */
+    @Override
+    public boolean canTrap()
+    {
+        return exp1.canTrap() || exp2.canTrap();
+    }
+
+    /**
+     * Collects the names read by both sides.
+     *
+     * @param reads the set the names of the variables are added to.
+     * @param calls the set the names of the procedures are added to.
+     *
+     * @return false if the names of either side cannot be known.
+     */
+    @Override
+    public boolean readNames(Set<String> reads, Set<String> calls)
+    {
+        return exp1.readNames(reads, calls) & exp2.readNames(reads, calls);
+    }
+
+    /**
+     * A Condition is local if both its sides are.
+     *
+     * @param callable the names of the procedures it may call.
+     *
+     * @return true if both sides are local.
+     */
+    @Override
+    public boolean isLocal(Set<String> callable)
+    {
+        return exp1.isLocal(callable) && exp2.isLocal(callable);
+    }
+
+    /**
+     * Counts this Condition and the nodes of its operands.
+     *
+     * @return the number of nodes.
+     */
+    @Override
+    public int size()
+    {
+        return 1 + exp1.size() + exp2.size();
+    }
+
+    /**
+     * Substitutes the variables of both operands.
+     *
+     * @param map the Expression that replaces each variable.
+     *
+     * @return the new Condition.
+     */
+    @Override
+    public Condition substitute(Map<String, Expression> map)
+    {
+        return Condition.of(exp1.substitute(map), relop, exp2.substitute(map));
+    }
+
+    /**
+     * Inlines the calls in both operands.
+     *
+     * @param inliner the Inliner.
+     *
+     * @return the new Condition.
+     */
+    @Override
+    public Condition inline(Inliner inliner)
+    {
+        return Condition.of(exp1.inline(inliner), relop, exp2.inline(inliner));
+    }
+
+    /**
+     * Resolves both sides of this Condition.
+     *
+     * @param scope the Scope in which this Expression is evaluated.
+     *
+     * @return the resolved Condition.
+     */
+    @Override
+    public Condition resolve(Scope scope)
+    {
+        return of(exp1.resolve(scope), relop, exp2.resolve(scope));
+    }
+
+    /**
+     * Eq is the Condition for =.
+     */
+    public static final class Eq extends Condition
+    {
+        private final Expression left;
+        private final Expression right;
+
+        /**
+         * Constructor for objects of class Eq.
+         *
+         * @param e1 the lefthand expression.
+         * @param e2 the righthand expression.
+         */
+        public Eq(Expression e1, Expression e2)
+        {
+            super(e1, "=", e2);
+            left = e1;
+            right = e2;
+        }
+
+        /**
+         * Tests whether the lefthand value equals the righthand value.
+         *
+         * @param env the Environment in which to evaluate the Expression.
+         *
+         * @return true if the Condition holds.
+         */
+        @Override
+        public boolean test(Environment env)
+        {
+            return left.eval(env) == right.eval(env);
+        }
+
+        /**
+         * Evaluates this condition.
+         *
+         * @param env the Environment in which to evaluate the Expression.
+         *
+         * @return 1 if the Condition holds, 0 otherwise.
+         */
+        @Override
+        public int eval(Environment env)
+        {
+            return left.eval(env) == right.eval(env) ? 1 : 0;
+        }
+    }
+
+    /**
+     * Ne is the Condition for <>.
+     */
+    public static final class Ne extends Condition
+    {
+        private final Expression left;
+        private final Expression right;
+
+        /**
+         * Constructor for objects of class Ne.
+         *
+         * @param e1 the lefthand expression.
+         * @param e2 the righthand expression.
+         */
+        public Ne(Expression e1, Expression e2)
+        {
+            super(e1, "<>", e2);
+            left = e1;
+            right = e2;
+        }
+
+        /**
+         * Tests whether the lefthand value differs from the righthand value.
+         *
+         * @param env the Environment in which to evaluate the Expression.
+         *
+         * @return true if the Condition holds.
+         */
+        @Override
+        public boolean test(Environment env)
+        {
+            return left.eval(env) != right.eval(env);
+        }
+
+        /**
+         * Evaluates this condition.
+         *
+         * @param env the Environment in which to evaluate the Expression.
+         *
+         * @return 1 if the Condition holds, 0 otherwise.
+         */
+        @Override
+        public int eval(Environment env)
+        {
+            return left.eval(env) != right.eval(env) ? 1 : 0;
+        }
+    }
+
+    /**
+     * Lt is the Condition for <.
+     */
+    public static final class Lt extends Condition
+    {
+        private final Expression left;
+        private final Expression right;
+
+        /**
+         * Constructor for objects of class Lt.
+         *
+         * @param e1 the lefthand expression.
+         * @param e2 the righthand expression.
+         */
+        public Lt(Expression e1, Expression e2)
+        {
+            super(e1, "<", e2);
+            left = e1;
+            right = e2;
+        }
+
+        /**
+         * Tests whether the lefthand value is less than the righthand value.
+         *
+         * @param env the Environment in which to evaluate the Expression.
+         *
+         * @return true if the Condition holds.
+         */
+        @Override
+        public boolean test(Environment env)
+        {
+            return left.eval(env) < right.eval(env);
+        }
+
+        /**
+         * Evaluates this condition.
+         *
+         * @param env the Environment in which to evaluate the Expression.
+         *
+         * @return 1 if the Condition holds, 0 otherwise.
+         */
+        @Override
+        public int eval(Environment env)
+        {
+            return left.eval(env) < right.eval(env) ? 1 : 0;
+        }
+    }
+
+    /**
+     * Gt is the Condition for >.
+     */
+    public static final class Gt extends Condition
+    {
+        private final Expression left;
+        private final Expression right;
+
+        /**
+         * Constructor for objects of class Gt.
+         *
+         * @param e1 the lefthand expression.
+         * @param e2 the righthand expression.
+         */
+        public Gt(Expression e1, Expression e2)
+        {
+            super(e1, ">", e2);
+            left = e1;
+            right = e2;
+        }
+
+        /**
+         * Tests whether the lefthand value is greater than the righthand value.
+         *
+         * @param env the Environment in which to evaluate the Expression.
+         *
+         * @return true if the Condition holds.
+         */
+        @Override
+        public boolean test(Environment env)
+        {
+            return left.eval(env) > right.eval(env);
+        }
+
+        /**
+         * Evaluates this condition.
+         *
+         * @param env the Environment in which to evaluate the Expression.
+         *
+         * @return 1 if the Condition holds, 0 otherwise.
+         */
+        @Override
+        public int eval(Environment env)
+        {
+            return left.eval(env) > right.eval(env) ? 1 : 0;
+        }
+    }
+
+    /**
+     * Le is the Condition for <=.
+     */
+    public static final class Le extends Condition
+    {
+        private final Expression left;
+        private final Expression right;
+
+        /**
+         * Constructor for objects of class Le.
+         *
+         * @param e1 the lefthand expression.
+         * @param e2 the righthand expression.
+         */
+        public Le(Expression e1, Expression e2)
+        {
+            super(e1, "<=", e2);
+            left = e1;
+            right = e2;
+        }
+
+        /**
+         * Tests whether the lefthand value is at most the righthand value.
+         *
+         * @param env the Environment in which to evaluate the Expression.
+         *
+         * @return true if the Condition holds.
+         */
+        @Override
+        public boolean test(Environment env)
+        {
+            return left.eval(env) <= right.eval(env);
+        }
+
+        /**
+         * Evaluates this condition.
+         *
+         * @param env the Environment in which to evaluate the Expression.
+         *
+         * @return 1 if the Condition holds, 0 otherwise.
+         */
+        @Override
+        public int eval(Environment env)
+        {
+            return left.eval(env) <= right.eval(env) ? 1 : 0;
+        }
+    }
+
+    /**
+     * Ge is the Condition for >=.
+     */
+    public static final class Ge extends Condition
+    {
+        private final Expression left;
+        private final Expression right;
+
+        /**
+         * Constructor for objects of class Ge.
+         *
+         * @param e1 the lefthand expression.
+         * @param e2 the righthand expression.
+         */
+        public Ge(Expression e1, Expression e2)
+        {
+            super(e1, ">=", e2);
+            left = e1;
+            right = e2;
+        }
+
+        /**
+         * Tests whether the lefthand value is at least the righthand value.
+         *
+         * @param env the Environment in which to evaluate the Expression.
+         *
+         * @return true if the Condition holds.
+         */
+        @Override
+        public boolean test(Environment env)
+        {
+            return left.eval(env) >= right.eval(env);
+        }
+
+        /**
+         * Evaluates this condition.
+         *
+         * @param env the Environment in which to evaluate the Expression.
+         *
+         * @return 1 if the Condition holds, 0 otherwise.
+         */
+        @Override
+        public int eval(Environment env)
+        {
+            return left.eval(env) >= right.eval(env) ? 1 : 0;
+        }
+    }
+
+    /** The position of the negation of each relational operator: = <>, < >=, > <=. */
+    private static final int[] NEGATION = {1, 0, 5, 4, 3, 2};
+
+    /**
+     * Helper method: opcode finds the position of the relational operator
+     * of this Condition among =, <>, <, >, <=, >=, or -1 if it is none of them.
+     */
+    private int opcode()
+    {
+        switch (relop)
+        {
+            case "=": return 0;
+            case "<>": return 1;
+            case "<": return 2;
+            case ">": return 3;
+            case "<=": return 4;
+            case ">=": return 5;
+            default: return -1;
+        }
+    }
+
+    /**
+     * Emits both sides, then the comparison that pushes 1 or 0.
+     *
+     * @param e the Emitter that receives the code.
+     */
+    @Override
+    public void compile(Emitter e)
+    {
+        if (opcode() < 0)
+        {
+            super.compile(e);
+            return;
+        }
+        exp1.compile(e);
+        exp2.compile(e);
+        e.emit(Bytecode.EQ + opcode());
+    }
+
+    /**
+     * Emits both sides, then a single compare-and-branch instruction
+     * that jumps to the given label if this Condition has the given outcome.
+     * Jumping when the Condition holds is jumping unless its negation holds.
+     *
+     * @param e      the Emitter that receives the code.
+     * @param label  the label to jump to.
+     * @param onTrue true to jump if the Condition holds, false to jump if it does not.
+     */
+    public void compileBranch(Emitter e, int label, boolean onTrue)
+    {
+        int code = opcode();
+        if (code < 0)
+        {
+            super.compile(e);
+            e.emitJump(onTrue ? Bytecode.JUMP_IF_TRUE : Bytecode.JUMP_IF_FALSE, label);
+            return;
+        }
+        exp1.compile(e);
+        exp2.compile(e);
+        e.emitJump(Bytecode.JUMP_UNLESS_EQ + (onTrue ? NEGATION[code] : code), label);
+    }
+
+    /**
+     * Builds the Value that computes 1 if this Condition holds, else 0.
+     *
+     * @return the Value.
+     */
+    @Override
+    public Closure.Value closure()
+    {
+        if (opcode() < 0)
+        {
+            return super.closure();
+        }
+        Closure.Test t = testClosure();
+        return env -> t.test(env) ? 1 : 0;
+    }
+
+    /**
+     * Builds the Test that compares the Values of both sides, or the Value
+     * of the lefthand side and a constant, so If and While need no 0 or 1.
+     *
+     * @return the Test.
+     */
+    public Closure.Test testClosure()
+    {
+        Closure.Value l = exp1.closure();
+        if (exp2 instanceof Number)
+        {
+            int k = ((Number) exp2).getValue();
+            switch (opcode())
+            {
+                case 0: return env -> l.eval(env) == k;
+                case 1: return env -> l.eval(env) != k;
+                case 2: return env -> l.eval(env) < k;
+                case 3: return env -> l.eval(env) > k;
+                case 4: return env -> l.eval(env) <= k;
+                case 5: return env -> l.eval(env) >= k;
+                default: return this::test;
+            }
+        }
+        Closure.Value r = exp2.closure();
+        switch (opcode())
+        {
+            case 0: return env -> l.eval(env) == r.eval(env);
+            case 1: return env -> l.eval(env) != r.eval(env);
+            case 2: return env -> l.eval(env) < r.eval(env);
+            case 3: return env -> l.eval(env) > r.eval(env);
+            case 4: return env -> l.eval(env) <= r.eval(env);
+            case 5: return env -> l.eval(env) >= r.eval(env);
+            default: return this::test;
+        }
+    }
 }
@@ -0,0 +1,175 @@
+package Parser;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Differential runs programs once with -O0, which interprets the tree as
+ * it was parsed, and once more with the optimizations, then compares what
+ * each run printed and the exception, if any, that ended it. No pass that
+ * is on by default may change either. Without files it checks a few
+ * programs whose procedures read and write variables of their callers and
+ * of the global frame, are called on too few arguments, or drop operands
+ * that fail, under every engine.
+ *
+ * Usage: java Parser.Differential [options] [file...]
+ * where the options are those of Parser.Parser.
+ *
+ * @author  Annabelle Ju
+ * @version 04/17/2020
+ */
+public class Differential
+{
+    private static final String[] ENGINES = {"tree", "vm", "jit", "closure", "stack"};
+
+    private static final String[] CASES = {
+        "PROCEDURE inner(a); BEGIN g := g + a; inner := g; END;\n"
+        + "PROCEDURE outer(b); BEGIN outer := inner(b); END;\n"
+        + "BEGIN g := 1; x := outer(6); WRITELN(x); WRITELN(g); END.\n",
+
+        "PROCEDURE inner(a); BEGIN w := a; inner := 0; END;\n"
+        + "PROCEDURE outer(b); BEGIN w := 1; z := inner(b); outer := w; END;\n"
+        + "BEGIN WRITELN(outer(9)); END.\n",
+
+        "PROCEDURE p(a); BEGIN x := x + a; p := x; END;\n"
+        + "BEGIN WRITELN(p(1)); END.\n",
+
+        "BEGIN WRITELN(q - q); END.\n",
+
+        "PROCEDURE f(a); BEGIN t := a; f := t * 0 + (t - t); END;\n"
+        + "BEGIN WRITELN(f(3)); y := 5; WRITELN(y / 0 * 0); END.\n",
+
+        "PROCEDURE k(a); BEGIN k := 7; END;\n"
+        + "BEGIN z := 0; WRITELN(k(5 / z)); END.\n",
+
+        "PROCEDURE count(n); BEGIN c := c + 1; count := n; END;\n"
+        + "BEGIN c := 0; x := count(1) + count(2); WRITELN(c); WRITELN(x); END.\n",
+
+        "PROCEDURE f(n); BEGIN IF n = 2 THEN t := 5; f := 0; IF n = 0 THEN f := t;\n"
+        + "IF n > 0 THEN f := f(n - 1); END;\n"
+        + "BEGIN t := 1; WRITELN(f(3)); WRITELN(t); END.\n",
+
+        "PROCEDURE f(a,b); BEGIN f := a+b; END;\n"
+        + "BEGIN b := 10; WRITELN(f(1)); END.\n",
+
+        "PROCEDURE f(n); BEGIN f := f + n + 1; END;\n"
+        + "BEGIN f := 5; WRITELN(f(3)); WRITELN(f); END.\n",
+
+        "PROCEDURE f(n); BEGIN f := n; IF n > 0 THEN BEGIN x := f(n - 1); f := f + x; END; END;\n"
+        + "BEGIN WRITELN(f(3)); END.\n",
+    };
+
+    /**
+     * Runs Parser.Parser with the given arguments and records what it printed.
+     *
+     * @param args the arguments of Parser.Parser.
+     *
+     * @return the output, followed by the class of the exception that ended the run, if any.
+     */
+    private static String run(List<String> args)
+    {
+        PrintStream out = System.out;
+        ByteArrayOutputStream recorded = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(recorded, true));
+        String end = "";
+        try
+        {
+            Parser.main(args.toArray(new String[0]));
+        }
+        catch (Exception | StackOverflowError e)
+        {
+            end = "! " + e.getClass().getName() + "\n";
+        }
+        finally
+        {
+            System.setOut(out);
+        }
+        return recorded.toString() + end;
+    }
+
+    /**
+     * Compares a file run with -O0 and with the given options.
+     *
+     * @param options  the options of Parser.Parser.
+     * @param fileName the name of the file.
+     *
+     * @return true if both runs agree.
+     */
+    private static boolean check(List<String> options, String fileName)
+    {
+        String expected = run(Arrays.asList("-O0", fileName));
+        List<String> args = new ArrayList<>(options);
+        args.add(fileName);
+        String actual = run(args);
+        if (expected.equals(actual))
+            return true;
+        System.out.println("DIFFERS " + String.join(" ", args));
+        System.out.print("-O0:\n" + expected + "optimized:\n" + actual);
+        return false;
+    }
+
+    /**
+     * The main method for Differential. It exits with status 1 if any run differs.
+     *
+     * @param args the options of Parser.Parser, then the files to be checked.
+     *
+     * @throws IOException if a built-in program cannot be written to a temporary file.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        List<String> options = new ArrayList<>();
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++)
+        {
+            if (!args[i].startsWith("-"))
+                files.add(args[i]);
+            else
+            {
+                options.add(args[i]);
+                if (i + 1 < args.length && !args[i + 1].startsWith("-")
+                    && Arrays.asList("-cache", "-engine", "-budget", "-memo", "-memosize", "-inline")
+                       .contains(args[i]))
+                    options.add(args[++i]);
+            }
+        }
+
+        List<List<String>> runs = new ArrayList<>();
+        if (files.isEmpty())
+        {
+            for (String source: CASES)
+            {
+                File temp = File.createTempFile("differential", ".txt");
+                temp.deleteOnExit();
+                Files.write(temp.toPath(), source.getBytes());
+                files.add(temp.getPath());
+            }
+            if (options.isEmpty())
+            {
+                for (String engine: ENGINES)
+                {
+                    runs.add(Arrays.asList("-engine", engine));
+                }
+            }
+        }
+        if (runs.isEmpty())
+            runs.add(options);
+
+        int differs = 0;
+        int total = 0;
+        for (List<String> run: runs)
+        {
+            for (String fileName: files)
+            {
+                total++;
+                if (!check(run, fileName))
+                    differs++;
+            }
+        }
+        System.out.println((total - differs) + " of " + total + " runs agree with -O0");
+        if (differs > 0)
+            System.exit(1);
+    }
+}
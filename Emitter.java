@@ -0,0 +1,373 @@
+package VM;
+
+import AST.Expression;
+import AST.ProcedureDeclaration;
+import AST.Statement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * The Emitter class assembles Bytecode. AST nodes compile themselves by
+ * calling its emit methods in execution order; the Emitter keeps track of
+ * the depth of the operand stack and patches jumps to labels once the
+ * labels are placed.
+ *
+ * @author Annabelle Ju
+ * @version 04/17/2020
+ */
+public class Emitter
+{
+    private int[] code;
+    private int size;
+    private int depth;
+    private int maxDepth;
+    private ArrayList<String> names;
+    private HashMap<String, Integer> nameIndex;
+    private ArrayList<CompiledProcedure> procedures;
+    private ArrayList<Statement> statements;
+    private ArrayList<Expression> expressions;
+    private int lastStart;
+    private int previousStart;
+    private int labelledAt;
+    private int[] labels;
+    private int labelCount;
+    private ArrayList<int[]> fixups;
+
+    /**
+     * Constructor for objects of class Emitter.
+     */
+    public Emitter()
+    {
+        code = new int[64];
+        names = new ArrayList<>();
+        nameIndex = new HashMap<>();
+        procedures = new ArrayList<>();
+        statements = new ArrayList<>();
+        expressions = new ArrayList<>();
+        lastStart = -1;
+        previousStart = -1;
+        labelledAt = -1;
+        labels = new int[8];
+        fixups = new ArrayList<>();
+    }
+
+    /**
+     * Compiles a Statement, such as a Program, into Bytecode.
+     *
+     * @param s the Statement to be compiled.
+     *
+     * @return the Bytecode that executes it.
+     */
+    public static Bytecode compile(Statement s)
+    {
+        Emitter e = new Emitter();
+        s.compile(e);
+        e.emit(Bytecode.HALT);
+        return e.finish();
+    }
+
+    /**
+     * Helper method: put appends one int to the code.
+     */
+    private void put(int value)
+    {
+        if (size == code.length)
+        {
+            code = Arrays.copyOf(code, size * 2);
+        }
+        code[size++] = value;
+    }
+
+    /**
+     * Helper method: adjust changes the tracked depth of the operand stack.
+     */
+    private void adjust(int change)
+    {
+        depth += change;
+        maxDepth = Math.max(maxDepth, depth);
+    }
+
+    /**
+     * Helper method: start notes that an instruction begins at the end of the code.
+     */
+    private void start()
+    {
+        previousStart = lastStart;
+        lastStart = size;
+    }
+
+    /**
+     * Emits an instruction without operands. An arithmetic instruction
+     * whose right operand was just pushed, or just loaded from a variable,
+     * takes the operand into itself instead, and a pushed constant takes
+     * the variable loaded just before it too.
+     *
+     * @param op the opcode.
+     */
+    public void emit(int op)
+    {
+        if (op >= Bytecode.ADD && op <= Bytecode.DIV && followsPush())
+        {
+            if (loadsBefore())
+            {
+                code[previousStart] = op - Bytecode.ADD + (code[previousStart] == Bytecode.LOAD_LOCAL
+                        ? Bytecode.LOCAL_ADD_CONST : Bytecode.GLOBAL_ADD_CONST);
+                code[previousStart + 2] = code[lastStart + 1];
+                size = previousStart + 3;
+                lastStart = previousStart;
+                previousStart = -1;
+            }
+            else
+            {
+                code[lastStart] = op - Bytecode.ADD + Bytecode.ADD_CONST;
+            }
+            adjust(-1);
+            return;
+        }
+        if (op >= Bytecode.ADD && op <= Bytecode.DIV && followsLoad())
+        {
+            code[lastStart] = op - Bytecode.ADD
+                    + (code[lastStart] == Bytecode.LOAD_LOCAL ? Bytecode.ADD_LOCAL : Bytecode.ADD_GLOBAL);
+            adjust(-1);
+            return;
+        }
+        start();
+        put(op);
+        adjust(Bytecode.STACK_EFFECT[op]);
+    }
+
+    /**
+     * Helper method: followsPush tells whether the last instruction is a PUSH
+     * that no label separates from the next one, so the two can be fused.
+     */
+    private boolean followsPush()
+    {
+        return lastStart == size - 2 && code[lastStart] == Bytecode.PUSH && labelledAt != size;
+    }
+
+    /**
+     * Helper method: followsLoad tells whether the last instruction loads a
+     * variable by its slot and no label separates it from the next one.
+     */
+    private boolean followsLoad()
+    {
+        return lastStart == size - 2 && labelledAt != size
+               && (code[lastStart] == Bytecode.LOAD_LOCAL || code[lastStart] == Bytecode.LOAD_GLOBAL);
+    }
+
+    /**
+     * Helper method: loadsBefore tells whether the instruction before the last
+     * one loads a variable by its slot, and no label falls after it.
+     */
+    private boolean loadsBefore()
+    {
+        return previousStart >= 0 && previousStart == lastStart - 2 && labelledAt <= previousStart
+               && (code[previousStart] == Bytecode.LOAD_LOCAL || code[previousStart] == Bytecode.LOAD_GLOBAL);
+    }
+
+    /**
+     * Emits an instruction with one operand. A store of a variable to which
+     * a constant was just added, or from which one was subtracted, becomes
+     * an increment, and a store of a variable to which the value on top of
+     * the stack was just added adds it in place.
+     *
+     * @param op  the opcode.
+     * @param arg the operand.
+     */
+    public void emit(int op, int arg)
+    {
+        if ((op == Bytecode.STORE_LOCAL || op == Bytecode.STORE_GLOBAL) && labelledAt != size)
+        {
+            boolean local = op == Bytecode.STORE_LOCAL;
+            int add = local ? Bytecode.LOCAL_ADD_CONST : Bytecode.GLOBAL_ADD_CONST;
+            if (lastStart == size - 3 && (code[lastStart] == add || code[lastStart] == add + 1)
+                && code[lastStart + 1] == arg)
+            {
+                if (code[lastStart] != add)
+                {
+                    code[lastStart + 2] = -code[lastStart + 2];
+                }
+                code[lastStart] = local ? Bytecode.INC_LOCAL : Bytecode.INC_GLOBAL;
+                adjust(-1);
+                return;
+            }
+            if (lastStart == size - 2 && code[lastStart] == (local ? Bytecode.ADD_LOCAL : Bytecode.ADD_GLOBAL)
+                && code[lastStart + 1] == arg)
+            {
+                code[lastStart] = local ? Bytecode.ADD_TO_LOCAL : Bytecode.ADD_TO_GLOBAL;
+                adjust(-1);
+                return;
+            }
+        }
+        start();
+        put(op);
+        put(arg);
+        adjust(Bytecode.STACK_EFFECT[op]);
+    }
+
+    /**
+     * Emits a call of a procedure on the arguments on top of the stack.
+     *
+     * @param name     the name of the procedure.
+     * @param argCount the number of arguments.
+     */
+    public void emitCall(String name, int argCount)
+    {
+        start();
+        put(Bytecode.CALL);
+        put(nameOf(name));
+        put(argCount);
+        adjust(1 - argCount);
+    }
+
+    /**
+     * Emits a tail call of a procedure on the arguments on top of the stack,
+     * whose value becomes the result of the procedure being compiled.
+     *
+     * @param name     the name of the procedure.
+     * @param argCount the number of arguments.
+     */
+    public void emitTailCall(String name, int argCount)
+    {
+        start();
+        put(Bytecode.TAIL_CALL);
+        put(nameOf(name));
+        put(argCount);
+        adjust(-argCount);
+    }
+
+    /**
+     * Finds the index of a name in the name pool.
+     *
+     * @param name the name.
+     *
+     * @return its index.
+     */
+    public int nameOf(String name)
+    {
+        Integer index = nameIndex.get(name);
+        if (index == null)
+        {
+            index = names.size();
+            names.add(name);
+            nameIndex.put(name, index);
+        }
+        return index;
+    }
+
+    /**
+     * Creates a label that jumps can target before it is placed.
+     *
+     * @return the label.
+     */
+    public int newLabel()
+    {
+        if (labelCount == labels.length)
+        {
+            labels = Arrays.copyOf(labels, labelCount * 2);
+        }
+        labels[labelCount] = -1;
+        return labelCount++;
+    }
+
+    /**
+     * Places a label at the next instruction.
+     *
+     * @param label the label.
+     */
+    public void placeLabel(int label)
+    {
+        labels[label] = size;
+        labelledAt = size;
+    }
+
+    /**
+     * Emits a jump to a label. A comparison with a constant that was just
+     * pushed takes the constant into itself, and the variable loaded
+     * before it as well.
+     *
+     * @param op    JUMP, JUMP_IF_FALSE, JUMP_IF_TRUE or one of the JUMP_UNLESS opcodes.
+     * @param label the label.
+     */
+    public void emitJump(int op, int label)
+    {
+        if (op >= Bytecode.JUMP_UNLESS_EQ && op <= Bytecode.JUMP_UNLESS_GE && followsPush())
+        {
+            if (loadsBefore())
+            {
+                code[previousStart] = op - Bytecode.JUMP_UNLESS_EQ + (code[previousStart] == Bytecode.LOAD_LOCAL
+                        ? Bytecode.JUMP_UNLESS_EQ_LOCAL_CONST : Bytecode.JUMP_UNLESS_EQ_GLOBAL_CONST);
+                code[previousStart + 2] = code[lastStart + 1];
+                size = previousStart + 3;
+                lastStart = previousStart;
+                previousStart = -1;
+            }
+            else
+            {
+                code[lastStart] = op - Bytecode.JUMP_UNLESS_EQ + Bytecode.JUMP_UNLESS_EQ_CONST;
+            }
+            put(0);
+            adjust(-2);
+        }
+        else
+        {
+            emit(op, 0);
+        }
+        fixups.add(new int[] {size - 1, label});
+    }
+
+    /**
+     * Emits an instruction that runs a Statement with the tree walker,
+     * for Statements that have no bytecode of their own.
+     *
+     * @param s the Statement.
+     */
+    public void emitStatement(Statement s)
+    {
+        statements.add(s);
+        emit(Bytecode.EXEC, statements.size() - 1);
+    }
+
+    /**
+     * Emits an instruction that evaluates an Expression with the tree walker,
+     * for Expressions that have no bytecode of their own.
+     *
+     * @param e the Expression.
+     */
+    public void emitExpression(Expression e)
+    {
+        expressions.add(e);
+        emit(Bytecode.EVAL, expressions.size() - 1);
+    }
+
+    /**
+     * Compiles the body of a procedure into Bytecode of its own, and emits
+     * the instruction that declares the compiled procedure.
+     *
+     * @param dec      the declaration of the procedure.
+     * @param contents the Statement carried by the procedure.
+     */
+    public void emitDeclaration(ProcedureDeclaration dec, Statement contents)
+    {
+        procedures.add(new CompiledProcedure(dec, compile(contents)));
+        emit(Bytecode.DECLARE, procedures.size() - 1);
+    }
+
+    /**
+     * Patches every jump and packs the code and pools into Bytecode.
+     *
+     * @return the assembled Bytecode.
+     */
+    public Bytecode finish()
+    {
+        for (int[] fixup: fixups)
+        {
+            code[fixup[0]] = labels[fixup[1]];
+        }
+        return new Bytecode(Arrays.copyOf(code, size), maxDepth, names.toArray(new String[0]),
+                procedures.toArray(new CompiledProcedure[0]), statements.toArray(new Statement[0]),
+                expressions.toArray(new Expression[0]));
+    }
+}
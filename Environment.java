@@ -1,12 +1,26 @@
 package Environment;
 
-import AST.Statement;
+import AST.ProcedureDeclaration;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * The Environment class remembers the values of any given variables.
+ * Every Environment is a frame: the values of its variables are kept in
+ * an int array, and a SlotMap from names to slots tells where each one is.
+ * Variables can be reached either by name, walking the chain of parent
+ * Environments, or by a (depth, slot) address computed ahead of time,
+ * where depth 0 is this frame and depth 1 the global frame at the root.
+ * Frames of the same resolved procedure share one map of slots, and are
+ * pushed onto the FrameStack of the global Environment: their values are a
+ * stretch of its array starting at a base index, and the Environment object
+ * itself is reused by later calls once the frame is popped.
+ * A variable may be given a slot before it is first assigned; until then
+ * it does not exist for lookups by name, just as if it had no slot.
  *
  * @author Annabelle Ju
  * @version 04/17/2020
@@ -14,9 +28,17 @@ import java.util.List;
 public class Environment
 {
     private Environment parent;
-    private HashMap<String, Integer> variables;
-    private HashMap<String, Statement> procedures;
-    private HashMap<String, List<String>> paramNames;
+    private Environment global;
+    private SlotMap slots;
+    private boolean sharedSlots;
+    private int[] values;
+    private int base;
+    private int capacity;
+    private boolean onStack;
+    private boolean restart;
+    private FrameStack stack;
+    private HashMap<String, ProcedureCell> procedures;
+    private HashSet<String> unset;
 
     /**
      * Constructor for objects of class Environment.
@@ -24,9 +46,246 @@ public class Environment
     public Environment(Environment parent)
     {
         this.parent = parent;
-        variables =  new HashMap<>();
-        procedures = new HashMap<>();
-        paramNames = new HashMap<>();
+        global = parent == null ? this : parent.global;
+        slots = new SlotMap();
+        values = new int[8];
+        capacity = values.length;
+        procedures = parent == null ? new HashMap<>() : null;
+    }
+
+    /**
+     * Constructor for objects of class Environment that hold the frame of a
+     * resolved procedure, whose variables have been given their slots ahead of time.
+     *
+     * @param parent the Environment of the caller.
+     * @param layout the slot of every local variable, shared by all frames of the procedure.
+     */
+    public Environment(Environment parent, SlotMap layout)
+    {
+        this.parent = parent;
+        global = parent == null ? this : parent.global;
+        slots = layout;
+        sharedSlots = true;
+        values = new int[Math.max(layout.size(), 1)];
+        capacity = values.length;
+        procedures = parent == null ? new HashMap<>() : null;
+    }
+
+    /**
+     * Constructor for objects of class Environment that are kept by a
+     * FrameStack and hold one frame on it after another.
+     *
+     * @param frames the FrameStack.
+     */
+    Environment(FrameStack frames)
+    {
+        stack = frames;
+    }
+
+    /**
+     * Makes this Environment the frame of a new call on the FrameStack.
+     *
+     * @param caller the Environment of the caller.
+     * @param layout the slot of every variable of the procedure.
+     * @param data   the value array of the FrameStack.
+     * @param at     the index in it of the first value of the frame.
+     * @param size   the number of values the frame has room for.
+     */
+    void reset(Environment caller, SlotMap layout, int[] data, int at, int size)
+    {
+        parent = caller;
+        global = caller.global;
+        slots = layout;
+        sharedSlots = true;
+        values = data;
+        base = at;
+        capacity = size;
+        onStack = true;
+    }
+
+    /**
+     * Hands this frame the new value array of the FrameStack, if its values are still there.
+     *
+     * @param data the new value array.
+     */
+    void moved(int[] data)
+    {
+        if (onStack)
+        {
+            values = data;
+        }
+    }
+
+    /**
+     * Forgets the call this frame held, once it is popped.
+     */
+    void release()
+    {
+        parent = null;
+        values = null;
+        onStack = false;
+        restart = false;
+    }
+
+    /**
+     * The method "hasLayout" tells whether this frame is laid out by the given slots.
+     *
+     * @param layout the slot of every variable of a procedure.
+     *
+     * @return true if this frame still uses exactly that layout.
+     */
+    public boolean hasLayout(SlotMap layout)
+    {
+        return slots == layout;
+    }
+
+    /**
+     * The method "clear" sets every variable of this frame to 0.
+     */
+    public void clear()
+    {
+        Arrays.fill(values, base, base + capacity, 0);
+    }
+
+    /**
+     * The method "requestRestart" asks for the procedure whose frame this is
+     * to be run again from the start once its Statement returns.
+     */
+    public void requestRestart()
+    {
+        restart = true;
+    }
+
+    /**
+     * The method "takeRestart" tells whether a restart was requested, and
+     * clears the request.
+     *
+     * @return true if the procedure must be run again.
+     */
+    public boolean takeRestart()
+    {
+        boolean r = restart;
+        restart = false;
+        return r;
+    }
+
+    /**
+     * The method "push" creates the frame of a call, made from this
+     * Environment, to a resolved procedure, on the FrameStack of the
+     * global Environment. The frame must be popped when the call ends.
+     *
+     * @param layout the slot of every variable of the procedure.
+     *
+     * @return the frame, with every variable set to 0.
+     */
+    public Environment push(SlotMap layout)
+    {
+        if (global.stack == null)
+        {
+            global.stack = new FrameStack();
+        }
+        return global.stack.push(this, layout);
+    }
+
+    /**
+     * The method "pop" ends the call whose frame this is, which must be
+     * the last frame pushed that has not been popped yet.
+     */
+    public void pop()
+    {
+        stack.pop(this);
+    }
+
+    /**
+     * The method "hasVariable" tells whether this frame itself holds a
+     * variable that has been assigned.
+     *
+     * @param variable the name of the variable.
+     *
+     * @return true if the variable is in this frame.
+     */
+    public boolean hasVariable(String variable)
+    {
+        return slots.containsKey(variable) && (unset == null || !unset.contains(variable));
+    }
+
+    /**
+     * The method "hasSlot" tells whether this frame has a slot for a
+     * variable, whether or not the variable has been assigned yet.
+     *
+     * @param variable the name of the variable.
+     *
+     * @return true if the variable has a slot in this frame.
+     */
+    public boolean hasSlot(String variable)
+    {
+        return slots.containsKey(variable);
+    }
+
+    /**
+     * The method "reserve" gives a variable a slot in this frame ahead of
+     * its first assignment, so that code can be compiled to use the slot.
+     * Until the variable is assigned by name it does not exist for lookups by name.
+     *
+     * @param variable the name of the variable.
+     *
+     * @return the slot of the variable.
+     */
+    public int reserve(String variable)
+    {
+        int slot = slots.get(variable);
+        if (slot >= 0)
+        {
+            return slot;
+        }
+        if (unset == null)
+        {
+            unset = new HashSet<>();
+        }
+        unset.add(variable);
+        return slotOf(variable);
+    }
+
+    /**
+     * Helper method: define marks a variable with a reserved slot as assigned.
+     */
+    private void define(String variable)
+    {
+        if (unset.remove(variable) && unset.isEmpty())
+        {
+            unset = null;
+        }
+    }
+
+    /**
+     * The method "slotOf" finds the slot of a variable in this frame,
+     * adding the variable with the value 0 if it is not there yet.
+     *
+     * @param variable the name of the variable.
+     *
+     * @return the slot of the variable.
+     */
+    public int slotOf(String variable)
+    {
+        int slot = slots.get(variable);
+        if (slot >= 0)
+        {
+            return slot;
+        }
+        if (sharedSlots)
+        {
+            slots = new SlotMap(slots);
+            sharedSlots = false;
+        }
+        slot = slots.add(variable);
+        if (slot == capacity)
+        {
+            values = Arrays.copyOfRange(values, base, base + capacity * 2);
+            base = 0;
+            capacity *= 2;
+            onStack = false;
+        }
+        return slot;
     }
 
     /**
@@ -38,13 +297,23 @@ public class Environment
      */
     public void setVariable(String variable, int value)
     {
-        if (parent!=null && !variables.containsKey(variable) && parent.variables.containsKey(variable))
+        int slot = slots.get(variable);
+        if (slot >= 0)
+        {
+            values[base + slot] = value;
+            if (unset != null)
+            {
+                define(variable);
+            }
+        }
+        else if (parent!=null && parent.hasVariable(variable))
         {
             parent.setVariable(variable, value);
         }
         else
         {
-            variables.put(variable, value);
+            slot = slotOf(variable);
+            values[base + slot] = value;
         }
     }
 
@@ -57,13 +326,14 @@ public class Environment
      */
     public int getVariable(String variable)
     {
-        if (!variables.containsKey(variable))
+        int slot = slots.get(variable);
+        if (slot < 0 || (unset != null && unset.contains(variable)))
         {
             return parent.getVariable(variable);
         }
         else
         {
-            return variables.get(variable);
+            return values[base + slot];
         }
     }
 
@@ -75,83 +345,129 @@ public class Environment
      */
     public void declareVariable(String variable, int value)
     {
-        variables.put(variable, value);
+        int slot = slotOf(variable);
+        values[base + slot] = value;
+        if (unset != null)
+        {
+            define(variable);
+        }
+    }
+
+    /**
+     * The method "getSlot" retrieves the value of a variable by its address.
+     *
+     * @param depth 0 for this frame, 1 for the global frame.
+     * @param slot  the slot of the variable in that frame.
+     *
+     * @return the integer value of the variable.
+     */
+    public int getSlot(int depth, int slot)
+    {
+        Environment frame = depth == 0 ? this : global;
+        return frame.values[frame.base + slot];
+    }
+
+    /**
+     * The method "setSlot" sets the value of a variable by its address.
+     *
+     * @param depth 0 for this frame, 1 for the global frame.
+     * @param slot  the slot of the variable in that frame.
+     * @param value the value of the variable.
+     */
+    public void setSlot(int depth, int slot, int value)
+    {
+        Environment frame = depth == 0 ? this : global;
+        frame.values[frame.base + slot] = value;
+    }
+
+    /**
+     * The method "getValues" retrieves the array holding the values of this frame,
+     * from getBase() on, in slot order. The array is replaced when a variable is
+     * added to the frame or when the FrameStack grows, so it must be fetched
+     * again, together with the base, after running anything that might do either.
+     *
+     * @return the array holding the values of this frame.
+     */
+    public int[] getValues()
+    {
+        return values;
+    }
+
+    /**
+     * The method "getBase" retrieves the index in getValues() of the value in slot 0.
+     * It is 0 except for frames on the FrameStack.
+     *
+     * @return the index of the first value of this frame.
+     */
+    public int getBase()
+    {
+        return base;
+    }
+
+    /**
+     * The method "getGlobal" retrieves the global Environment at the root of this one.
+     *
+     * @return the global Environment.
+     */
+    public Environment getGlobal()
+    {
+        return global;
     }
 
     /**
      * The method "setProcedure" takes in a Procedure's name
-     * and puts a corresponding Statement into its contents.
+     * and its declaration, which is kept by the global Environment.
      *
      * @param name the name of this Procedure.
-     * @param st   the statement that this Procedure contains.
+     * @param dec  the declaration of this Procedure.
      */
-    public void setProcedure(String name, Statement st)
+    public void setProcedure(String name, ProcedureDeclaration dec)
     {
-        if (parent!=null)
-        {
-            parent.setProcedure(name, st);
-        }
-        else
-        {
-            if (!procedures.containsKey(name))
-            {
-                procedures.put(name, st);
-            }
-            else
-            {
-                procedures.replace(name, st);
-            }
-        }
+        getProcedureCell(name).set(dec);
     }
 
     /**
-     * The method "getProcedure" retrieves the Statement within
-     * the given Procedure.
+     * The method "getProcedure" retrieves the declaration
+     * of the given Procedure.
      *
      * @param name the name of the Procedure to be retrieved.
      *
-     * @return the Statement within the given Procedure.
+     * @return the declaration of the given Procedure.
      */
-    public Statement getProcedure(String name)
+    public ProcedureDeclaration getProcedure(String name)
     {
-        if (parent!=null)
-        {
-            return parent.getProcedure(name);
-        }
-        else
-        {
-            return procedures.get(name);
-        }
+        ProcedureCell cell = global.procedures.get(name);
+        return cell == null ? null : cell.get();
     }
 
     /**
-     * Takes in the String names of a Procedure's parameters.
+     * The method "getProcedureNames" retrieves the names of the Procedures
+     * the global Environment has a cell for, declared or only called so far.
      *
-     * @param name the name of the Procedure.
-     * @param params the list of parameters.
+     * @return the names, which must not be changed.
      */
-    public void setParamNames(String name, List<String> params)
+    public Set<String> getProcedureNames()
     {
-        if (!paramNames.containsKey(name))
-        {
-            paramNames.put(name, params);
-        }
-        else
-        {
-            paramNames.replace(name, params);
-        }
+        return Collections.unmodifiableSet(global.procedures.keySet());
     }
 
     /**
-     * The method "getParamNames" retrieves the list of parameter names
-     * for this Procedure.
+     * The method "getProcedureCell" retrieves the cell that holds the
+     * declaration of the given Procedure, creating an empty one if the
+     * Procedure has not been declared yet, so a call site can link to it.
      *
-     * @param name the name of the Procedure to be retrieved.
+     * @param name the name of the Procedure.
      *
-     * @return the List of this Procedure's parameter names.
+     * @return the cell of the Procedure in the global Environment.
      */
-    public List getParamNames(String name)
+    public ProcedureCell getProcedureCell(String name)
     {
-        return paramNames.get(name);
+        ProcedureCell cell = global.procedures.get(name);
+        if (cell == null)
+        {
+            cell = new ProcedureCell(global);
+            global.procedures.put(name, cell);
+        }
+        return cell;
     }
 }
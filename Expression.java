@@ -1,6 +1,10 @@
 package AST;
 
 import Environment.Environment;
+import VM.Emitter;
+
+import java.util.Map;
+import java.util.Set;
 
 /**
  * The Expression class represents any code that
@@ -18,4 +22,159 @@ public abstract class Expression
      * @param env the Environment in which to evaluate the Expression.
      */
     public abstract int eval(Environment env);
+
+    /**
+     * The method "optimize" returns an Expression that evaluates to the same
+     * value with less work: constant subexpressions are computed once and
+     * identities such as x+0 and x*1 are removed. By default nothing changes.
+     *
+     * @return the optimized Expression, which may be this one.
+     */
+    public Expression optimize()
+    {
+        return this;
+    }
+
+    /**
+     * The method "isPure" tells whether evaluating this Expression
+     * can have no effect besides producing its value, that is,
+     * whether it calls no procedure.
+     *
+     * @return true if this Expression is pure.
+     */
+    public boolean isPure()
+    {
+        return false;
+    }
+
+    /**
+     * The method "canTrap" tells whether evaluating this Expression might
+     * fail instead of producing a value, by dividing by zero or by looking
+     * up a variable that does not exist. An Expression that cannot trap and
+     * is pure may be dropped when its value is not needed. By default it might.
+     *
+     * @return true if evaluating this Expression might fail.
+     */
+    public boolean canTrap()
+    {
+        return true;
+    }
+
+    /**
+     * The method "isLocal" tells whether the value of this Expression
+     * depends on nothing but the frame it is evaluated in: it reads no
+     * variable outside the frame, and calls no procedure but the given ones.
+     * By default it does not.
+     *
+     * @param callable the names of the procedures it may call.
+     *
+     * @return true if this Expression is local.
+     */
+    public boolean isLocal(Set<String> callable)
+    {
+        return false;
+    }
+
+    /**
+     * The method "readNames" collects the names of the variables this
+     * Expression reads and of the procedures it calls.
+     *
+     * @param reads the set the names of the variables are added to.
+     * @param calls the set the names of the procedures are added to.
+     *
+     * @return false if the names cannot be known before this Expression is evaluated.
+     */
+    public boolean readNames(Set<String> reads, Set<String> calls)
+    {
+        return false;
+    }
+
+    /**
+     * The method "size" counts the nodes of this Expression, for the
+     * Inliner to weigh the cost of copying it. By default a node is one
+     * the Inliner cannot copy, and is counted as too large for any threshold.
+     *
+     * @return the number of nodes.
+     */
+    public int size()
+    {
+        return Inliner.TOO_LARGE;
+    }
+
+    /**
+     * The method "substitute" returns a copy of this Expression in which
+     * every variable the map names is replaced by the Expression it maps
+     * to. By default nothing changes.
+     *
+     * @param map the Expression that replaces each variable.
+     *
+     * @return the Expression, which may be this one.
+     */
+    public Expression substitute(Map<String, Expression> map)
+    {
+        return this;
+    }
+
+    /**
+     * The method "inline" returns this Expression with the calls the
+     * Inliner can replace replaced. By default nothing changes.
+     *
+     * @param inliner the Inliner.
+     *
+     * @return the Expression, which may be this one.
+     */
+    public Expression inline(Inliner inliner)
+    {
+        return this;
+    }
+
+    /**
+     * The method "sameAs" tells whether this Expression is written exactly
+     * like another, so that both have the same value in any Environment
+     * as long as they are pure.
+     *
+     * @param other the Expression to be compared.
+     *
+     * @return true if both Expressions have the same form.
+     */
+    public boolean sameAs(Expression other)
+    {
+        return false;
+    }
+
+    /**
+     * The method "resolve" returns this Expression with every variable it
+     * reads replaced by its address in the given Scope, where it has one.
+     * By default nothing changes.
+     *
+     * @param scope the Scope in which this Expression is evaluated.
+     *
+     * @return the resolved Expression, which may be this one.
+     */
+    public Expression resolve(Scope scope)
+    {
+        return this;
+    }
+
+    /**
+     * The method "compile" emits the Bytecode that pushes the value of this
+     * Expression. By default the Bytecode hands this Expression to the tree walker.
+     *
+     * @param e the Emitter that receives the code.
+     */
+    public void compile(Emitter e)
+    {
+        e.emitExpression(this);
+    }
+
+    /**
+     * The method "closure" turns this Expression into a Closure.Value, built
+     * once, that computes its value. By default the Value evaluates this Expression.
+     *
+     * @return the Value.
+     */
+    public Closure.Value closure()
+    {
+        return this::eval;
+    }
 }
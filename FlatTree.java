@@ -0,0 +1,502 @@
+package AST;
+
+import Environment.Environment;
+import Environment.ProcedureCell;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The FlatTree class is an array-backed encoding of a whole Program.
+ * Instead of one object per node, every node is an index into parallel arrays:
+ * opcode[n] says what node n is, operand[n] holds its constant or symbol index,
+ * and its children are the childCount[n] node indices found in children[]
+ * from childStart[n] on. Integer literals live in a shared constant pool and
+ * names in a shared symbol pool. A tree with millions of nodes is thus a handful
+ * of int arrays, and FlatTree.exec walks them with a switch on the opcode.
+ * FlatTree is an instance of a Statement, so it runs wherever a Program does.
+ *
+ * Node layout by opcode:
+ *   NUMBER     operand = constant index
+ *   VARIABLE   operand = symbol index
+ *   ADD..DIV   children = left, right
+ *   EQ..GE     children = left, right
+ *   CALL       operand = symbol index, children = arguments
+ *   WRITELN    children = expression
+ *   ASSIGN     operand = symbol index, children = expression
+ *   IF, WHILE  children = condition, statement
+ *   BLOCK      children = statements
+ *   STATEMENT  operand = index of a Statement that was already built
+ *   PROCEDURE  operand = symbol index, children = body, then one VARIABLE per parameter
+ *   PROGRAM    operand = 1 if there is a body, children = procedures, then the body
+ *
+ * @author Annabelle Ju
+ * @version 04/17/2020
+ */
+public class FlatTree extends Statement
+{
+    public static final int NUMBER = 0;
+    public static final int VARIABLE = 1;
+    public static final int ADD = 2;
+    public static final int SUB = 3;
+    public static final int MUL = 4;
+    public static final int DIV = 5;
+    public static final int EQ = 6;
+    public static final int NE = 7;
+    public static final int LT = 8;
+    public static final int GT = 9;
+    public static final int LE = 10;
+    public static final int GE = 11;
+    public static final int CALL = 12;
+    public static final int WRITELN = 13;
+    public static final int ASSIGN = 14;
+    public static final int IF = 15;
+    public static final int WHILE = 16;
+    public static final int BLOCK = 17;
+    public static final int PROCEDURE = 18;
+    public static final int PROGRAM = 19;
+    public static final int STATEMENT = 20;
+
+    private static final String[] OPERATORS = {
+        null, null, "+", "-", "*", "/", "=", "<>", "<", ">", "<=", ">="
+    };
+
+    private final int[] opcode;
+    private final int[] operand;
+    private final int[] childStart;
+    private final int[] childCount;
+    private final int[] children;
+    private final int[] constants;
+    private final String[] symbols;
+    private final Statement[] statements;
+    private final ProcedureCell[] sites;
+    private final int root;
+
+    /**
+     * Constructor for objects of class FlatTree.
+     *
+     * @param op     the opcode of every node.
+     * @param arg    the operand of every node.
+     * @param start  the index in kids of the first child of every node.
+     * @param count  the number of children of every node.
+     * @param kids   the child node indices.
+     * @param consts the constant pool.
+     * @param syms   the symbol pool.
+     * @param stmts  the Statements of the STATEMENT nodes.
+     * @param r      the index of the PROGRAM node.
+     */
+    public FlatTree(int[] op, int[] arg, int[] start, int[] count, int[] kids,
+                    int[] consts, String[] syms, Statement[] stmts, int r)
+    {
+        opcode = op;
+        operand = arg;
+        childStart = start;
+        childCount = count;
+        children = kids;
+        constants = consts;
+        symbols = syms;
+        statements = stmts;
+        sites = new ProcedureCell[syms.length];
+        root = r;
+    }
+
+    /**
+     * Retrieves the number of nodes in this FlatTree.
+     *
+     * @return the node count.
+     */
+    public int size()
+    {
+        return opcode.length;
+    }
+
+    /**
+     * Helper method: child finds the i-th child of a node.
+     */
+    private int child(int node, int i)
+    {
+        return children[childStart[node] + i];
+    }
+
+    /**
+     * Executes the procedure declarations and body of this Program,
+     * with exactly the behavior of Program.exec on the equivalent object tree.
+     *
+     * @param env the Environment in which to execute the Program.
+     */
+    @Override
+    public void exec(Environment env)
+    {
+        exec(root, env);
+    }
+
+    /**
+     * Executes a statement node.
+     *
+     * @param node the index of the node.
+     * @param env  the Environment in which to execute the Statement.
+     */
+    private void exec(int node, Environment env)
+    {
+        switch (opcode[node])
+        {
+            case WRITELN:
+            {
+                System.out.println(eval(child(node, 0), env));
+                break;
+            }
+            case ASSIGN:
+            {
+                env.setVariable(symbols[operand[node]], eval(child(node, 0), env));
+                break;
+            }
+            case IF:
+            {
+                if (eval(child(node, 0), env) > 0)
+                {
+                    exec(child(node, 1), env);
+                }
+                break;
+            }
+            case WHILE:
+            {
+                int cond = child(node, 0);
+                int body = child(node, 1);
+                while (eval(cond, env) > 0)
+                {
+                    exec(body, env);
+                }
+                break;
+            }
+            case BLOCK:
+            {
+                for (int i = 0; i < childCount[node]; i++)
+                {
+                    exec(child(node, i), env);
+                }
+                break;
+            }
+            case STATEMENT:
+            {
+                statements[operand[node]].exec(env);
+                break;
+            }
+            case PROCEDURE:
+            {
+                String name = symbols[operand[node]];
+                ArrayList<String> params = new ArrayList<>();
+                for (int i = 1; i < childCount[node]; i++)
+                {
+                    params.add(symbols[operand[child(node, i)]]);
+                }
+                new ProcedureDeclaration(name, new Body(child(node, 0)), params).exec(env);
+                break;
+            }
+            case PROGRAM:
+            {
+                for (int i = 0; i < childCount[node]; i++)
+                {
+                    exec(child(node, i), env);
+                }
+                break;
+            }
+            default:
+            {
+                throw new IllegalStateException("Node " + node + " is not a statement");
+            }
+        }
+    }
+
+    /**
+     * Evaluates an expression node.
+     *
+     * @param node the index of the node.
+     * @param env  the Environment in which to evaluate the Expression.
+     *
+     * @return the value of the expression.
+     */
+    private int eval(int node, Environment env)
+    {
+        switch (opcode[node])
+        {
+            case NUMBER: return constants[operand[node]];
+            case VARIABLE: return env.getVariable(symbols[operand[node]]);
+            case ADD: return eval(child(node, 0), env) + eval(child(node, 1), env);
+            case SUB: return eval(child(node, 0), env) - eval(child(node, 1), env);
+            case MUL: return eval(child(node, 0), env) * eval(child(node, 1), env);
+            case DIV: return eval(child(node, 0), env) / eval(child(node, 1), env);
+            case EQ: return eval(child(node, 0), env) == eval(child(node, 1), env) ? 1 : 0;
+            case NE: return eval(child(node, 0), env) != eval(child(node, 1), env) ? 1 : 0;
+            case LT: return eval(child(node, 0), env) < eval(child(node, 1), env) ? 1 : 0;
+            case GT: return eval(child(node, 0), env) > eval(child(node, 1), env) ? 1 : 0;
+            case LE: return eval(child(node, 0), env) <= eval(child(node, 1), env) ? 1 : 0;
+            case GE: return eval(child(node, 0), env) >= eval(child(node, 1), env) ? 1 : 0;
+            case CALL: return call(node, env);
+            default:
+                throw new IllegalStateException("Node " + node + " is not an expression");
+        }
+    }
+
+    /**
+     * Evaluates a CALL node the way ProcedureCall.eval does.
+     *
+     * @param node the index of the CALL node.
+     * @param env  the Environment of the caller.
+     *
+     * @return the value of the procedure's result variable.
+     */
+    private int call(int node, Environment env)
+    {
+        int[] arguments = new int[childCount[node]];
+        for (int i = 0; i < arguments.length; i++)
+        {
+            arguments[i] = eval(child(node, i), env);
+        }
+
+        int sym = operand[node];
+        ProcedureCell cell = sites[sym];
+        if (cell == null || cell.getOwner() != env.getGlobal())
+        {
+            cell = env.getProcedureCell(symbols[sym]);
+            sites[sym] = cell;
+        }
+        return cell.get().invoke(env, arguments);
+    }
+
+    /**
+     * Body is the Statement registered in the Environment for a procedure
+     * declared by a FlatTree; executing it executes the body node.
+     */
+    private class Body extends Statement
+    {
+        private final int node;
+
+        /**
+         * Constructor for objects of class Body.
+         *
+         * @param n the index of the body node.
+         */
+        Body(int n)
+        {
+            node = n;
+        }
+
+        /**
+         * Executes the body node of the procedure.
+         *
+         * @param env the Environment in which to execute the Statement.
+         */
+        @Override
+        public void exec(Environment env)
+        {
+            FlatTree.this.exec(node, env);
+        }
+    }
+
+    /**
+     * Builder is the TreeBuilder that lets the Parser emit a FlatTree directly.
+     * Nodes are appended to growable arrays as they are reported; a stack of
+     * node indices holds the nodes that do not have a parent yet.
+     */
+    public static class Builder implements TreeBuilder
+    {
+        private int[] opcode = new int[1024];
+        private int[] operand = new int[1024];
+        private int[] childStart = new int[1024];
+        private int[] childCount = new int[1024];
+        private int nodes;
+        private int[] children = new int[1024];
+        private int childTotal;
+        private int[] stack = new int[64];
+        private int depth;
+        private int[] constants = new int[64];
+        private HashMap<Integer, Integer> constantIndex = new HashMap<>();
+        private ArrayList<String> symbols = new ArrayList<>();
+        private HashMap<String, Integer> symbolIndex = new HashMap<>();
+        private ArrayList<Statement> statements = new ArrayList<>();
+        private FlatTree tree;
+
+        /**
+         * Retrieves the FlatTree completed by the last call to program.
+         * The Builder starts over after every Program, so it can be reused.
+         *
+         * @return the built FlatTree.
+         */
+        public FlatTree getTree()
+        {
+            return tree;
+        }
+
+        /**
+         * Helper method: node appends a node whose children are the given
+         * number of nodes on top of the stack, and pushes it.
+         */
+        private void node(int op, int arg, int childNodes)
+        {
+            if (nodes == opcode.length)
+            {
+                opcode = Arrays.copyOf(opcode, nodes * 2);
+                operand = Arrays.copyOf(operand, nodes * 2);
+                childStart = Arrays.copyOf(childStart, nodes * 2);
+                childCount = Arrays.copyOf(childCount, nodes * 2);
+            }
+            if (childTotal + childNodes > children.length)
+            {
+                children = Arrays.copyOf(children, Math.max(children.length * 2, childTotal + childNodes));
+            }
+
+            opcode[nodes] = op;
+            operand[nodes] = arg;
+            childStart[nodes] = childTotal;
+            childCount[nodes] = childNodes;
+            System.arraycopy(stack, depth - childNodes, children, childTotal, childNodes);
+            childTotal += childNodes;
+            depth -= childNodes;
+
+            if (depth == stack.length)
+            {
+                stack = Arrays.copyOf(stack, depth * 2);
+            }
+            stack[depth++] = nodes++;
+        }
+
+        /**
+         * Helper method: symbol finds the index of a name in the symbol pool.
+         */
+        private int symbol(String name)
+        {
+            Integer index = symbolIndex.get(name);
+            if (index == null)
+            {
+                index = symbols.size();
+                symbols.add(name);
+                symbolIndex.put(name, index);
+            }
+            return index;
+        }
+
+        @Override
+        public void number(int value)
+        {
+            Integer index = constantIndex.get(value);
+            if (index == null)
+            {
+                index = constantIndex.size();
+                if (index == constants.length)
+                {
+                    constants = Arrays.copyOf(constants, index * 2);
+                }
+                constants[index] = value;
+                constantIndex.put(value, index);
+            }
+            node(NUMBER, index, 0);
+        }
+
+        @Override
+        public void variable(String name)
+        {
+            node(VARIABLE, symbol(name), 0);
+        }
+
+        @Override
+        public void binOp(String op)
+        {
+            node(opcodeOf(op, ADD, DIV), 0, 2);
+        }
+
+        @Override
+        public void call(String name, int argCount)
+        {
+            node(CALL, symbol(name), argCount);
+        }
+
+        @Override
+        public void condition(String relop)
+        {
+            node(opcodeOf(relop, EQ, GE), 0, 2);
+        }
+
+        @Override
+        public void writeln()
+        {
+            node(WRITELN, 0, 1);
+        }
+
+        @Override
+        public void assignment(String name)
+        {
+            node(ASSIGN, symbol(name), 1);
+        }
+
+        @Override
+        public void ifStatement()
+        {
+            node(IF, 0, 2);
+        }
+
+        @Override
+        public void whileStatement()
+        {
+            node(WHILE, 0, 2);
+        }
+
+        @Override
+        public void block(int statementCount)
+        {
+            node(BLOCK, 0, statementCount);
+        }
+
+        @Override
+        public void statement(Statement body)
+        {
+            statements.add(body);
+            node(STATEMENT, statements.size() - 1, 0);
+        }
+
+        @Override
+        public void procedure(String name, List<String> params)
+        {
+            for (String param: params)
+            {
+                variable(param);
+            }
+            node(PROCEDURE, symbol(name), 1 + params.size());
+        }
+
+        @Override
+        public void program(int procedureCount, boolean hasBody)
+        {
+            node(PROGRAM, hasBody ? 1 : 0, procedureCount + (hasBody ? 1 : 0));
+            int rootNode = stack[--depth];
+            tree = new FlatTree(Arrays.copyOf(opcode, nodes), Arrays.copyOf(operand, nodes),
+                    Arrays.copyOf(childStart, nodes), Arrays.copyOf(childCount, nodes),
+                    Arrays.copyOf(children, childTotal), Arrays.copyOf(constants, constantIndex.size()),
+                    symbols.toArray(new String[0]), statements.toArray(new Statement[0]), rootNode);
+
+            nodes = 0;
+            childTotal = 0;
+            constantIndex.clear();
+            symbols.clear();
+            symbolIndex.clear();
+            statements.clear();
+        }
+
+        /**
+         * Helper method: opcodeOf finds the opcode of an operator among
+         * the opcodes from first to last.
+         */
+        private static int opcodeOf(String op, int first, int last)
+        {
+            for (int code = first; code <= last; code++)
+            {
+                if (OPERATORS[code].equals(op))
+                {
+                    return code;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operator " + op);
+        }
+    }
+}
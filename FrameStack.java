@@ -0,0 +1,95 @@
+package Environment;
+
+import java.util.Arrays;
+
+/**
+ * The FrameStack class holds the frames of the calls in progress to
+ * resolved procedures. Their values lie next to one another in a single
+ * int array, each frame starting where the one below it ends, and the
+ * Environment objects that describe them are kept for reuse, so pushing a
+ * frame is a few writes and popping one frees nothing for the garbage
+ * collector. Calls end in the reverse order they began, so a frame is
+ * always popped from the top.
+ *
+ * @author Annabelle Ju
+ * @version 04/17/2020
+ */
+class FrameStack
+{
+    private int[] data;
+    private int top;
+    private Environment[] frames;
+    private int[] bases;
+    private int depth;
+
+    /**
+     * Constructor for objects of class FrameStack.
+     */
+    FrameStack()
+    {
+        data = new int[1024];
+        frames = new Environment[64];
+        bases = new int[64];
+    }
+
+    /**
+     * Pushes the frame of a call, with every variable set to 0.
+     *
+     * @param caller the Environment of the caller.
+     * @param layout the slot of every variable of the procedure.
+     *
+     * @return the frame.
+     */
+    Environment push(Environment caller, SlotMap layout)
+    {
+        int size = Math.max(layout.size(), 1);
+        if (top + size > data.length)
+        {
+            grow(top + size);
+        }
+        if (depth == frames.length)
+        {
+            frames = Arrays.copyOf(frames, depth * 2);
+            bases = Arrays.copyOf(bases, depth * 2);
+        }
+        Environment frame = frames[depth];
+        if (frame == null)
+        {
+            frame = new Environment(this);
+            frames[depth] = frame;
+        }
+        bases[depth++] = top;
+        Arrays.fill(data, top, top + size, 0);
+        frame.reset(caller, layout, data, top, size);
+        top += size;
+        return frame;
+    }
+
+    /**
+     * Pops the frame on top of the stack.
+     *
+     * @param frame the frame, which must be the one on top.
+     */
+    void pop(Environment frame)
+    {
+        if (depth == 0 || frames[depth - 1] != frame)
+        {
+            throw new IllegalStateException("Frame popped out of order");
+        }
+        top = bases[--depth];
+        frame.release();
+    }
+
+    /**
+     * Helper method: grow replaces the value array by a larger one, and
+     * hands the new array to every frame that still lives in it.
+     */
+    private void grow(int needed)
+    {
+        data = Arrays.copyOf(data, Math.max(needed, data.length * 2));
+        for (int i = 0; i < depth; i++)
+        {
+            frames[i].moved(data);
+        }
+    }
+}
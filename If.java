@@ -1,6 +1,11 @@
 package AST;
 
 import Environment.Environment;
+import VM.Emitter;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * The If class represents a conditional IF Statement
@@ -36,9 +41,173 @@ public class If extends Statement
     @Override
     public void exec(Environment env)
     {
-        if (cond.eval(env) > 0)
+        if (cond.test(env))
         {
             state.exec(env);
         }
     }
+
+    /**
+     * Optimizes the Condition and Statement of this If. An If whose
+     * Condition is always false is removed, and one whose Condition is
+     * always true is replaced by its Statement.
+     *
+     * @return the optimized Statement.
+     */
+    @Override
+    public Statement optimize()
+    {
+        Expression c = cond.optimize();
+        if (c instanceof Number)
+        {
+            if (((Number) c).getValue() > 0)
+            {
+                return state.optimize();
+            }
+            return new Block(new ArrayList<Statement>());
+        }
+        return new If((Condition) c, state.optimize());
+    }
+
+    /**
+     * Resolves the Condition and Statement of this If.
+     *
+     * @param scope the Scope in which this Statement is executed.
+     *
+     * @return the resolved If.
+     */
+    @Override
+    public Statement resolve(Scope scope)
+    {
+        Condition c = cond.resolve(scope);
+        Set<String> saved = scope.save();
+        Statement s = state.resolve(scope);
+        scope.restore(saved);
+        return new If(c, s);
+    }
+
+    /**
+     * Collects the variables assigned by the Statement of this If.
+     *
+     * @param names the set the names are added to.
+     *
+     * @return false if the names cannot be known.
+     */
+    @Override
+    public boolean assignedNames(Set<String> names)
+    {
+        return state.assignedNames(names);
+    }
+
+    /**
+     * Collects the names read by the Condition and the Statement of this If.
+     *
+     * @param reads the set the names of the variables are added to.
+     * @param calls the set the names of the procedures are added to.
+     *
+     * @return false if the names cannot be known.
+     */
+    @Override
+    public boolean readNames(Set<String> reads, Set<String> calls)
+    {
+        return cond.readNames(reads, calls) & state.readNames(reads, calls);
+    }
+
+    /**
+     * An If is local if its Condition and its Statement are.
+     *
+     * @param callable the names of the procedures it may call.
+     *
+     * @return true if both are local.
+     */
+    @Override
+    public boolean isLocal(Set<String> callable)
+    {
+        return cond.isLocal(callable) && state.isLocal(callable);
+    }
+
+    /**
+     * Counts this If and the nodes of its Condition and Statement.
+     *
+     * @return the number of nodes.
+     */
+    @Override
+    public int size()
+    {
+        return 1 + cond.size() + state.size();
+    }
+
+    /**
+     * Substitutes the variables of the Condition and the Statement.
+     *
+     * @param map the Expression that replaces each variable.
+     *
+     * @return the new If.
+     */
+    @Override
+    public Statement substitute(Map<String, Expression> map)
+    {
+        return new If(cond.substitute(map), state.substitute(map));
+    }
+
+    /**
+     * Inlines the calls in the Condition and the Statement.
+     *
+     * @param inliner the Inliner.
+     *
+     * @return the new If.
+     */
+    @Override
+    public Statement inline(Inliner inliner)
+    {
+        return new If(cond.inline(inliner), state.inline(inliner));
+    }
+
+    /**
+     * Emits a branch past the Statement unless the Condition holds, then the Statement.
+     *
+     * @param e the Emitter that receives the code.
+     */
+    @Override
+    public void compile(Emitter e)
+    {
+        int end = e.newLabel();
+        cond.compileBranch(e, end, false);
+        state.compile(e);
+        e.placeLabel(end);
+    }
+
+    /**
+     * Builds the Action that carries out the Statement if the Test holds.
+     *
+     * @return the Action.
+     */
+    @Override
+    public Closure.Action closure()
+    {
+        Closure.Test t = cond.testClosure();
+        Closure.Action a = state.closure();
+        return env ->
+        {
+            if (t.test(env))
+            {
+                a.exec(env);
+            }
+        };
+    }
+
+    /**
+     * Looks for tail calls in the Statement of this If.
+     *
+     * @param procedure the name of the Procedure whose Statement this is.
+     * @param arity     the number of its parameters.
+     *
+     * @return the If, which may be this one.
+     */
+    @Override
+    public Statement tailCalls(String procedure, int arity)
+    {
+        Statement tail = state.tailCalls(procedure, arity);
+        return tail == state ? this : new If(cond, tail);
+    }
 }
@@ -0,0 +1,260 @@
+package AST;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The Inliner class replaces calls of small procedures by their bodies.
+ * A procedure can be inlined if its Statement has no more nodes than the
+ * threshold, it does not call itself, and every variable it assigns other
+ * than its name and its parameters is its own, as the Scope would resolve
+ * it: no other frame ever sees it, so it can be renamed. The calls in the
+ * body are inlined first, and the body is used only if no call is left in
+ * it: any procedure it still called could read the variables of its frame
+ * by name, which inlining renames or removes.
+ * A call inside an Expression is replaced by the expression the procedure
+ * assigns to its result, with each parameter replaced by its argument,
+ * when that is all the procedure does and the arguments call no procedure,
+ * so that neither the order nor the number of their evaluations matters.
+ * At most one argument may fail, and only if its parameter is read and
+ * nothing else in the expression can fail, so that the call fails exactly
+ * when the expression does; otherwise the call is kept, or becomes a
+ * Block, which evaluates every argument first.
+ * A call whose value is assigned or written becomes a Block instead: the
+ * arguments are assigned to fresh variables standing for the parameters,
+ * the result and the local variables of the procedure are set to 0 under
+ * fresh names too, the body runs with its variables renamed, and the
+ * result is used. The fresh names contain a '$', which no identifier
+ * does, so they cannot clash.
+ *
+ * @author Annabelle Ju
+ * @version 04/17/2020
+ */
+public class Inliner
+{
+    /** The number of nodes a procedure may have and still be inlined, unless another is given. */
+    public static final int DEFAULT_THRESHOLD = 32;
+
+    /** The size of a node the Inliner does not know how to copy, too large for any threshold. */
+    static final int TOO_LARGE = 1 << 20;
+
+    private final Scope scope;
+    private final int threshold;
+    private final HashMap<String, ProcedureDeclaration> candidates;
+    private final HashSet<String> expanding;
+    private final HashSet<String> called;
+    private int sites;
+
+    /**
+     * Constructor for objects of class Inliner.
+     *
+     * @param s     the Scope of the Program, which tells global variables from local ones.
+     * @param limit the number of nodes a procedure may have and still be inlined.
+     */
+    Inliner(Scope s, int limit)
+    {
+        scope = s;
+        threshold = limit;
+        candidates = new HashMap<>();
+        expanding = new HashSet<>();
+        called = new HashSet<>();
+    }
+
+    /**
+     * Offers the procedures of a Program for inlining; those small enough
+     * to be inlined become candidates. A name declared twice never does.
+     *
+     * @param procedures the declarations of the Program.
+     */
+    void offer(List<ProcedureDeclaration> procedures)
+    {
+        HashSet<String> twice = new HashSet<>();
+        for (ProcedureDeclaration dec: procedures)
+        {
+            String name = dec.getName();
+            if (candidates.containsKey(name) || twice.contains(name))
+            {
+                candidates.remove(name);
+                twice.add(name);
+            }
+            else if (dec.getContents().size() <= threshold && !calls(dec.getContents(), name)
+                     && dec.ownsVariables(scope))
+            {
+                candidates.put(name, dec);
+            }
+        }
+    }
+
+    /**
+     * Tells whether there is any procedure to inline.
+     *
+     * @return true if there is a candidate.
+     */
+    boolean isEmpty()
+    {
+        return candidates.isEmpty();
+    }
+
+    /**
+     * Helper method: calls tells whether a Statement calls the named
+     * procedure, or any procedure if the name is null, by running an
+     * Inliner with no candidates over it, which notes every call it is shown.
+     */
+    private boolean calls(Statement s, String name)
+    {
+        Inliner probe = new Inliner(scope, threshold);
+        s.inline(probe);
+        return name == null ? !probe.called.isEmpty() : probe.called.contains(name);
+    }
+
+    /**
+     * Replaces a call inside an Expression by the expression its procedure
+     * computes, if it can.
+     *
+     * @param call the call, whose arguments have been inlined already.
+     *
+     * @return the Expression to use instead, which may be the call.
+     */
+    Expression call(ProcedureCall call)
+    {
+        String name = call.getName();
+        called.add(name);
+        ProcedureDeclaration dec = candidates.get(name);
+        if (dec == null || expanding.contains(name) || call.getArguments().size() != dec.getParameters().size())
+        {
+            return call;
+        }
+        Statement body = dec.getContents();
+        while (body instanceof Block && ((Block) body).getStatements().size() == 1)
+        {
+            body = ((Block) body).getStatements().get(0);
+        }
+        if (!(body instanceof Assignment) || !((Assignment) body).getVariable().equals(name))
+        {
+            return call;
+        }
+        expanding.add(name);
+        Expression result = ((Assignment) body).getExpression().inline(this);
+        expanding.remove(name);
+        if (!result.isPure())
+        {
+            return call;
+        }
+
+        HashMap<String, Expression> map = new HashMap<>();
+        map.put(name, new Number(0));
+        String trapping = null;
+        for (int i = 0; i < call.getArguments().size(); i++)
+        {
+            Expression arg = call.getArguments().get(i);
+            if (!arg.isPure() || (arg.canTrap() && trapping != null))
+            {
+                return call;
+            }
+            if (arg.canTrap())
+            {
+                trapping = dec.getParameters().get(i);
+            }
+            map.put(dec.getParameters().get(i), arg);
+        }
+        if (trapping != null && !traps(result, map, trapping))
+        {
+            return call;
+        }
+        Expression inlined = result.substitute(map);
+        return inlined.size() > threshold ? call : inlined;
+    }
+
+    /**
+     * Helper method: traps tells whether the expression a procedure computes
+     * still fails whenever its one argument that can fail does, and in no
+     * other way: the parameter is read, so the argument is evaluated, and
+     * nothing else in the expression can fail before it, once the other
+     * parameters are replaced by their arguments.
+     */
+    private static boolean traps(Expression result, Map<String, Expression> map, String parameter)
+    {
+        HashSet<String> reads = new HashSet<>();
+        if (!result.readNames(reads, new HashSet<>()) || !reads.contains(parameter))
+        {
+            return false;
+        }
+        HashMap<String, Expression> safe = new HashMap<>(map);
+        safe.put(parameter, new Number(1));
+        return !result.substitute(safe).canTrap();
+    }
+
+    /**
+     * Replaces a call whose value a Statement uses by a Block that runs the
+     * body of its procedure with the variables renamed, then uses the result.
+     *
+     * @param call the call, whose arguments have been inlined already.
+     * @param use  builds the Statement that uses the value of an Expression.
+     *
+     * @return the Block, or null if the call cannot be inlined.
+     */
+    Statement expand(ProcedureCall call, Function<Expression, Statement> use)
+    {
+        String name = call.getName();
+        ProcedureDeclaration dec = candidates.get(name);
+        List<String> parameters = dec == null ? null : dec.getParameters();
+        if (dec == null || expanding.contains(name) || call.getArguments().size() != parameters.size())
+        {
+            return null;
+        }
+        expanding.add(name);
+        Statement body = dec.getContents().inline(this);
+        expanding.remove(name);
+        if (calls(body, null))
+        {
+            return null;
+        }
+
+        String result = name + "$" + (++sites);
+        Map<String, Expression> map = new HashMap<>();
+        map.put(name, new Variable(result));
+        ArrayList<Statement> list = new ArrayList<>();
+        for (int i = 0; i < parameters.size(); i++)
+        {
+            String fresh = result + "$" + parameters.get(i);
+            map.put(parameters.get(i), new Variable(fresh));
+            list.add(new Assignment(fresh, call.getArguments().get(i)));
+        }
+        list.add(new Assignment(result, new Number(0)));
+        LinkedHashSet<String> assigned = new LinkedHashSet<>();
+        dec.getContents().assignedNames(assigned);
+        for (String var: assigned)
+        {
+            if (!map.containsKey(var))
+            {
+                String fresh = result + "$" + var;
+                map.put(var, new Variable(fresh));
+                list.add(new Assignment(fresh, new Number(0)));
+            }
+        }
+
+        list.add(body.substitute(map));
+        list.add(use.apply(new Variable(result)));
+        return new Block(list);
+    }
+
+    /**
+     * Gives the name an Assignment to a variable takes once the variables
+     * are renamed by the given map.
+     *
+     * @param var the name of the variable.
+     * @param map the Expression that replaces each renamed variable.
+     *
+     * @return the new name.
+     */
+    static String rename(String var, Map<String, Expression> map)
+    {
+        Expression e = map.get(var);
+        return e instanceof Variable ? ((Variable) e).getName() : var;
+    }
+}
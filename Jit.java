@@ -0,0 +1,754 @@
+package VM;
+
+import AST.Expression;
+import AST.Statement;
+import Environment.Environment;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The Jit class translates the Bytecode of a Program into a JVM class,
+ * which is loaded as a hidden class, so that HotSpot compiles it to
+ * machine code like any other Java method. The body of the Program and the
+ * body of each procedure it declares become static methods whose operand
+ * stack is the JVM operand stack; variables stay in the same Environment
+ * frames the other engines use, with the frame arrays held in JVM locals,
+ * so generated code, the VirtualMachine and the tree walker call each other
+ * freely. A call to a procedure of the same Program that is still the one
+ * declared under its name goes straight to the static method of its body.
+ *
+ * @author Annabelle Ju
+ * @version 04/17/2020
+ */
+public class Jit
+{
+    private static final String CLASS = "VM/JitProgram";
+    private static final String ENV = "Environment/Environment";
+    private static final String ENV_DESC = "LEnvironment/Environment;";
+    private static final String PROC = "AST/ProcedureDeclaration";
+    private static final String BODY_DESC = "(" + ENV_DESC + ")V";
+    private static final String PROC_DESC = "(" + ENV_DESC + "[I)I";
+
+    /** JVM opcodes. */
+    private static final int ACONST_NULL = 0x01;
+    private static final int ILOAD = 0x15;
+    private static final int ALOAD = 0x19;
+    private static final int IALOAD = 0x2E;
+    private static final int AALOAD = 0x32;
+    private static final int ISTORE = 0x36;
+    private static final int ASTORE = 0x3A;
+    private static final int IASTORE = 0x4F;
+    private static final int DUP = 0x59;
+    private static final int IADD = 0x60;
+    private static final int ISUB = 0x64;
+    private static final int IMUL = 0x68;
+    private static final int IDIV = 0x6C;
+    private static final int IFEQ = 0x99;
+    private static final int IFNE = 0x9A;
+    private static final int IFGT = 0x9D;
+    private static final int IFLE = 0x9E;
+    private static final int IF_ACMPNE = 0xA6;
+    private static final int GOTO = 0xA7;
+    private static final int IRETURN = 0xAC;
+    private static final int RETURN = 0xB1;
+    private static final int GETSTATIC = 0xB2;
+    private static final int PUTSTATIC = 0xB3;
+    private static final int INVOKEVIRTUAL = 0xB6;
+    private static final int INVOKESPECIAL = 0xB7;
+    private static final int INVOKESTATIC = 0xB8;
+    private static final int NEWARRAY = 0xBC;
+    private static final int CHECKCAST = 0xC0;
+    private static final int T_INT = 10;
+
+    /** if_icmp opcodes taken when EQ .. GE hold, and when they do not. */
+    private static final int[] IF_CMP = {0x9F, 0xA0, 0xA1, 0xA3, 0xA4, 0xA2};
+    private static final int[] IF_NOT_CMP = {0xA0, 0x9F, 0xA2, 0xA4, 0xA3, 0xA1};
+
+    /**
+     * Local variables of a body method: the frame, its values, the global
+     * values, a scratch int, a callee and the frame pushed for it, the base
+     * of the frame, then the arguments of a call.
+     */
+    private static final int FRAME = 0;
+    private static final int LOCALS = 1;
+    private static final int GLOBALS = 2;
+    private static final int SCRATCH = 3;
+    private static final int CALLEE = 4;
+    private static final int CALLED = 5;
+    private static final int BASE = 6;
+    private static final int ARGS = 7;
+
+    private ClassWriter writer;
+    private ArrayList<Object> data;
+    private HashMap<String, Integer> declared;
+
+    /**
+     * Constructor for objects of class Jit.
+     */
+    private Jit()
+    {
+        writer = new ClassWriter(CLASS, "java/lang/Object", "VM/JitCode");
+        writer.addField(ClassWriter.ACC_PRIVATE | ClassWriter.ACC_STATIC, "data", "[Ljava/lang/Object;");
+        data = new ArrayList<>();
+        declared = new HashMap<>();
+    }
+
+    /**
+     * Compiles the Bytecode of a Program into a hidden class and loads it.
+     *
+     * @param program the Bytecode of the Program.
+     *
+     * @return the loaded code, or null if the Program is too large for
+     *         the limits of a class file.
+     */
+    public static JitCode compile(Bytecode program)
+    {
+        Jit jit = new Jit();
+        CompiledProcedure[] procs = program.getProcedures();
+        for (int i = 0; i < procs.length; i++)
+        {
+            jit.data.add(null);
+            if (procs[i].getMemo() == null)
+            {
+                jit.declared.put(procs[i].getName(), i);
+            }
+        }
+        byte[] bytes;
+        try
+        {
+            jit.body("main", program);
+            for (int i = 0; i < procs.length; i++)
+            {
+                jit.body("body" + i, procs[i].getBody());
+            }
+            jit.members(procs.length);
+            bytes = jit.writer.toByteArray();
+        }
+        catch (ClassLimitException e)
+        {
+            return null;
+        }
+
+        JitCode code;
+        try
+        {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            code = (JitCode) lookup.findConstructor(lookup.lookupClass(),
+                                                    MethodType.methodType(void.class)).invoke();
+        }
+        catch (Throwable t)
+        {
+            throw new IllegalStateException("Generated class failed to load", t);
+        }
+        Object[] linked = jit.data.toArray();
+        for (int i = 0; i < procs.length; i++)
+        {
+            linked[i] = new JitProcedure(procs[i], code, i);
+        }
+        code.link(linked);
+        return code;
+    }
+
+    /**
+     * Helper method: dataRef pushes an entry of the data array, cast to the given class.
+     */
+    private void dataRef(ClassWriter.Code c, int index, String type)
+    {
+        c.ref(GETSTATIC, writer.field(CLASS, "data", "[Ljava/lang/Object;"));
+        c.push(index);
+        c.op(AALOAD);
+        c.ref(CHECKCAST, writer.classRef(type));
+    }
+
+    /**
+     * Helper method: fetch loads the value arrays of the frame and of the
+     * global frame, and the base of the frame, into their JVM locals.
+     */
+    private void fetch(ClassWriter.Code c)
+    {
+        c.op(ALOAD, FRAME);
+        c.ref(INVOKEVIRTUAL, writer.method(ENV, "getValues", "()[I"));
+        c.op(ASTORE, LOCALS);
+        c.op(ALOAD, FRAME);
+        c.ref(INVOKEVIRTUAL, writer.method(ENV, "getBase", "()I"));
+        c.op(ISTORE, BASE);
+        c.op(ALOAD, FRAME);
+        c.ref(INVOKEVIRTUAL, writer.method(ENV, "getGlobal", "()" + ENV_DESC));
+        c.ref(INVOKEVIRTUAL, writer.method(ENV, "getValues", "()[I"));
+        c.op(ASTORE, GLOBALS);
+    }
+
+    /**
+     * Helper method: arguments builds the int array of a call's arguments
+     * from the JVM locals they were popped into.
+     */
+    private void arguments(ClassWriter.Code c, int count)
+    {
+        c.push(count);
+        c.op(NEWARRAY, T_INT);
+        for (int i = 0; i < count; i++)
+        {
+            c.op(DUP);
+            c.push(i);
+            c.op(ILOAD, ARGS + i);
+            c.op(IASTORE);
+        }
+    }
+
+    /**
+     * Helper method: slot pushes the index in the local value array of a
+     * slot of the frame, which is the slot past the base of the frame.
+     */
+    private void slot(ClassWriter.Code c, int slot)
+    {
+        c.op(ILOAD, BASE);
+        if (slot != 0)
+        {
+            c.push(slot);
+            c.op(IADD);
+        }
+    }
+
+    /**
+     * Helper method: load pushes a variable of the current frame or of the global frame.
+     */
+    private void load(ClassWriter.Code c, boolean local, int slot)
+    {
+        c.op(ALOAD, local ? LOCALS : GLOBALS);
+        if (local)
+        {
+            slot(c, slot);
+        }
+        else
+        {
+            c.push(slot);
+        }
+        c.op(IALOAD);
+    }
+
+    /**
+     * Helper method: operands gives the number of operands that follow an opcode.
+     */
+    private static int operands(int op)
+    {
+        if (op >= Bytecode.JUMP_UNLESS_EQ_LOCAL_CONST && op <= Bytecode.JUMP_UNLESS_GE_GLOBAL_CONST)
+        {
+            return 3;
+        }
+        if (op == Bytecode.CALL || op == Bytecode.TAIL_CALL || op == Bytecode.INC_LOCAL || op == Bytecode.INC_GLOBAL
+            || (op >= Bytecode.JUMP_UNLESS_EQ_CONST && op <= Bytecode.JUMP_UNLESS_GE_CONST)
+            || (op >= Bytecode.LOCAL_ADD_CONST && op <= Bytecode.GLOBAL_DIV_CONST))
+        {
+            return 2;
+        }
+        if (op == Bytecode.HALT || op == Bytecode.PRINT || (op >= Bytecode.ADD && op <= Bytecode.GE))
+        {
+            return 0;
+        }
+        return 1;
+    }
+
+    /**
+     * Helper method: isJump tells whether an opcode branches to its last operand.
+     */
+    private static boolean isJump(int op)
+    {
+        return (op >= Bytecode.JUMP && op <= Bytecode.JUMP_UNLESS_GE)
+            || (op >= Bytecode.JUMP_UNLESS_EQ_CONST && op <= Bytecode.JUMP_IF_TRUE)
+            || (op >= Bytecode.JUMP_UNLESS_EQ_LOCAL_CONST && op <= Bytecode.JUMP_UNLESS_GE_GLOBAL_CONST);
+    }
+
+    /**
+     * Translates Bytecode into a static method that takes the frame it runs in.
+     * Every jump of the Bytecode lands between statements, so the operand
+     * stack is empty at each of its targets.
+     *
+     * @param name     the name of the method.
+     * @param bytecode the Bytecode.
+     *
+     * @throws ClassLimitException if a call has more arguments than the method has local variables for.
+     */
+    private void body(String name, Bytecode bytecode)
+    {
+        int[] code = bytecode.getCode();
+        String[] names = bytecode.getNames();
+        int self = data.size();
+        data.add(bytecode);
+        int statements = data.size();
+        for (Statement s : bytecode.getStatements())
+        {
+            data.add(s);
+        }
+        int expressions = data.size();
+        for (Expression e : bytecode.getExpressions())
+        {
+            data.add(e);
+        }
+
+        int maxArgs = 0;
+        boolean[] target = new boolean[code.length + 1];
+        for (int pc = 0; pc < code.length; pc += 1 + operands(code[pc]))
+        {
+            if (code[pc] == Bytecode.CALL)
+            {
+                maxArgs = Math.max(maxArgs, code[pc + 2]);
+            }
+            else if (code[pc] == Bytecode.TAIL_CALL)
+            {
+                maxArgs = Math.max(maxArgs, code[pc + 2]);
+                target[0] = true;
+            }
+            else if (isJump(code[pc]))
+            {
+                target[code[pc + operands(code[pc])]] = true;
+            }
+        }
+        if (ARGS + maxArgs > 255)
+        {
+            throw new ClassLimitException("Too many arguments");
+        }
+
+        ClassWriter.Code c = writer.addMethod(ClassWriter.ACC_PRIVATE | ClassWriter.ACC_STATIC, name, BODY_DESC,
+                                              bytecode.getMaxStack() + 8, ARGS + maxArgs);
+        int[] types = new int[ARGS + maxArgs];
+        types[FRAME] = writer.object(ENV);
+        types[LOCALS] = writer.object("[I");
+        types[GLOBALS] = writer.object("[I");
+        types[SCRATCH] = ClassWriter.INT;
+        types[CALLEE] = writer.object(PROC);
+        types[CALLED] = writer.object(ENV);
+        types[BASE] = ClassWriter.INT;
+        for (int i = 0; i < maxArgs; i++)
+        {
+            types[ARGS + i] = ClassWriter.INT;
+        }
+        c.setLocals(types);
+
+        fetch(c);
+        c.push(0);
+        c.op(ISTORE, SCRATCH);
+        c.op(ACONST_NULL);
+        c.op(ASTORE, CALLEE);
+        c.op(ACONST_NULL);
+        c.op(ASTORE, CALLED);
+        for (int i = 0; i < maxArgs; i++)
+        {
+            c.push(0);
+            c.op(ISTORE, ARGS + i);
+        }
+
+        int[] labels = new int[code.length + 1];
+        for (int pc = 0; pc <= code.length; pc++)
+        {
+            labels[pc] = target[pc] ? c.newLabel() : -1;
+        }
+
+        int depth = 0;
+        boolean reachable = true;
+        for (int pc = 0; pc < code.length; pc += 1 + operands(code[pc]))
+        {
+            if (!reachable)
+            {
+                depth = 0;
+                c.mark(0);
+            }
+            if (target[pc])
+            {
+                c.place(labels[pc], depth);
+            }
+            reachable = true;
+            int op = code[pc];
+            int arg = operands(op) > 0 ? code[pc + 1] : 0;
+            switch (op)
+            {
+                case Bytecode.HALT:
+                    c.op(RETURN);
+                    reachable = false;
+                    break;
+                case Bytecode.PUSH:
+                    c.push(arg);
+                    break;
+                case Bytecode.LOAD_LOCAL:
+                case Bytecode.LOAD_GLOBAL:
+                    load(c, op == Bytecode.LOAD_LOCAL, arg);
+                    break;
+                case Bytecode.LOAD_NAME:
+                    c.op(ALOAD, FRAME);
+                    c.ldc(writer.string(names[arg]));
+                    c.ref(INVOKEVIRTUAL, writer.method(ENV, "getVariable", "(Ljava/lang/String;)I"));
+                    break;
+                case Bytecode.STORE_LOCAL:
+                    c.op(ISTORE, SCRATCH);
+                    c.op(ALOAD, LOCALS);
+                    slot(c, arg);
+                    c.op(ILOAD, SCRATCH);
+                    c.op(IASTORE);
+                    break;
+                case Bytecode.STORE_GLOBAL:
+                    c.op(ISTORE, SCRATCH);
+                    c.op(ALOAD, GLOBALS);
+                    c.push(arg);
+                    c.op(ILOAD, SCRATCH);
+                    c.op(IASTORE);
+                    break;
+                case Bytecode.ADD_TO_LOCAL:
+                    load(c, true, arg);
+                    c.op(IADD);
+                    c.op(ISTORE, SCRATCH);
+                    c.op(ALOAD, LOCALS);
+                    slot(c, arg);
+                    c.op(ILOAD, SCRATCH);
+                    c.op(IASTORE);
+                    break;
+                case Bytecode.ADD_TO_GLOBAL:
+                    load(c, false, arg);
+                    c.op(IADD);
+                    c.op(ISTORE, SCRATCH);
+                    c.op(ALOAD, GLOBALS);
+                    c.push(arg);
+                    c.op(ILOAD, SCRATCH);
+                    c.op(IASTORE);
+                    break;
+                case Bytecode.STORE_NAME:
+                    c.op(ISTORE, SCRATCH);
+                    c.op(ALOAD, FRAME);
+                    c.ldc(writer.string(names[arg]));
+                    c.op(ILOAD, SCRATCH);
+                    c.ref(INVOKEVIRTUAL, writer.method(ENV, "setVariable", "(Ljava/lang/String;I)V"));
+                    fetch(c);
+                    break;
+                case Bytecode.ADD:
+                case Bytecode.SUB:
+                case Bytecode.MUL:
+                case Bytecode.DIV:
+                    c.op(IADD + 4 * (op - Bytecode.ADD));
+                    break;
+                case Bytecode.ADD_CONST:
+                case Bytecode.SUB_CONST:
+                case Bytecode.MUL_CONST:
+                case Bytecode.DIV_CONST:
+                    c.push(arg);
+                    c.op(IADD + 4 * (op - Bytecode.ADD_CONST));
+                    break;
+                case Bytecode.ADD_LOCAL:
+                case Bytecode.SUB_LOCAL:
+                case Bytecode.MUL_LOCAL:
+                case Bytecode.DIV_LOCAL:
+                    load(c, true, arg);
+                    c.op(IADD + 4 * (op - Bytecode.ADD_LOCAL));
+                    break;
+                case Bytecode.ADD_GLOBAL:
+                case Bytecode.SUB_GLOBAL:
+                case Bytecode.MUL_GLOBAL:
+                case Bytecode.DIV_GLOBAL:
+                    load(c, false, arg);
+                    c.op(IADD + 4 * (op - Bytecode.ADD_GLOBAL));
+                    break;
+                case Bytecode.LOCAL_ADD_CONST:
+                case Bytecode.LOCAL_SUB_CONST:
+                case Bytecode.LOCAL_MUL_CONST:
+                case Bytecode.LOCAL_DIV_CONST:
+                    load(c, true, arg);
+                    c.push(code[pc + 2]);
+                    c.op(IADD + 4 * (op - Bytecode.LOCAL_ADD_CONST));
+                    break;
+                case Bytecode.GLOBAL_ADD_CONST:
+                case Bytecode.GLOBAL_SUB_CONST:
+                case Bytecode.GLOBAL_MUL_CONST:
+                case Bytecode.GLOBAL_DIV_CONST:
+                    load(c, false, arg);
+                    c.push(code[pc + 2]);
+                    c.op(IADD + 4 * (op - Bytecode.GLOBAL_ADD_CONST));
+                    break;
+                case Bytecode.INC_LOCAL:
+                    c.op(ALOAD, LOCALS);
+                    slot(c, arg);
+                    load(c, true, arg);
+                    c.push(code[pc + 2]);
+                    c.op(IADD);
+                    c.op(IASTORE);
+                    break;
+                case Bytecode.INC_GLOBAL:
+                    c.op(ALOAD, GLOBALS);
+                    c.push(arg);
+                    load(c, false, arg);
+                    c.push(code[pc + 2]);
+                    c.op(IADD);
+                    c.op(IASTORE);
+                    break;
+                case Bytecode.EQ:
+                case Bytecode.NE:
+                case Bytecode.LT:
+                case Bytecode.GT:
+                case Bytecode.LE:
+                case Bytecode.GE:
+                {
+                    int holds = c.newLabel();
+                    int done = c.newLabel();
+                    c.jump(IF_CMP[op - Bytecode.EQ], holds);
+                    c.push(0);
+                    c.jump(GOTO, done);
+                    c.place(holds, depth - 2);
+                    c.push(1);
+                    c.place(done, depth - 1);
+                    break;
+                }
+                case Bytecode.JUMP:
+                    c.jump(GOTO, labels[arg]);
+                    reachable = false;
+                    break;
+                case Bytecode.JUMP_IF_FALSE:
+                    c.jump(IFLE, labels[arg]);
+                    break;
+                case Bytecode.JUMP_IF_TRUE:
+                    c.jump(IFGT, labels[arg]);
+                    break;
+                case Bytecode.JUMP_UNLESS_EQ:
+                case Bytecode.JUMP_UNLESS_NE:
+                case Bytecode.JUMP_UNLESS_LT:
+                case Bytecode.JUMP_UNLESS_GT:
+                case Bytecode.JUMP_UNLESS_LE:
+                case Bytecode.JUMP_UNLESS_GE:
+                    c.jump(IF_NOT_CMP[op - Bytecode.JUMP_UNLESS_EQ], labels[arg]);
+                    break;
+                case Bytecode.JUMP_UNLESS_EQ_CONST:
+                case Bytecode.JUMP_UNLESS_NE_CONST:
+                case Bytecode.JUMP_UNLESS_LT_CONST:
+                case Bytecode.JUMP_UNLESS_GT_CONST:
+                case Bytecode.JUMP_UNLESS_LE_CONST:
+                case Bytecode.JUMP_UNLESS_GE_CONST:
+                    c.push(arg);
+                    c.jump(IF_NOT_CMP[op - Bytecode.JUMP_UNLESS_EQ_CONST], labels[code[pc + 2]]);
+                    break;
+                case Bytecode.JUMP_UNLESS_EQ_LOCAL_CONST:
+                case Bytecode.JUMP_UNLESS_NE_LOCAL_CONST:
+                case Bytecode.JUMP_UNLESS_LT_LOCAL_CONST:
+                case Bytecode.JUMP_UNLESS_GT_LOCAL_CONST:
+                case Bytecode.JUMP_UNLESS_LE_LOCAL_CONST:
+                case Bytecode.JUMP_UNLESS_GE_LOCAL_CONST:
+                    load(c, true, arg);
+                    c.push(code[pc + 2]);
+                    c.jump(IF_NOT_CMP[op - Bytecode.JUMP_UNLESS_EQ_LOCAL_CONST], labels[code[pc + 3]]);
+                    break;
+                case Bytecode.JUMP_UNLESS_EQ_GLOBAL_CONST:
+                case Bytecode.JUMP_UNLESS_NE_GLOBAL_CONST:
+                case Bytecode.JUMP_UNLESS_LT_GLOBAL_CONST:
+                case Bytecode.JUMP_UNLESS_GT_GLOBAL_CONST:
+                case Bytecode.JUMP_UNLESS_LE_GLOBAL_CONST:
+                case Bytecode.JUMP_UNLESS_GE_GLOBAL_CONST:
+                    load(c, false, arg);
+                    c.push(code[pc + 2]);
+                    c.jump(IF_NOT_CMP[op - Bytecode.JUMP_UNLESS_EQ_GLOBAL_CONST], labels[code[pc + 3]]);
+                    break;
+                case Bytecode.PRINT:
+                    c.op(ISTORE, SCRATCH);
+                    c.ref(GETSTATIC, writer.field("java/lang/System", "out", "Ljava/io/PrintStream;"));
+                    c.op(ILOAD, SCRATCH);
+                    c.ref(INVOKEVIRTUAL, writer.method("java/io/PrintStream", "println", "(I)V"));
+                    break;
+                case Bytecode.CALL:
+                    call(c, self, arg, names[arg], code[pc + 2], depth - code[pc + 2]);
+                    break;
+                case Bytecode.TAIL_CALL:
+                    tailCall(c, self, arg, names[arg], code[pc + 2], depth - code[pc + 2], labels[0]);
+                    break;
+                case Bytecode.DECLARE:
+                    dataRef(c, arg, "AST/Statement");
+                    c.op(ALOAD, FRAME);
+                    c.ref(INVOKEVIRTUAL, writer.method("AST/Statement", "exec", BODY_DESC));
+                    break;
+                case Bytecode.EXEC:
+                    dataRef(c, statements + arg, "AST/Statement");
+                    c.op(ALOAD, FRAME);
+                    c.ref(INVOKEVIRTUAL, writer.method("AST/Statement", "exec", BODY_DESC));
+                    fetch(c);
+                    break;
+                case Bytecode.EVAL:
+                    dataRef(c, expressions + arg, "AST/Expression");
+                    c.op(ALOAD, FRAME);
+                    c.ref(INVOKEVIRTUAL, writer.method("AST/Expression", "eval", "(" + ENV_DESC + ")I"));
+                    fetch(c);
+                    break;
+                default:
+                    throw new IllegalStateException("Bad opcode " + op + " at " + pc);
+            }
+            if (op == Bytecode.CALL)
+            {
+                depth += 1 - code[pc + 2];
+            }
+            else if (op == Bytecode.TAIL_CALL)
+            {
+                depth -= code[pc + 2];
+            }
+            else
+            {
+                depth += Bytecode.STACK_EFFECT[op];
+            }
+        }
+    }
+
+    /**
+     * Helper method: call translates a CALL. The arguments are popped into
+     * JVM locals and the procedure is taken from the cell the Bytecode links
+     * the name to. A resolved procedure called on as many arguments as it
+     * has parameters has its frame pushed and the arguments written into it; if it is one this class declared, its body
+     * method is called directly, and again for as long as the frame is
+     * restarted. Any other procedure is invoked on an int array of the arguments.
+     */
+    private void call(ClassWriter.Code c, int bytecode, int nameIndex, String name, int count, int below)
+    {
+        for (int i = count - 1; i >= 0; i--)
+        {
+            c.op(ISTORE, ARGS + i);
+        }
+        dataRef(c, bytecode, "VM/Bytecode");
+        c.push(nameIndex);
+        c.op(ALOAD, FRAME);
+        c.ref(INVOKEVIRTUAL, writer.method("VM/Bytecode", "link", "(I" + ENV_DESC + ")LEnvironment/ProcedureCell;"));
+        c.ref(INVOKEVIRTUAL, writer.method("Environment/ProcedureCell", "get", "()L" + PROC + ";"));
+        c.op(ASTORE, CALLEE);
+        int generic = c.newLabel();
+        int done = c.newLabel();
+        c.op(ALOAD, CALLEE);
+        c.push(count);
+        c.ref(INVOKEVIRTUAL, writer.method(PROC, "hasLayout", "(I)Z"));
+        c.jump(IFEQ, generic);
+
+        c.op(ALOAD, CALLEE);
+        c.op(ALOAD, FRAME);
+        c.ref(INVOKEVIRTUAL, writer.method(PROC, "push", "(" + ENV_DESC + ")" + ENV_DESC));
+        c.op(ASTORE, CALLED);
+        for (int i = 0; i < count; i++)
+        {
+            c.op(ALOAD, CALLEE);
+            c.op(ALOAD, CALLED);
+            c.push(i);
+            c.op(ILOAD, ARGS + i);
+            c.ref(INVOKEVIRTUAL, writer.method(PROC, "setArgument", "(" + ENV_DESC + "II)V"));
+        }
+        Integer own = declared.get(name);
+        if (own != null)
+        {
+            int other = c.newLabel();
+            c.op(ALOAD, CALLEE);
+            c.ref(GETSTATIC, writer.field(CLASS, "data", "[Ljava/lang/Object;"));
+            c.push(own);
+            c.op(AALOAD);
+            c.jump(IF_ACMPNE, other);
+            int again = c.newLabel();
+            c.place(again, below);
+            c.op(ALOAD, CALLED);
+            c.ref(INVOKESTATIC, writer.method(CLASS, "body" + own, BODY_DESC));
+            c.op(ALOAD, CALLED);
+            c.ref(INVOKEVIRTUAL, writer.method(ENV, "takeRestart", "()Z"));
+            c.jump(IFNE, again);
+            c.op(ALOAD, CALLEE);
+            c.op(ALOAD, CALLED);
+            c.ref(INVOKEVIRTUAL, writer.method(PROC, "finish", "(" + ENV_DESC + ")I"));
+            c.jump(GOTO, done);
+            c.place(other, below);
+        }
+        c.op(ALOAD, CALLEE);
+        c.op(ALOAD, CALLED);
+        c.ref(INVOKEVIRTUAL, writer.method(PROC, "call", "(" + ENV_DESC + ")I"));
+        c.jump(GOTO, done);
+
+        c.place(generic, below);
+        c.op(ALOAD, CALLEE);
+        c.op(ALOAD, FRAME);
+        arguments(c, count);
+        c.ref(INVOKEVIRTUAL, writer.method(PROC, "invoke", PROC_DESC));
+        c.place(done, below + 1);
+        fetch(c);
+    }
+
+    /**
+     * Helper method: tailCall translates a TAIL_CALL. If the procedure the
+     * name links to can restart the frame, the frame is cleared, the
+     * arguments are written into it and the body jumps back to its start;
+     * otherwise the arguments are pushed again for an ordinary call, whose
+     * value is stored in slot 0.
+     */
+    private void tailCall(ClassWriter.Code c, int bytecode, int nameIndex, String name, int count, int below,
+                          int start)
+    {
+        for (int i = count - 1; i >= 0; i--)
+        {
+            c.op(ISTORE, ARGS + i);
+        }
+        dataRef(c, bytecode, "VM/Bytecode");
+        c.push(nameIndex);
+        c.op(ALOAD, FRAME);
+        c.ref(INVOKEVIRTUAL, writer.method("VM/Bytecode", "link", "(I" + ENV_DESC + ")LEnvironment/ProcedureCell;"));
+        c.ref(INVOKEVIRTUAL, writer.method("Environment/ProcedureCell", "get", "()L" + PROC + ";"));
+        c.op(ASTORE, CALLEE);
+        int ordinary = c.newLabel();
+        c.op(ALOAD, CALLEE);
+        c.op(ALOAD, FRAME);
+        c.ref(INVOKEVIRTUAL, writer.method(PROC, "canRestart", "(" + ENV_DESC + ")Z"));
+        c.jump(IFEQ, ordinary);
+
+        c.op(ALOAD, FRAME);
+        c.ref(INVOKEVIRTUAL, writer.method(ENV, "clear", "()V"));
+        for (int i = 0; i < count; i++)
+        {
+            c.op(ALOAD, CALLEE);
+            c.op(ALOAD, FRAME);
+            c.push(i);
+            c.op(ILOAD, ARGS + i);
+            c.ref(INVOKEVIRTUAL, writer.method(PROC, "setArgument", "(" + ENV_DESC + "II)V"));
+        }
+        c.jump(GOTO, start);
+
+        c.place(ordinary, below);
+        for (int i = 0; i < count; i++)
+        {
+            c.op(ILOAD, ARGS + i);
+        }
+        call(c, bytecode, nameIndex, name, count, below);
+        c.op(ISTORE, SCRATCH);
+        c.op(ALOAD, LOCALS);
+        slot(c, 0);
+        c.op(ILOAD, SCRATCH);
+        c.op(IASTORE);
+    }
+
+    /**
+     * Helper method: members writes the constructor and the methods of JitCode.
+     */
+    private void members(int procedures)
+    {
+        ClassWriter.Code c = writer.addMethod(ClassWriter.ACC_PUBLIC, "<init>", "()V", 1, 1);
+        c.op(ALOAD, 0);
+        c.ref(INVOKESPECIAL, writer.method("java/lang/Object", "<init>", "()V"));
+        c.op(RETURN);
+
+        c = writer.addMethod(ClassWriter.ACC_PUBLIC, "link", "([Ljava/lang/Object;)V", 1, 2);
+        c.op(ALOAD, 1);
+        c.ref(PUTSTATIC, writer.field(CLASS, "data", "[Ljava/lang/Object;"));
+        c.op(RETURN);
+
+        c = writer.addMethod(ClassWriter.ACC_PUBLIC, "run", BODY_DESC, 1, 2);
+        c.op(ALOAD, 1);
+        c.ref(INVOKESTATIC, writer.method(CLASS, "main", BODY_DESC));
+        c.op(RETURN);
+
+        c = writer.addMethod(ClassWriter.ACC_PUBLIC, "body", "(I" + ENV_DESC + ")V", 2, 3);
+        c.setLocals(writer.object(CLASS), ClassWriter.INT, writer.object(ENV));
+        for (int i = 0; i < procedures; i++)
+        {
+            int next = c.newLabel();
+            c.op(ILOAD, 1);
+            c.push(i);
+            c.jump(IF_NOT_CMP[0], next);
+            c.op(ALOAD, 2);
+            c.ref(INVOKESTATIC, writer.method(CLASS, "body" + i, BODY_DESC));
+            c.op(RETURN);
+            c.place(next, 0);
+        }
+        c.op(RETURN);
+    }
+}
@@ -0,0 +1,38 @@
+package VM;
+
+import Environment.Environment;
+
+/**
+ * The JitCode interface is implemented by the classes the Jit generates,
+ * one for each Program. Everything else the generated code needs, such as
+ * its procedures and the Statements it hands to the tree walker, is passed
+ * to it once through link.
+ *
+ * @author Annabelle Ju
+ * @version 04/17/2020
+ */
+public interface JitCode
+{
+    /**
+     * Hands the generated class the objects its code refers to.
+     *
+     * @param data the procedures, Statements and Expressions, indexed as
+     *             the Jit numbered them.
+     */
+    void link(Object[] data);
+
+    /**
+     * Runs the body of the Program.
+     *
+     * @param env the Environment in which it runs.
+     */
+    void run(Environment env);
+
+    /**
+     * Runs the body of one of the procedures the Program declares.
+     *
+     * @param which the index of the procedure in the procedure pool of the Program.
+     * @param frame the frame of the call.
+     */
+    void body(int which, Environment frame);
+}
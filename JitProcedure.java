@@ -0,0 +1,43 @@
+package VM;
+
+import AST.ProcedureDeclaration;
+import Environment.Environment;
+
+/**
+ * The JitProcedure class is a ProcedureDeclaration whose body has been
+ * compiled by the Jit into a method of a generated class. It sets up the
+ * same frame as the declaration it was compiled from.
+ *
+ * @author Annabelle Ju
+ * @version 04/17/2020
+ */
+public class JitProcedure extends ProcedureDeclaration
+{
+    private JitCode code;
+    private int index;
+
+    /**
+     * Constructor for objects of class JitProcedure.
+     *
+     * @param dec the declaration the body was compiled from.
+     * @param c   the generated class holding the body.
+     * @param i   the index of the procedure in that class.
+     */
+    public JitProcedure(ProcedureDeclaration dec, JitCode c, int i)
+    {
+        super(dec);
+        code = c;
+        index = i;
+    }
+
+    /**
+     * Runs the body of this Procedure through the generated class.
+     *
+     * @param frame the frame of the call.
+     */
+    @Override
+    protected void run(Environment frame)
+    {
+        code.body(index, frame);
+    }
+}
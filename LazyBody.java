@@ -0,0 +1,99 @@
+package Parser;
+
+import AST.FlatTree;
+import AST.Program;
+import AST.Statement;
+import Environment.Environment;
+import Scanner.ScanErrorException;
+import Scanner.TokenArray;
+
+import java.io.IOException;
+
+/**
+ * The LazyBody class stands in for a procedure body that a lazy Parser
+ * has only bracketed. The first time it is executed it parses its tokens,
+ * then executes the parsed body, which it keeps for every later call.
+ * LazyBody is an instance of a Statement.
+ *
+ * @author Annabelle Ju
+ * @version 04/17/2020
+ */
+public class LazyBody extends Statement
+{
+    private TokenArray tokens;
+    private int start;
+    private boolean flat;
+    private boolean optimized;
+    private Statement body;
+
+    /**
+     * Constructor for objects of class LazyBody.
+     *
+     * @param array the tokens of the source.
+     * @param s     the index of the BEGIN token of the body.
+     * @param f     true to parse the body into a FlatTree, false for AST objects.
+     */
+    public LazyBody(TokenArray array, int s, boolean f)
+    {
+        tokens = array;
+        start = s;
+        flat = f;
+    }
+
+    /**
+     * Returns a LazyBody that also optimizes the body once it is parsed.
+     * Bodies parsed into a FlatTree are not optimized.
+     *
+     * @return the optimized LazyBody.
+     */
+    @Override
+    public Statement optimize()
+    {
+        if (body != null)
+        {
+            return body.optimize();
+        }
+        LazyBody lazy = new LazyBody(tokens, start, flat);
+        lazy.optimized = true;
+        return lazy;
+    }
+
+    /**
+     * Parses the body on first use, then executes it.
+     *
+     * @param env the Environment in which to execute the Statement.
+     */
+    @Override
+    public void exec(Environment env)
+    {
+        if (body == null)
+        {
+            body = parse();
+            tokens = null;
+        }
+        body.exec(env);
+    }
+
+    /**
+     * Helper method: parse parses the body as a Program with no procedures.
+     */
+    private Statement parse()
+    {
+        Parser par = new Parser(tokens, start);
+        try
+        {
+            if (!flat)
+            {
+                Program prog = par.parseProgram();
+                return optimized ? prog.optimize() : prog;
+            }
+            FlatTree.Builder builder = new FlatTree.Builder();
+            par.parseProgram(builder);
+            return builder.getTree();
+        }
+        catch (IOException | ScanErrorException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+}
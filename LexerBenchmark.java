@@ -0,0 +1,83 @@
+package Scanner;
+
+import java.io.*;
+import java.nio.file.Files;
+
+/**
+ * LexerBenchmark measures the throughput of the hand-written Scanner.Scanner
+ * and the JFlex-generated Scanner.Scannerabb on the same corpus. The corpus is
+ * read into memory once, so only lexing is timed; every lexer runs a few
+ * warm-up passes before its timed passes so that the JIT has compiled it.
+ *
+ * Usage: java Scanner.LexerBenchmark [file] [passes]
+ *
+ * @author  Annabelle Ju
+ * @version 04/17/2020
+ */
+public class LexerBenchmark
+{
+    private static final int WARMUP = 3;
+
+    /**
+     * Drains a TokenSource, counting its tokens.
+     *
+     * @param lex the lexer to be drained.
+     * @return the number of tokens before EOF.
+     */
+    private static long drain(TokenSource lex) throws IOException, ScanErrorException
+    {
+        long tokens = 0;
+        while (lex.nextToken() != Token.EOF)
+            tokens++;
+        return tokens;
+    }
+
+    /**
+     * Runs one lexer over the corpus and prints its throughput.
+     *
+     * @param name   the name printed for the lexer.
+     * @param corpus the source text to be lexed.
+     * @param passes the number of timed passes.
+     * @param jflex  true to use Scanner.Scannerabb, false for Scanner.Scanner.
+     */
+    private static void run(String name, String corpus, int passes, boolean jflex)
+            throws IOException, ScanErrorException
+    {
+        long tokens = 0;
+        long elapsed = 0;
+        for (int i = 0; i < WARMUP + passes; i++)
+        {
+            TokenSource lex = jflex ? new Scannerabb(new StringReader(corpus)) : new Scanner(corpus);
+            long start = System.nanoTime();
+            long count = drain(lex);
+            if (i >= WARMUP)
+            {
+                elapsed += System.nanoTime() - start;
+                tokens += count;
+            }
+        }
+
+        double seconds = elapsed / 1e9;
+        System.out.printf("%-10s %12.0f tokens/s %10.1f MB/s%n", name,
+                tokens / seconds, (double) corpus.length() * passes / seconds / (1 << 20));
+    }
+
+    /**
+     * The main method for the LexerBenchmark.
+     *
+     * @param args the corpus file, scannerTestAdvanced.txt by default,
+     *             and the number of timed passes, 10 by default.
+     *
+     * @throws IOException errorHandler for file reading.
+     * @throws ScanErrorException if the corpus contains an illegal character.
+     */
+    public static void main(String[] args) throws IOException, ScanErrorException
+    {
+        String fileName = args.length > 0 ? args[0] : "scannerTestAdvanced.txt";
+        int passes = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        String corpus = new String(Files.readAllBytes(new File(fileName).toPath()));
+
+        run("Scanner", corpus, passes, false);
+        run("Scannerabb", corpus, passes, true);
+    }
+}
@@ -0,0 +1,571 @@
+package VM;
+
+import AST.Memo;
+import AST.ProcedureDeclaration;
+import Environment.Environment;
+import Environment.ProcedureCell;
+
+import java.util.ArrayList;
+
+/**
+ * The Machine class runs Bytecode like the VirtualMachine, but without
+ * recursing on the Java stack when a compiled procedure calls another: the
+ * caller's program counter and operand stack are saved in an Activation on
+ * a list in the heap, and the loop carries on in the callee. Guest recursion
+ * is thus limited only by a memory budget, an estimate of the bytes the
+ * Activations take, and a deep recursion runs on a thread with a small stack.
+ * Because all of its state is in the heap, a Machine can also stop after a
+ * given number of instructions, at the next statement boundary, and later
+ * be resumed from there, on the same thread or another.
+ * Calls of procedures that are not compiled, and the Statements and
+ * Expressions the Bytecode hands back to the tree walker, still run on the
+ * Java stack.
+ *
+ * @author Annabelle Ju
+ * @version 04/17/2020
+ */
+public class Machine
+{
+    /** The memory budget of a Machine, in bytes, unless another is given. */
+    public static final long DEFAULT_BUDGET = 256L << 20;
+
+    /** A number of instructions to run at a time that keeps the cost of suspending small. */
+    public static final long SLICE = 1 << 20;
+
+    /** The estimated size of an Activation and the frame it runs in, besides their int arrays. */
+    private static final int ACTIVATION_COST = 96;
+
+    private final long budget;
+    private long used;
+    private final ArrayList<Activation> callers;
+    private Activation current;
+    private boolean halted;
+
+    /**
+     * The Activation class holds a call of a compiled procedure, or the
+     * Program, in progress: its Bytecode and frame, its operand stack, and
+     * where it stopped.
+     */
+    private static class Activation
+    {
+        private final Bytecode bytecode;
+        private final Environment env;
+        private final ProcedureDeclaration procedure;
+        private final boolean tail;
+        private final int[] key;
+        private final int[] stack;
+        private final long cost;
+        private int pc;
+        private int sp;
+        private int tos;
+
+        /**
+         * Constructor for objects of class Activation.
+         *
+         * @param code the Bytecode being run.
+         * @param e    the frame it runs in.
+         * @param dec  the procedure called, or null for the Program.
+         * @param t    true if the result goes to slot 0 of the caller rather than on its stack.
+         * @param k    the arguments under which to cache the result, or null.
+         * @param args the number of arguments of the call.
+         */
+        private Activation(Bytecode code, Environment e, ProcedureDeclaration dec, boolean t, int[] k, int args)
+        {
+            bytecode = code;
+            env = e;
+            procedure = dec;
+            tail = t;
+            key = k;
+            stack = new int[code.getMaxStack() + 1];
+            cost = costOf(code, args);
+        }
+    }
+
+    /**
+     * Constructor for objects of class Machine with the default memory budget.
+     *
+     * @param program the Bytecode of a Program.
+     * @param env     the Environment in which it runs.
+     */
+    public Machine(Bytecode program, Environment env)
+    {
+        this(program, env, DEFAULT_BUDGET);
+    }
+
+    /**
+     * Constructor for objects of class Machine.
+     *
+     * @param program the Bytecode of a Program.
+     * @param env     the Environment in which it runs.
+     * @param bytes   the memory budget for the calls in progress, in bytes.
+     */
+    public Machine(Bytecode program, Environment env, long bytes)
+    {
+        budget = bytes;
+        callers = new ArrayList<>();
+        current = new Activation(program, env, null, false, null, 0);
+        used = current.cost;
+    }
+
+    /**
+     * Tells whether the Program has run to its end.
+     *
+     * @return true once the Program has halted.
+     */
+    public boolean isHalted()
+    {
+        return halted;
+    }
+
+    /**
+     * Retrieves the number of calls in progress.
+     *
+     * @return the depth of the guest call stack.
+     */
+    public int getDepth()
+    {
+        return callers.size();
+    }
+
+    /**
+     * Runs the Program for at least the given number of instructions, then
+     * on to the next statement boundary, where the operand stack of the
+     * running call is empty, and stops there; run resumes from that point.
+     *
+     * @param steps the number of instructions to run before stopping.
+     *
+     * @return true if the Program halted, false if it was suspended.
+     *
+     * @throws IllegalStateException if a call would go over the memory budget.
+     */
+    public boolean run(long steps)
+    {
+        long fuel = steps;
+        while (!halted)
+        {
+            Bytecode bytecode = current.bytecode;
+            int[] code = bytecode.getCode();
+            String[] names = bytecode.getNames();
+            int[] stack = current.stack;
+            Environment env = current.env;
+            int[] locals = env.getValues();
+            int base = env.getBase();
+            int[] globals = env.getGlobal().getValues();
+            int pc = current.pc;
+            int sp = current.sp;
+            int tos = current.tos;
+
+            dispatch:
+            while (true)
+            {
+                if (--fuel < 0 && sp == 0)
+                {
+                    current.pc = pc;
+                    current.sp = sp;
+                    current.tos = tos;
+                    return false;
+                }
+                switch (code[pc++])
+                {
+                    case Bytecode.HALT:
+                        if (current.procedure == null)
+                        {
+                            halted = true;
+                        }
+                        else if (env.takeRestart())
+                        {
+                            pc = 0;
+                            sp = 0;
+                            break;
+                        }
+                        else
+                        {
+                            giveBack(current.procedure.leave(env));
+                        }
+                        break dispatch;
+                    case Bytecode.PUSH:
+                        stack[sp++] = tos;
+                        tos = code[pc++];
+                        break;
+                    case Bytecode.LOAD_LOCAL:
+                        stack[sp++] = tos;
+                        tos = locals[base + code[pc++]];
+                        break;
+                    case Bytecode.LOAD_GLOBAL:
+                        stack[sp++] = tos;
+                        tos = globals[code[pc++]];
+                        break;
+                    case Bytecode.LOAD_NAME:
+                        stack[sp++] = tos;
+                        tos = env.getVariable(names[code[pc++]]);
+                        break;
+                    case Bytecode.STORE_LOCAL:
+                        locals[base + code[pc++]] = tos;
+                        tos = stack[--sp];
+                        break;
+                    case Bytecode.STORE_GLOBAL:
+                        globals[code[pc++]] = tos;
+                        tos = stack[--sp];
+                        break;
+                    case Bytecode.STORE_NAME:
+                        env.setVariable(names[code[pc++]], tos);
+                        tos = stack[--sp];
+                        locals = env.getValues();
+                        base = env.getBase();
+                        globals = env.getGlobal().getValues();
+                        break;
+                    case Bytecode.ADD:
+                        tos = stack[--sp] + tos;
+                        break;
+                    case Bytecode.SUB:
+                        tos = stack[--sp] - tos;
+                        break;
+                    case Bytecode.MUL:
+                        tos = stack[--sp] * tos;
+                        break;
+                    case Bytecode.DIV:
+                        tos = stack[--sp] / tos;
+                        break;
+                    case Bytecode.EQ:
+                        tos = stack[--sp] == tos ? 1 : 0;
+                        break;
+                    case Bytecode.NE:
+                        tos = stack[--sp] != tos ? 1 : 0;
+                        break;
+                    case Bytecode.LT:
+                        tos = stack[--sp] < tos ? 1 : 0;
+                        break;
+                    case Bytecode.GT:
+                        tos = stack[--sp] > tos ? 1 : 0;
+                        break;
+                    case Bytecode.LE:
+                        tos = stack[--sp] <= tos ? 1 : 0;
+                        break;
+                    case Bytecode.GE:
+                        tos = stack[--sp] >= tos ? 1 : 0;
+                        break;
+                    case Bytecode.JUMP:
+                        pc = code[pc];
+                        break;
+                    case Bytecode.JUMP_IF_FALSE:
+                        pc = tos > 0 ? pc + 1 : code[pc];
+                        tos = stack[--sp];
+                        break;
+                    case Bytecode.JUMP_IF_TRUE:
+                        pc = tos > 0 ? code[pc] : pc + 1;
+                        tos = stack[--sp];
+                        break;
+                    case Bytecode.JUMP_UNLESS_EQ:
+                        pc = stack[--sp] == tos ? pc + 1 : code[pc];
+                        tos = stack[--sp];
+                        break;
+                    case Bytecode.JUMP_UNLESS_NE:
+                        pc = stack[--sp] != tos ? pc + 1 : code[pc];
+                        tos = stack[--sp];
+                        break;
+                    case Bytecode.JUMP_UNLESS_LT:
+                        pc = stack[--sp] < tos ? pc + 1 : code[pc];
+                        tos = stack[--sp];
+                        break;
+                    case Bytecode.JUMP_UNLESS_GT:
+                        pc = stack[--sp] > tos ? pc + 1 : code[pc];
+                        tos = stack[--sp];
+                        break;
+                    case Bytecode.JUMP_UNLESS_LE:
+                        pc = stack[--sp] <= tos ? pc + 1 : code[pc];
+                        tos = stack[--sp];
+                        break;
+                    case Bytecode.JUMP_UNLESS_GE:
+                        pc = stack[--sp] >= tos ? pc + 1 : code[pc];
+                        tos = stack[--sp];
+                        break;
+                    case Bytecode.ADD_CONST:
+                        tos += code[pc++];
+                        break;
+                    case Bytecode.SUB_CONST:
+                        tos -= code[pc++];
+                        break;
+                    case Bytecode.MUL_CONST:
+                        tos *= code[pc++];
+                        break;
+                    case Bytecode.DIV_CONST:
+                        tos /= code[pc++];
+                        break;
+                    case Bytecode.JUMP_UNLESS_EQ_CONST:
+                        pc = tos == code[pc] ? pc + 2 : code[pc + 1];
+                        tos = stack[--sp];
+                        break;
+                    case Bytecode.JUMP_UNLESS_NE_CONST:
+                        pc = tos != code[pc] ? pc + 2 : code[pc + 1];
+                        tos = stack[--sp];
+                        break;
+                    case Bytecode.JUMP_UNLESS_LT_CONST:
+                        pc = tos < code[pc] ? pc + 2 : code[pc + 1];
+                        tos = stack[--sp];
+                        break;
+                    case Bytecode.JUMP_UNLESS_GT_CONST:
+                        pc = tos > code[pc] ? pc + 2 : code[pc + 1];
+                        tos = stack[--sp];
+                        break;
+                    case Bytecode.JUMP_UNLESS_LE_CONST:
+                        pc = tos <= code[pc] ? pc + 2 : code[pc + 1];
+                        tos = stack[--sp];
+                        break;
+                    case Bytecode.JUMP_UNLESS_GE_CONST:
+                        pc = tos >= code[pc] ? pc + 2 : code[pc + 1];
+                        tos = stack[--sp];
+                        break;
+                    case Bytecode.ADD_LOCAL:
+                        tos += locals[base + code[pc++]];
+                        break;
+                    case Bytecode.SUB_LOCAL:
+                        tos -= locals[base + code[pc++]];
+                        break;
+                    case Bytecode.MUL_LOCAL:
+                        tos *= locals[base + code[pc++]];
+                        break;
+                    case Bytecode.DIV_LOCAL:
+                        tos /= locals[base + code[pc++]];
+                        break;
+                    case Bytecode.ADD_GLOBAL:
+                        tos += globals[code[pc++]];
+                        break;
+                    case Bytecode.SUB_GLOBAL:
+                        tos -= globals[code[pc++]];
+                        break;
+                    case Bytecode.MUL_GLOBAL:
+                        tos *= globals[code[pc++]];
+                        break;
+                    case Bytecode.DIV_GLOBAL:
+                        tos /= globals[code[pc++]];
+                        break;
+                    case Bytecode.INC_LOCAL:
+                        locals[base + code[pc]] += code[pc + 1];
+                        pc += 2;
+                        break;
+                    case Bytecode.INC_GLOBAL:
+                        globals[code[pc]] += code[pc + 1];
+                        pc += 2;
+                        break;
+                    case Bytecode.JUMP_UNLESS_EQ_LOCAL_CONST:
+                        pc = locals[base + code[pc]] == code[pc + 1] ? pc + 3 : code[pc + 2];
+                        break;
+                    case Bytecode.JUMP_UNLESS_NE_LOCAL_CONST:
+                        pc = locals[base + code[pc]] != code[pc + 1] ? pc + 3 : code[pc + 2];
+                        break;
+                    case Bytecode.JUMP_UNLESS_LT_LOCAL_CONST:
+                        pc = locals[base + code[pc]] < code[pc + 1] ? pc + 3 : code[pc + 2];
+                        break;
+                    case Bytecode.JUMP_UNLESS_GT_LOCAL_CONST:
+                        pc = locals[base + code[pc]] > code[pc + 1] ? pc + 3 : code[pc + 2];
+                        break;
+                    case Bytecode.JUMP_UNLESS_LE_LOCAL_CONST:
+                        pc = locals[base + code[pc]] <= code[pc + 1] ? pc + 3 : code[pc + 2];
+                        break;
+                    case Bytecode.JUMP_UNLESS_GE_LOCAL_CONST:
+                        pc = locals[base + code[pc]] >= code[pc + 1] ? pc + 3 : code[pc + 2];
+                        break;
+                    case Bytecode.JUMP_UNLESS_EQ_GLOBAL_CONST:
+                        pc = globals[code[pc]] == code[pc + 1] ? pc + 3 : code[pc + 2];
+                        break;
+                    case Bytecode.JUMP_UNLESS_NE_GLOBAL_CONST:
+                        pc = globals[code[pc]] != code[pc + 1] ? pc + 3 : code[pc + 2];
+                        break;
+                    case Bytecode.JUMP_UNLESS_LT_GLOBAL_CONST:
+                        pc = globals[code[pc]] < code[pc + 1] ? pc + 3 : code[pc + 2];
+                        break;
+                    case Bytecode.JUMP_UNLESS_GT_GLOBAL_CONST:
+                        pc = globals[code[pc]] > code[pc + 1] ? pc + 3 : code[pc + 2];
+                        break;
+                    case Bytecode.JUMP_UNLESS_LE_GLOBAL_CONST:
+                        pc = globals[code[pc]] <= code[pc + 1] ? pc + 3 : code[pc + 2];
+                        break;
+                    case Bytecode.JUMP_UNLESS_GE_GLOBAL_CONST:
+                        pc = globals[code[pc]] >= code[pc + 1] ? pc + 3 : code[pc + 2];
+                        break;
+                    case Bytecode.LOCAL_ADD_CONST:
+                        stack[sp++] = tos;
+                        tos = locals[base + code[pc]] + code[pc + 1];
+                        pc += 2;
+                        break;
+                    case Bytecode.LOCAL_SUB_CONST:
+                        stack[sp++] = tos;
+                        tos = locals[base + code[pc]] - code[pc + 1];
+                        pc += 2;
+                        break;
+                    case Bytecode.LOCAL_MUL_CONST:
+                        stack[sp++] = tos;
+                        tos = locals[base + code[pc]] * code[pc + 1];
+                        pc += 2;
+                        break;
+                    case Bytecode.LOCAL_DIV_CONST:
+                        stack[sp++] = tos;
+                        tos = locals[base + code[pc]] / code[pc + 1];
+                        pc += 2;
+                        break;
+                    case Bytecode.GLOBAL_ADD_CONST:
+                        stack[sp++] = tos;
+                        tos = globals[code[pc]] + code[pc + 1];
+                        pc += 2;
+                        break;
+                    case Bytecode.GLOBAL_SUB_CONST:
+                        stack[sp++] = tos;
+                        tos = globals[code[pc]] - code[pc + 1];
+                        pc += 2;
+                        break;
+                    case Bytecode.GLOBAL_MUL_CONST:
+                        stack[sp++] = tos;
+                        tos = globals[code[pc]] * code[pc + 1];
+                        pc += 2;
+                        break;
+                    case Bytecode.GLOBAL_DIV_CONST:
+                        stack[sp++] = tos;
+                        tos = globals[code[pc]] / code[pc + 1];
+                        pc += 2;
+                        break;
+                    case Bytecode.ADD_TO_LOCAL:
+                        locals[base + code[pc++]] += tos;
+                        tos = stack[--sp];
+                        break;
+                    case Bytecode.ADD_TO_GLOBAL:
+                        globals[code[pc++]] += tos;
+                        tos = stack[--sp];
+                        break;
+                    case Bytecode.PRINT:
+                        System.out.println(tos);
+                        tos = stack[--sp];
+                        break;
+                    case Bytecode.CALL:
+                    case Bytecode.TAIL_CALL:
+                    {
+                        boolean tail = code[pc - 1] == Bytecode.TAIL_CALL;
+                        int count = code[pc + 1];
+                        stack[sp] = tos;
+                        sp -= count - 1;
+                        ProcedureCell cell = bytecode.link(code[pc], env);
+                        ProcedureDeclaration dec = cell.get();
+                        pc += 2;
+                        if (tail && dec.canRestart(env))
+                        {
+                            env.clear();
+                            for (int i = 0; i < count; i++)
+                            {
+                                dec.setArgument(env, i, stack[sp + i]);
+                            }
+                            sp = 0;
+                            pc = 0;
+                            break;
+                        }
+                        int result;
+                        if (dec instanceof CompiledProcedure && dec.accepts(count))
+                        {
+                            int[] args = new int[count];
+                            System.arraycopy(stack, sp, args, 0, count);
+                            Memo memo = dec.getMemo();
+                            int[] key = memo != null && memo.isValid(env) ? args : null;
+                            Integer cached = key == null ? null : memo.lookup(key);
+                            if (cached == null)
+                            {
+                                current.pc = pc;
+                                current.sp = sp;
+                                current.tos = tos;
+                                enter((CompiledProcedure) dec, env, args, tail, key);
+                                break dispatch;
+                            }
+                            result = cached;
+                        }
+                        else
+                        {
+                            result = VirtualMachine.call(env, cell, stack, sp, count);
+                        }
+                        if (tail)
+                        {
+                            env.getValues()[env.getBase()] = result;
+                            tos = stack[--sp];
+                        }
+                        else
+                        {
+                            tos = result;
+                        }
+                        locals = env.getValues();
+                        base = env.getBase();
+                        globals = env.getGlobal().getValues();
+                        break;
+                    }
+                    case Bytecode.DECLARE:
+                        bytecode.getProcedures()[code[pc++]].exec(env);
+                        break;
+                    case Bytecode.EXEC:
+                        bytecode.getStatements()[code[pc++]].exec(env);
+                        locals = env.getValues();
+                        base = env.getBase();
+                        globals = env.getGlobal().getValues();
+                        break;
+                    case Bytecode.EVAL:
+                        stack[sp++] = tos;
+                        tos = bytecode.getExpressions()[code[pc++]].eval(env);
+                        locals = env.getValues();
+                        base = env.getBase();
+                        globals = env.getGlobal().getValues();
+                        break;
+                    default:
+                        throw new IllegalStateException("Bad opcode " + code[pc - 1] + " at " + (pc - 1));
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Helper method: enter sets up the frame of a call of a compiled
+     * procedure and makes it the running Activation, its caller having
+     * been saved. Given a key, the result is cached under it on return.
+     */
+    private void enter(CompiledProcedure dec, Environment caller, int[] args, boolean tail, int[] key)
+    {
+        if (used + costOf(dec.getBody(), args.length) > budget)
+        {
+            throw new IllegalStateException("Call of " + dec.getName() + " at depth " + callers.size()
+                                            + " exceeds the memory budget of " + budget + " bytes");
+        }
+        Activation callee = new Activation(dec.getBody(), dec.enter(caller, args), dec, tail, key, args.length);
+        used += callee.cost;
+        callers.add(current);
+        current = callee;
+    }
+
+    /**
+     * Helper method: costOf estimates the bytes an Activation running the
+     * given Bytecode takes, with its operand stack and frame.
+     */
+    private static long costOf(Bytecode code, int args)
+    {
+        return ACTIVATION_COST + 4L * (code.getMaxStack() + 1 + args);
+    }
+
+    /**
+     * Helper method: giveBack ends the running call and hands its result
+     * to the caller, on its operand stack or, after a tail call, in slot 0
+     * of its frame.
+     */
+    private void giveBack(int result)
+    {
+        Activation done = current;
+        used -= done.cost;
+        if (done.key != null)
+        {
+            done.procedure.getMemo().store(done.key, result);
+        }
+        current = callers.remove(callers.size() - 1);
+        if (done.tail)
+        {
+            Environment env = current.env;
+            env.getValues()[env.getBase()] = result;
+            current.tos = current.stack[--current.sp];
+        }
+        else
+        {
+            current.tos = result;
+        }
+    }
+}
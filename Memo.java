@@ -0,0 +1,207 @@
+package AST;
+
+import Environment.Environment;
+import Environment.ProcedureCell;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The Memo class is the result cache of a procedure that is a function of
+ * its arguments alone. It maps each tuple of arguments the procedure was
+ * called on to the result, and once it holds as many results as its
+ * capacity it forgets the least recently used. It counts the calls it
+ * answered, its hits, and the calls it did not, its misses.
+ * A procedure is found pure together with the other pure procedures of its
+ * Program, its group; the cache is used only while every procedure of the
+ * group is still the one declared, since a procedure declared again later
+ * under the same name need not be pure.
+ *
+ * @author Annabelle Ju
+ * @version 04/17/2020
+ */
+public class Memo
+{
+    /** The number of results a Memo holds unless it is given another capacity. */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final LinkedHashMap<Key, Integer> cache;
+    private long hits;
+    private long misses;
+    private Set<String> group;
+    private String[] names;
+    private ProcedureCell[] cells;
+    private Environment owner;
+
+    /**
+     * The Key class is a tuple of arguments, compared by value.
+     */
+    private static final class Key
+    {
+        private final int[] values;
+        private final int hash;
+
+        /**
+         * Constructor for objects of class Key.
+         *
+         * @param v the arguments, which must not change afterwards.
+         */
+        private Key(int[] v)
+        {
+            values = v;
+            hash = Arrays.hashCode(v);
+        }
+
+        /**
+         * Retrieves the hash code of the arguments.
+         *
+         * @return the hash code.
+         */
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        /**
+         * Compares this Key to another object.
+         *
+         * @param other the object to be compared.
+         *
+         * @return true if other is a Key of the same arguments.
+         */
+        @Override
+        public boolean equals(Object other)
+        {
+            return other instanceof Key && Arrays.equals(values, ((Key) other).values);
+        }
+    }
+
+    /**
+     * Constructor for objects of class Memo.
+     *
+     * @param capacity the number of results the cache holds at most.
+     */
+    public Memo(int capacity)
+    {
+        cache = new LinkedHashMap<Key, Integer>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Integer> eldest)
+            {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Ties this Memo to the group of pure procedures its procedure was
+     * found pure with, forgetting any earlier results.
+     *
+     * @param pure the names of the procedures of the group.
+     */
+    void attach(Set<String> pure)
+    {
+        group = pure;
+        names = pure.toArray(new String[0]);
+        cells = null;
+        owner = null;
+        cache.clear();
+    }
+
+    /**
+     * Tells whether the cache may be used for a call made in the given
+     * Environment, that is, whether every procedure of the group is still
+     * declared as it was when the group was found pure.
+     *
+     * @param env the Environment of the call.
+     *
+     * @return true if the cache may be used.
+     */
+    public boolean isValid(Environment env)
+    {
+        Environment global = env.getGlobal();
+        if (owner != global)
+        {
+            cells = new ProcedureCell[names.length];
+            for (int i = 0; i < names.length; i++)
+            {
+                cells[i] = global.getProcedureCell(names[i]);
+            }
+            owner = global;
+        }
+        for (ProcedureCell cell: cells)
+        {
+            ProcedureDeclaration dec = cell.get();
+            if (dec == null || dec.getPureGroup() != group)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Looks up the result of a call, counting a hit or a miss.
+     *
+     * @param args the arguments of the call.
+     *
+     * @return the result, or null if it is not cached.
+     */
+    public Integer lookup(int[] args)
+    {
+        Integer result = cache.get(new Key(args));
+        if (result == null)
+        {
+            misses++;
+        }
+        else
+        {
+            hits++;
+        }
+        return result;
+    }
+
+    /**
+     * Caches the result of a call.
+     *
+     * @param args   the arguments of the call, which must not change afterwards.
+     * @param result the result.
+     */
+    public void store(int[] args, int result)
+    {
+        cache.put(new Key(args), result);
+    }
+
+    /**
+     * Retrieves the number of calls answered from the cache.
+     *
+     * @return the number of hits.
+     */
+    public long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Retrieves the number of calls that had to be run.
+     *
+     * @return the number of misses.
+     */
+    public long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * Retrieves the number of results in the cache.
+     *
+     * @return the size of the cache.
+     */
+    public int size()
+    {
+        return cache.size();
+    }
+}
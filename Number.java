@@ -1,6 +1,10 @@
 package AST;
 
 import Environment.Environment;
+import VM.Bytecode;
+import VM.Emitter;
+
+import java.util.Set;
 
 /**
  * The Number class represents an integer value.
@@ -35,4 +39,110 @@ public class Number extends Expression
     {
         return value;
     }
+
+    /**
+     * Retrieves the integer value of this Number without an Environment.
+     *
+     * @return the integer value of this Number.
+     */
+    public int getValue()
+    {
+        return value;
+    }
+
+    /**
+     * A Number is pure.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean isPure()
+    {
+        return true;
+    }
+
+    /**
+     * A Number cannot trap.
+     *
+     * @return false.
+     */
+    @Override
+    public boolean canTrap()
+    {
+        return false;
+    }
+
+    /**
+     * A Number reads no variable.
+     *
+     * @param reads the set the names of the variables are added to.
+     * @param calls the set the names of the procedures are added to.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean readNames(Set<String> reads, Set<String> calls)
+    {
+        return true;
+    }
+
+    /**
+     * A Number is local.
+     *
+     * @param callable the names of the procedures it may call.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean isLocal(Set<String> callable)
+    {
+        return true;
+    }
+
+    /**
+     * A Number is a single node.
+     *
+     * @return 1.
+     */
+    @Override
+    public int size()
+    {
+        return 1;
+    }
+
+    /**
+     * Compares this Number to another Expression.
+     *
+     * @param other the Expression to be compared.
+     *
+     * @return true if other is a Number of the same value.
+     */
+    @Override
+    public boolean sameAs(Expression other)
+    {
+        return other instanceof Number && ((Number) other).value == value;
+    }
+
+    /**
+     * Emits the push of this Number.
+     *
+     * @param e the Emitter that receives the code.
+     */
+    @Override
+    public void compile(Emitter e)
+    {
+        e.emit(Bytecode.PUSH, value);
+    }
+
+    /**
+     * Builds the Value that returns this Number.
+     *
+     * @return the Value.
+     */
+    @Override
+    public Closure.Value closure()
+    {
+        int v = value;
+        return env -> v;
+    }
 }
@@ -0,0 +1,155 @@
+package AST;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The ObjectTreeBuilder class assembles the nodes reported by the Parser
+ * into the tree of AST objects that is executed by Program.exec.
+ *
+ * @author Annabelle Ju
+ * @version 04/17/2020
+ */
+public class ObjectTreeBuilder implements TreeBuilder
+{
+    private ArrayList<Expression> expressions;
+    private ArrayList<Statement> statements;
+    private ArrayList<ProcedureDeclaration> procedures;
+    private Program program;
+
+    /**
+     * Constructor for objects of class ObjectTreeBuilder.
+     */
+    public ObjectTreeBuilder()
+    {
+        expressions = new ArrayList<>();
+        statements = new ArrayList<>();
+        procedures = new ArrayList<>();
+    }
+
+    /**
+     * Retrieves the Program completed by the last call to program.
+     *
+     * @return the built Program.
+     */
+    public Program getProgram()
+    {
+        return program;
+    }
+
+    /**
+     * Helper method: popExpression removes the most recent expression.
+     */
+    private Expression popExpression()
+    {
+        return expressions.remove(expressions.size() - 1);
+    }
+
+    /**
+     * Helper method: popStatement removes the most recent statement.
+     */
+    private Statement popStatement()
+    {
+        return statements.remove(statements.size() - 1);
+    }
+
+    /**
+     * Helper method: popStatements removes the given number of most recent
+     * statements and returns them in their original order.
+     */
+    private ArrayList<Statement> popStatements(int count)
+    {
+        List<Statement> top = statements.subList(statements.size() - count, statements.size());
+        ArrayList<Statement> list = new ArrayList<>(top);
+        top.clear();
+        return list;
+    }
+
+    @Override
+    public void number(int value)
+    {
+        expressions.add(new Number(value));
+    }
+
+    @Override
+    public void variable(String name)
+    {
+        expressions.add(new Variable(name));
+    }
+
+    @Override
+    public void binOp(String op)
+    {
+        Expression right = popExpression();
+        Expression left = popExpression();
+        expressions.add(BinOp.of(op, left, right));
+    }
+
+    @Override
+    public void call(String name, int argCount)
+    {
+        List<Expression> top = expressions.subList(expressions.size() - argCount, expressions.size());
+        ArrayList<Expression> args = new ArrayList<>(top);
+        top.clear();
+        expressions.add(new ProcedureCall(name, args));
+    }
+
+    @Override
+    public void condition(String relop)
+    {
+        Expression right = popExpression();
+        Expression left = popExpression();
+        expressions.add(Condition.of(left, relop, right));
+    }
+
+    @Override
+    public void writeln()
+    {
+        statements.add(new Writeln(popExpression()));
+    }
+
+    @Override
+    public void assignment(String name)
+    {
+        statements.add(new Assignment(name, popExpression()));
+    }
+
+    @Override
+    public void ifStatement()
+    {
+        statements.add(new If((Condition) popExpression(), popStatement()));
+    }
+
+    @Override
+    public void whileStatement()
+    {
+        statements.add(new While((Condition) popExpression(), popStatement()));
+    }
+
+    @Override
+    public void block(int statementCount)
+    {
+        statements.add(new Block(popStatements(statementCount)));
+    }
+
+    @Override
+    public void statement(Statement body)
+    {
+        statements.add(body);
+    }
+
+    @Override
+    public void procedure(String name, List<String> params)
+    {
+        procedures.add(new ProcedureDeclaration(name, popStatement(), params));
+    }
+
+    @Override
+    public void program(int procedureCount, boolean hasBody)
+    {
+        Statement body = hasBody ? popStatement() : null;
+        List<ProcedureDeclaration> top = procedures.subList(procedures.size() - procedureCount, procedures.size());
+        program = new Program(new ArrayList<>(top), body);
+        top.clear();
+    }
+}
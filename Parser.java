@@ -1,290 +1,469 @@
 package Parser;
 
 import AST.*;
-import AST.Number;
 import Environment.Environment;
 import Scanner.ScanErrorException;
 import Scanner.Scanner;
+import Scanner.Scannerabb;
+import Scanner.Token;
+import Scanner.TokenArray;
+import Scanner.TokenSource;
+import Scanner.TokenType;
+import VM.Bytecode;
+import VM.Emitter;
+import VM.Jit;
+import VM.JitCode;
+import VM.Machine;
+import VM.VirtualMachine;
 import java.io.*;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Parser is a top-down recursive descent parser that performs the syntax analysis
  * portion of compilation/interpretation. It employs recursive methods for each
  * variable in an un-ambiguous, right-recursive, and deterministic grammar.
+ * Expressions are the exception: they are parsed by precedence climbing over
+ * an explicit operator stack, so their size and nesting do not recurse.
  *
  * @author  Annabelle Ju
  * @version 04/17/2020
  */
 public class Parser
 {
-    private Scanner scanner;
-    private String currentToken;
+    private TokenSource scanner;
+    private Token currentToken;
+    private TreeBuilder builder;
+    private TokenArray tokens;
+    private TokenArray.Cursor cursor;
+    private boolean lazy;
 
     /**
      * Constructor for objects of class Parser
      *
-     * @param scan the given scanner to be used by this Parser.
+     * @param scan the given source of tokens to be used by this Parser,
+     *             such as a Scanner.Scanner or a Scanner.Scannerabb.
      *
      * @throws IOException error handler for scanner method nextToken.
      * @throws ScanErrorException error handler for scanner method nextToken.
      */
-    public Parser(Scanner scan) throws IOException, ScanErrorException
+    public Parser(TokenSource scan) throws IOException, ScanErrorException
     {
         scanner = scan;
         currentToken = scan.nextToken();
     }
 
     /**
-     * The "eat" method compares an expected token to the current token.
-     * If the two tokens match, then the currentToken pointer moves to the next scanned token.
-     * If the tokens do not match, an error is thrown.
+     * Constructor for objects of class Parser that parse an already lexed
+     * TokenArray instead of pulling tokens from a Scanner. The array is only
+     * read, so one TokenArray can be parsed any number of times.
      *
-     * @param token the expected token to be compared to the current token.
+     * @param array the tokens to be parsed by this Parser.
+     */
+    public Parser(TokenArray array)
+    {
+        this(array, 0);
+    }
+
+    /**
+     * Constructor for objects of class Parser that parse a TokenArray
+     * from the given token on.
+     *
+     * @param array the tokens to be parsed by this Parser.
+     * @param start the index of the first token to be parsed.
+     */
+    public Parser(TokenArray array, int start)
+    {
+        tokens = array;
+        seek(start);
+    }
+
+    /**
+     * The "setLazy" method chooses whether procedure bodies are parsed up front.
+     * A lazy Parser only brackets a BEGIN/END procedure body and reports it
+     * as a LazyBody, which parses the body the first time the procedure is called,
+     * so procedures that are never called cost no more than a scan for their END.
+     * Syntax errors in such a body are reported when it is first called.
+     * Only a Parser over a TokenArray can be lazy, since a body must be found again later.
+     *
+     * @param on true to put off parsing procedure bodies.
+     */
+    public void setLazy(boolean on)
+    {
+        if (on && tokens == null)
+        {
+            throw new IllegalStateException("Only a Parser over a TokenArray can be lazy");
+        }
+        lazy = on;
+    }
+
+    /**
+     * The "seek" method moves a Parser over a TokenArray to the given token.
+     *
+     * @param position the index of the new current token.
+     */
+    private void seek(int position)
+    {
+        cursor = tokens.cursor(position + 1);
+        scanner = cursor;
+        currentToken = tokens.get(position);
+    }
+
+    /**
+     * The "skipBlock" method moves past a BEGIN/END block and its optional semicolon
+     * without parsing it, by counting BEGIN and END tokens.
+     *
+     * Precondition: the current token is BEGIN.
+     * Postcondition: the current token is the first token after the block.
+     */
+    private void skipBlock()
+    {
+        int position = cursor.getPosition() - 1;
+        int depth = 0;
+        do
+        {
+            TokenType type = tokens.getType(position++);
+            if (type == TokenType.BEGIN)
+                depth++;
+            else if (type == TokenType.END)
+                depth--;
+            else if (type == TokenType.EOF)
+                throw new IllegalArgumentException("Expected token END, found "+Token.EOF);
+        }
+        while (depth > 0);
+
+        if (tokens.getType(position) == TokenType.SEMICOLON)
+            position++;
+        seek(position);
+    }
+
+    /**
+     * The "eat" method compares an expected token type to the type of the current token.
+     * If the two types match, then the currentToken pointer moves to the next scanned token.
+     * If the types do not match, an error is thrown.
+     *
+     * @param type the expected type of the current token.
      *
      * @throws IOException error handler for scanner method nextToken.
      * @throws ScanErrorException error handler for scanner method nextToken.
-     * @throws IllegalArgumentException if the expected token does not match the current token.
+     * @throws IllegalArgumentException if the expected type does not match the current token.
      */
-    private void eat(String token) throws IOException, ScanErrorException, IllegalArgumentException
+    private void eat(TokenType type) throws IOException, ScanErrorException, IllegalArgumentException
     {
-        if (token.equals(currentToken))
+        if (currentToken.getType() == type)
         {
             currentToken = scanner.nextToken();
         }
         else
         {
-            throw new IllegalArgumentException("Expected token "+token+", found "+currentToken);
+            throw new IllegalArgumentException("Expected token "+type+", found "+currentToken);
         }
     }
 
+    /**
+     * The "is" method checks the type of the current token without eating it.
+     *
+     * @param type the type to be checked.
+     *
+     * @return true if the current token is of the given type.
+     */
+    private boolean is(TokenType type)
+    {
+        return currentToken.getType() == type;
+    }
+
+    /**
+     * The "hasNext" method determines whether any tokens remain to be parsed.
+     *
+     * @return true if the current token is not the end of the input.
+     */
+    public boolean hasNext()
+    {
+        return !is(TokenType.EOF);
+    }
+
     /**
      * The "parseNumber" method eats an entire number token.
      *
      * Precondition: the current token is an integer.
      * Postcondition: the number token is eaten, the current token is the first token after the number.
      *
-     * @return the value of the parsed integer.
+     * @throws IOException error handler for eat method.
+     * @throws ScanErrorException error handler for eat method.
+     */
+    private void parseNumber() throws IOException, ScanErrorException
+    {
+        int number = currentToken.getValue();
+        eat(TokenType.NUMBER);
+
+        builder.number(number);
+    }
+
+    /**
+     * The "parseIdentifier" method eats an identifier token.
+     *
+     * @return the interned name of the identifier.
      *
      * @throws IOException error handler for eat method.
      * @throws ScanErrorException error handler for eat method.
      */
-    private Number parseNumber() throws IOException, ScanErrorException
+    private String parseIdentifier() throws IOException, ScanErrorException
     {
-        int number = Integer.parseInt(currentToken);
-        eat(currentToken);
+        String name = currentToken.getSymbol();
+        eat(TokenType.IDENTIFIER);
 
-        return new Number(number);
+        return name;
     }
 
     /**
      * The "parseStatement" method eats both simple WRITELN statement
-     * And block statements starting with BEGIN and ending with END.
-     * This method also prints the value of the statement.
+     * And block statements starting with BEGIN and ending with END,
+     * as well as IF, WHILE and assignment statements.
      *
-     * Precondition: the current token is at the start of the WRITELN or BEGIN/END statement.
+     * Precondition: the current token is at the start of the statement.
      * Postcondition: the statement token is eaten, the current token is the first token after the statement.
      *
      * @throws IOException error handler for eat method.
      * @throws ScanErrorException error handler for eat method.
      */
-    private Statement parseStatement() throws IOException, ScanErrorException
+    private void parseStatement() throws IOException, ScanErrorException
     {
-        while (currentToken.equals("")) eat(currentToken);
-
-        if (currentToken.equals("WRITELN"))
-        {
-            eat("WRITELN");
-            eat("(");
-            Expression exp = parseExpression();
-            while (currentToken.equals(")")) eat(")");
-            if (currentToken.equals(";")) eat(";");
-            return new Writeln(exp);
-        }
-        else if (currentToken.equals("BEGIN"))
+        switch (currentToken.getType())
         {
-            eat("BEGIN");
-            eat("");
-            ArrayList<Statement> statements = new ArrayList();
-            while (!currentToken.equals("END"))
+            case WRITELN:
             {
-                statements.add(parseStatement());
-
-                if (currentToken.equals("")) eat(currentToken);
+                eat(TokenType.WRITELN);
+                eat(TokenType.LPAREN);
+                parseExpression();
+                eat(TokenType.RPAREN);
+                if (is(TokenType.SEMICOLON)) eat(TokenType.SEMICOLON);
+                builder.writeln();
+                break;
+            }
+            case BEGIN:
+            {
+                eat(TokenType.BEGIN);
+                int count = 0;
+                while (!is(TokenType.END))
+                {
+                    parseStatement();
+                    count++;
+                }
+                eat(TokenType.END);
+                if (is(TokenType.SEMICOLON)) eat(TokenType.SEMICOLON);
+                builder.block(count);
+                break;
+            }
+            case IF:
+            {
+                eat(TokenType.IF);
+                parseCondition();
+                eat(TokenType.THEN);
+                parseStatement();
+                builder.ifStatement();
+                break;
+            }
+            case WHILE:
+            {
+                eat(TokenType.WHILE);
+                parseCondition();
+                eat(TokenType.DO);
+                parseStatement();
+                builder.whileStatement();
+                break;
+            }
+            case IDENTIFIER:
+            {
+                String key = parseIdentifier();
+                eat(TokenType.ASSIGN);
+                parseExpression();
+                if (is(TokenType.SEMICOLON)) eat(TokenType.SEMICOLON);
+                builder.assignment(key);
+                break;
+            }
+            default:
+            {
+                throw new IllegalArgumentException("Unexpected token "+currentToken+" at start of statement");
             }
-            return new Block(statements);
-        }
-        else if (currentToken.equals("IF"))
-        {
-            eat("IF");
-            eat("");
-            Expression e1 = parseExpression();
-            while (currentToken.equals("")) eat("");
-            String ro = currentToken;
-            eat(currentToken);
-            while (currentToken.equals("")) eat("");
-            Expression e2 = parseExpression();
-            while (currentToken.equals("")) eat("");
-            eat("THEN");
-            eat("");
-            Statement state = parseStatement();
-            return new If(new Condition(e1, ro, e2), state);
-        }
-        else if (currentToken.equals("WHILE"))
-        {
-            eat("WHILE");
-            eat("");
-            Expression e1 = parseExpression();
-            while (currentToken.equals("")) eat("");
-            String ro = currentToken;
-            eat(currentToken);
-            while (currentToken.equals("")) eat("");
-            Expression e2 = parseExpression();
-            while (currentToken.equals("")) eat("");
-            eat("DO");
-            eat("");
-            Statement state = parseStatement();
-            return new While(new Condition(e1, ro, e2), state);
-        }
-        else if (!currentToken.equals("END"))
-        {
-            String key = currentToken;
-            eat(currentToken);
-            eat("");
-            eat(":=");
-            eat("");
-            Expression exp = parseExpression();
-            while (currentToken.equals(")")) eat(")");
-            if (currentToken.equals(";")) eat(";");
-            return new Assignment(key, exp);
         }
-        else
+    }
+
+    /**
+     * The "parseCondition" method eats a Condition,
+     * made of two expressions separated by a relational operator.
+     *
+     * @throws IOException error handler for eat method.
+     * @throws ScanErrorException error handler for eat method.
+     */
+    private void parseCondition() throws IOException, ScanErrorException
+    {
+        parseExpression();
+        TokenType ro = currentToken.getType();
+        if (!ro.isRelop())
         {
-            eat("END");
-            eat(";");
-            return null;
+            throw new IllegalArgumentException("Expected relational operator, found "+currentToken);
         }
+        eat(ro);
+        parseExpression();
+
+        builder.condition(ro.getLexeme());
     }
 
     /**
-     * The "parseFactor" method eats and returns a factor,
-     * Where factor refers to any expression that can be multiplied/divided.
+     * The "parseOperand" method eats an operand of an expression:
+     * a number, a variable or a procedure call. The arguments of a call are
+     * parsed as expressions of their own.
      *
-     * @return the value of the factor.
      * @throws IOException error handler for eat method.
      * @throws ScanErrorException error handler for eat method.
      */
-    private Expression parseFactor() throws IOException, ScanErrorException
+    private void parseOperand() throws IOException, ScanErrorException
     {
-        if (currentToken.equals("-"))
+        if (is(TokenType.NUMBER))
         {
-            eat(currentToken);
-            return new BinOp("-", new Number(0), parseFactor());
+            parseNumber();
+            return;
         }
-        else if (currentToken.equals("(") || currentToken.equals(")"))
+        if (!is(TokenType.IDENTIFIER))
         {
-            eat(currentToken);
-            return parseExpression();
+            throw new IllegalArgumentException("Unexpected token "+currentToken+" in expression");
         }
-        else if (currentToken.equals(""))
+
+        String name = parseIdentifier();
+        if (!is(TokenType.LPAREN))
         {
-            eat(currentToken);
-            return parseFactor();
+            builder.variable(name);
+            return;
         }
-        else
-        {
-            try
-            {
-                Integer.parseInt(currentToken);
-            }
-            catch (NumberFormatException n)
-            {
-                String name = currentToken;
-                eat(currentToken);
-                if (currentToken.equals("("))
-                {
-                    eat(currentToken);
-                    ArrayList<Expression> args = new ArrayList<>();
-                    while (!currentToken.equals(")") && !currentToken.equals(";"))
-                    {
-                        args.add(parseExpression());
-                        if (currentToken.equals(",")) eat(currentToken);
-                        if (currentToken.equals("")) eat(currentToken);
-                    }
-
-                    if (currentToken.equals(")")) eat(")");
-                    return new ProcedureCall(name, args);
-                }
-                else
-                {
-                    return new Variable(name);
-                }
-            }
 
-            return parseNumber();
+        eat(TokenType.LPAREN);
+        int count = 0;
+        while (!is(TokenType.RPAREN))
+        {
+            parseExpression();
+            count++;
+            if (is(TokenType.COMMA)) eat(TokenType.COMMA);
         }
+        eat(TokenType.RPAREN);
+
+        builder.call(name, count);
     }
 
     /**
-     * The "parseTerm" method eats and returns the value of a term,
-     * Where a term is any expression that can be added/subtracted.
+     * The "precedence" method gives the binding strength of a binary operator.
      *
-     * @return the value of the term.
-     * @throws IOException error handler for eat method.
-     * @throws ScanErrorException error handler for eat method.
+     * @param type the type of the current token.
+     *
+     * @return 2 for * and /, 1 for + and -, 0 if the token is not a binary operator.
      */
-    private Expression parseTerm() throws IOException, ScanErrorException
+    private static int precedence(TokenType type)
     {
-        Expression term = parseFactor();
-
-        while (currentToken.equals("*") || currentToken.equals("/") || currentToken.equals(""))
+        switch (type)
         {
-            if (currentToken.equals("*"))
-            {
-                eat(currentToken);
-                term = new BinOp("*", term, parseFactor());
-            }
-            else if (currentToken.equals("/"))
-            {
-                eat(currentToken);
-                term = new BinOp("/", term, parseFactor());
-            }
-
-            eat(currentToken);
+            case TIMES:
+            case DIVIDE:
+                return 2;
+            case PLUS:
+            case MINUS:
+                return 1;
+            default:
+                return 0;
         }
+    }
 
-        return term;
+    /**
+     * The "reduce" method pops the operator on top of the operator stack
+     * and reports it to the TreeBuilder, whose operands are already on its stack.
+     * Unary minus becomes 0 - operand, as it always has: its 0 was reported
+     * when the minus was pushed.
+     *
+     * @param operators the operator stack.
+     */
+    private void reduce(ArrayList<TokenType> operators)
+    {
+        TokenType op = operators.remove(operators.size() - 1);
+        builder.binOp(op == null ? "-" : op.getLexeme());
     }
 
     /**
-     * The "parseExpression" method eats and returns the value of an expression,
-     * Where an expression is any mathematical phrase made of terms and factors.
+     * The "parseExpression" method eats an expression,
+     * Where an expression is any mathematical phrase of operands, parentheses,
+     * unary minus and the binary operators + - * /.
+     *
+     * The expression is parsed by precedence climbing over an explicit operator
+     * stack rather than by recursion, so neither long chains of operators nor
+     * deeply nested parentheses grow the Java stack. Before a binary operator is
+     * pushed, every stacked operator that binds at least as tightly is reduced,
+     * which makes all binary operators left-associative. A unary minus (pushed as
+     * null) binds tighter than any binary operator, and an open parenthesis (pushed
+     * as LPAREN) stops reductions until its closing parenthesis arrives. A closing
+     * parenthesis with no open one on the stack ends the expression.
+     * Operands are reported to the TreeBuilder as soon as they are read, and
+     * operators as they are reduced, so the TreeBuilder sees the expression in postfix.
      *
-     * @return the value of the expression.
      * @throws IOException error handler for eat method.
      * @throws ScanErrorException error handler for eat method.
      */
-    private Expression parseExpression() throws IOException, ScanErrorException
+    private void parseExpression() throws IOException, ScanErrorException
     {
-        Expression value = parseTerm();
+        ArrayList<TokenType> operators = new ArrayList<>();
+        int openParens = 0;
 
-        while (currentToken.equals("+") || currentToken.equals("-") || currentToken.equals("") || currentToken.equals(")"))
+        while (true)
         {
-            if (currentToken.equals("+"))
+            if (is(TokenType.MINUS))
+            {
+                eat(TokenType.MINUS);
+                operators.add(null);
+                builder.number(0);
+                continue;
+            }
+            if (is(TokenType.LPAREN))
             {
-                eat(currentToken);
-                return new BinOp("+", value, parseTerm());
+                eat(TokenType.LPAREN);
+                operators.add(TokenType.LPAREN);
+                openParens++;
+                continue;
             }
-            else if (currentToken.equals("-"))
+            parseOperand();
+
+            while (openParens > 0 && is(TokenType.RPAREN))
             {
-                eat(currentToken);
-                return new BinOp("-", value, parseTerm());
+                while (operators.get(operators.size() - 1) != TokenType.LPAREN)
+                {
+                    reduce(operators);
+                }
+                operators.remove(operators.size() - 1);
+                openParens--;
+                eat(TokenType.RPAREN);
             }
 
-            eat(currentToken);
+            int prec = precedence(currentToken.getType());
+            if (prec == 0)
+            {
+                break;
+            }
+            while (!operators.isEmpty() && operators.get(operators.size() - 1) != TokenType.LPAREN
+                    && (operators.get(operators.size() - 1) == null
+                        || precedence(operators.get(operators.size() - 1)) >= prec))
+            {
+                reduce(operators);
+            }
+            operators.add(currentToken.getType());
+            eat(currentToken.getType());
         }
 
-        return value;
+        if (openParens > 0)
+        {
+            throw new IllegalArgumentException("Expected token RPAREN, found "+currentToken);
+        }
+        while (!operators.isEmpty())
+        {
+            reduce(operators);
+        }
     }
 
     /**
@@ -296,44 +475,102 @@ public class Parser
      */
     public Program parseProgram() throws IOException, ScanErrorException
     {
-        ArrayList<ProcedureDeclaration> procedures = new ArrayList<>();
+        ObjectTreeBuilder objects = new ObjectTreeBuilder();
+        parseProgram(objects);
+
+        return objects.getProgram();
+    }
+
+    /**
+     * The "parseProgram" method eats a full Program and reports its nodes,
+     * children first, to the given TreeBuilder. This is how a FlatTree is
+     * built without ever creating the object tree.
+     *
+     * @param out the TreeBuilder that receives the Program.
+     */
+    public void parseProgram(TreeBuilder out) throws IOException, ScanErrorException
+    {
+        builder = out;
+        int count = 0;
 
-        while (currentToken.equals("PROCEDURE"))
+        while (is(TokenType.PROCEDURE))
         {
-            eat(currentToken);
-            eat("");
-            String name = currentToken;
-            eat(currentToken);
-            eat("(");
+            eat(TokenType.PROCEDURE);
+            String name = parseIdentifier();
+            eat(TokenType.LPAREN);
 
             ArrayList<String> params = new ArrayList<>();
-            while (!currentToken.equals(")"))
+            while (!is(TokenType.RPAREN))
             {
-                params.add(currentToken);
-                eat(currentToken);
-                if (currentToken.equals(",")) eat(currentToken);
-                if (currentToken.equals("")) eat(currentToken);
+                params.add(parseIdentifier());
+                if (is(TokenType.COMMA)) eat(TokenType.COMMA);
             }
 
-            eat(")");
-            eat(";");
-            if (currentToken.equals("")) eat(currentToken);
-            Statement contents = parseStatement();
-            if (currentToken.equals("")) eat(currentToken);
+            eat(TokenType.RPAREN);
+            eat(TokenType.SEMICOLON);
+            if (lazy && is(TokenType.BEGIN))
+            {
+                int start = cursor.getPosition() - 1;
+                skipBlock();
+                builder.statement(new LazyBody(tokens, start, builder instanceof FlatTree.Builder));
+            }
+            else
+            {
+                parseStatement();
+            }
 
-            procedures.add(new ProcedureDeclaration(name, contents, params));
-            if (currentToken.equals("END")) eat(currentToken);
-            if (currentToken.equals(";")) eat(currentToken);
-            if (currentToken.equals("")) eat(currentToken);
+            builder.procedure(name, params);
+            count++;
         }
 
-        Statement state = parseStatement();
+        boolean hasBody = hasNext();
+        if (hasBody)
+        {
+            parseStatement();
+        }
 
-        return new Program(procedures, state);
+        builder.program(count, hasBody);
     }
 
     /**
      * Main method for running this Parser.
+     * Usage: java Parser.Parser [-jflex] [-parallel] [-flat] [-lazy] [-O0] [-cache dir] [-engine name] [file]
+     * The program is read from the given file, parserTest8.txt by default.
+     * With -jflex it is lexed by the DFA of Scanner.Scannerabb
+     * instead of the hand-written Scanner.Scanner.
+     * With -parallel it is lexed into a TokenArray by Scanner.TokenArray.lexParallel,
+     * one chunk of the file per task of the common ForkJoinPool, before it is
+     * parsed; -parallel takes the place of -jflex, and also lexes for -lazy.
+     * With -flat it is parsed into an AST.FlatTree and run by its interpreter
+     * instead of being built and run as a tree of AST objects.
+     * Every Program is optimized and has its variables resolved to frame slots
+     * before it runs, unless -O0 is given; a FlatTree is run as parsed.
+     * With -cache the parsed Programs are kept in the given directory, and a
+     * file whose contents have not changed since is run from there without
+     * being scanned or parsed.
+     * With -lazy the file is lexed into a TokenArray by Scanner.Scanner first, and each procedure
+     * body is parsed only when the procedure is first called; -lazy has no
+     * effect together with -cache, which records every body in full.
+     * With -engine vm each Program is compiled to VM.Bytecode and run by
+     * the VM.VirtualMachine; with -engine jit the Bytecode is further
+     * translated by VM.Jit into a JVM class, so HotSpot compiles it to machine
+     * code. With -engine closure the AST is turned into a tree of
+     * AST.Closure lambdas before it runs. With -engine stack the Bytecode is
+     * run by a VM.Machine, which keeps calls in the heap rather than on the
+     * Java stack, up to the number of bytes given with -budget, and yields
+     * the thread every VM.Machine.SLICE instructions. It cannot be given
+     * with -flat, or with -lazy unless -cache is, since a FlatTree or a body
+     * parsed on its first call has no Bytecode and would run its calls on
+     * the Java stack.
+     * The default engine, tree, walks the AST.
+     * With -memo and a comma-separated list of names, each of those
+     * procedures that is found to be a function of its arguments alone
+     * caches its results in an AST.Memo of -memosize entries, least recently
+     * used first out; the hits and misses are printed at the end. Memoizing
+     * needs resolved procedures, so it has no effect with -O0.
+     * Unless -O0 is given, calls of procedures of at most AST.Inliner.DEFAULT_THRESHOLD
+     * nodes in the body of a Program are replaced by the procedures' bodies;
+     * -inline sets the number of nodes, and -inline 0 turns inlining off.
      *
      * @param args String arguments for main method.
      *
@@ -343,19 +580,185 @@ public class Parser
      */
     public static void main(String[] args) throws FileNotFoundException, IOException, ScanErrorException
     {
-        FileInputStream inStream =
-                new FileInputStream(new File("parserTest8.txt"));
-        Scanner lex = new Scanner(inStream);
-        Parser par = new Parser(lex);
+        String fileName = "parserTest8.txt";
+        String cacheDir = null;
+        boolean jflex = false;
+        boolean parallel = false;
+        boolean flat = false;
+        boolean lazy = false;
+        boolean optimize = true;
+        String engine = "tree";
+        long budget = Machine.DEFAULT_BUDGET;
+        String[] memoNames = new String[0];
+        int memoSize = Memo.DEFAULT_CAPACITY;
+        int inlineSize = Inliner.DEFAULT_THRESHOLD;
+        for (int i = 0; i < args.length; i++)
+        {
+            if (args[i].equals("-jflex"))
+                jflex = true;
+            else if (args[i].equals("-parallel"))
+                parallel = true;
+            else if (args[i].equals("-flat"))
+                flat = true;
+            else if (args[i].equals("-lazy"))
+                lazy = true;
+            else if (args[i].equals("-O0"))
+                optimize = false;
+            else if (args[i].equals("-cache") && i + 1 < args.length)
+                cacheDir = args[++i];
+            else if (args[i].equals("-engine") && i + 1 < args.length)
+                engine = args[++i];
+            else if (args[i].equals("-budget") && i + 1 < args.length)
+                budget = Long.parseLong(args[++i]);
+            else if (args[i].equals("-memo") && i + 1 < args.length)
+                memoNames = args[++i].split(",");
+            else if (args[i].equals("-memosize") && i + 1 < args.length)
+                memoSize = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-inline") && i + 1 < args.length)
+                inlineSize = Integer.parseInt(args[++i]);
+            else
+                fileName = args[i];
+        }
+        if (engine.equals("stack") && (flat || (lazy && cacheDir == null)))
+            throw new IllegalArgumentException("-engine stack cannot run " + (flat ? "-flat" : "-lazy")
+                    + " trees, whose calls recurse on the Java stack");
+
         Environment env = new Environment(null);
+        LinkedHashMap<String, Memo> memos = new LinkedHashMap<>();
+        for (String name: memoNames)
+        {
+            memos.put(name, new Memo(memoSize));
+        }
+        ObjectTreeBuilder objects = new ObjectTreeBuilder();
+        FlatTree.Builder flatBuilder = new FlatTree.Builder();
+        TreeBuilder target = flat ? flatBuilder : objects;
 
-        while(lex.hasNext())
+        TreeCache cache = null;
+        String key = null;
+        if (cacheDir != null)
         {
-            Statement prog = par.parseProgram();
-            if (prog != null)
+            cache = new TreeCache(new File(cacheDir));
+            key = cache.key(new File(fileName));
+            List<Statement> cached = cache.load(key, flat);
+            if (cached != null)
             {
+                for (Statement prog: cached)
+                {
+                    run(prog, optimize, inlineSize, engine, budget, memos, env);
+                }
+                report(memos);
+                return;
+            }
+        }
+
+        Parser par;
+        if (parallel)
+        {
+            par = new Parser(TokenArray.lexParallel(new File(fileName), ForkJoinPool.commonPool()));
+            par.setLazy(lazy && cache == null);
+        }
+        else if (lazy && cache == null)
+        {
+            par = new Parser(TokenArray.lex(new Scanner(new File(fileName))));
+            par.setLazy(true);
+        }
+        else if (jflex)
+            par = new Parser(new Scannerabb(new BufferedReader(new FileReader(fileName))));
+        else
+            par = new Parser(new Scanner(new File(fileName)));
+
+        ByteArrayOutputStream recorded = null;
+        TreeWriter writer = null;
+        if (cache != null)
+        {
+            recorded = new ByteArrayOutputStream();
+            writer = new TreeWriter(recorded, target);
+            target = writer;
+        }
+
+        while(par.hasNext())
+        {
+            par.parseProgram(target);
+            run(flat ? flatBuilder.getTree() : objects.getProgram(), optimize, inlineSize, engine, budget, memos, env);
+        }
+        report(memos);
+
+        if (writer != null)
+        {
+            writer.finish();
+            cache.store(key, recorded.toByteArray());
+        }
+    }
+
+    /**
+     * The "report" method prints the hits and misses of every Memo to
+     * System.err, once the Programs have run.
+     *
+     * @param memos the Memo of every procedure that was to be memoized, by name.
+     */
+    private static void report(Map<String, Memo> memos)
+    {
+        for (Map.Entry<String, Memo> entry: memos.entrySet())
+        {
+            Memo memo = entry.getValue();
+            System.err.println("memo " + entry.getKey() + ": " + memo.getHits() + " hits, "
+                               + memo.getMisses() + " misses, " + memo.size() + " cached");
+        }
+    }
+
+    /**
+     * The "run" method executes a Program built by main with the given engine,
+     * after optimizing it, inlining its small procedures and resolving its
+     * variables to frame slots if asked to.
+     *
+     * @param prog     the Program, either a tree of AST objects or a FlatTree.
+     * @param optimize true to optimize the Program first.
+     * @param inline   the number of nodes a procedure may have and still be inlined.
+     * @param engine   the name of the engine that runs the Program.
+     * @param budget   the memory budget of the stack engine, in bytes.
+     * @param memos    the Memo of every procedure to be memoized, by name.
+     * @param env      the Environment in which to execute the Program.
+     */
+    private static void run(Statement prog, boolean optimize, int inline, String engine, long budget,
+                            Map<String, Memo> memos, Environment env)
+    {
+        if (optimize)
+        {
+            Scope scope = new Scope(env);
+            prog = prog.optimize().inlineCalls(scope, inline).resolve(scope).memoize(memos);
+        }
+        switch (engine)
+        {
+            case "tree":
                 prog.exec(env);
+                break;
+            case "vm":
+                VirtualMachine.run(Emitter.compile(prog), env);
+                break;
+            case "closure":
+                prog.closure().exec(env);
+                break;
+            case "stack":
+            {
+                Machine machine = new Machine(Emitter.compile(prog), env, budget);
+                while (!machine.run(Machine.SLICE))
+                {
+                    Thread.yield();
+                }
+                break;
+            }
+            case "jit":
+            {
+                Bytecode bytecode = Emitter.compile(prog);
+                JitCode code = Jit.compile(bytecode);
+                if (code != null)
+                    code.run(env);
+                else
+                    VirtualMachine.run(bytecode, env);
+                break;
             }
+            default:
+                throw new IllegalArgumentException("Unknown engine "+engine);
         }
     }
 }
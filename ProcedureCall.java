@@ -1,14 +1,21 @@
 package AST;
 
 import Environment.Environment;
+import Environment.ProcedureCell;
+import VM.Emitter;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * The ProcedureCall class represents a call to a Procedure,
  * denoted by name(); and executes the statement inside the given Procedure.
  * ProcedureCall is an instance of an Expression.
+ * The first call links the call site to the ProcedureCell of its name, and
+ * later calls go through the cell with no lookup by name. A resolved
+ * Procedure has its frame pushed first and the arguments written into it.
  *
  * @author Annabelle Ju
  * @version 04/17/2020
@@ -17,6 +24,7 @@ public class ProcedureCall extends Expression
 {
     private String name;
     private List<Expression> parameters;
+    private ProcedureCell site;
 
     /**
      * Constructor for object sof class ProcedureCall.
@@ -38,24 +46,254 @@ public class ProcedureCall extends Expression
     @Override
     public int eval(Environment env)
     {
-        Environment local = new Environment(env);
+        ProcedureDeclaration dec = link(env).get();
+        if (dec.hasLayout(parameters.size()))
+        {
+            Environment frame = dec.push(env);
+            for (int i = 0; i < parameters.size(); i++)
+            {
+                dec.setArgument(frame, i, parameters.get(i).eval(env));
+            }
+            return dec.call(frame);
+        }
+
+        int[] arguments = new int[parameters.size()];
+        for (int i = 0; i < arguments.length; i++)
+        {
+            arguments[i] = parameters.get(i).eval(env);
+        }
 
-        Statement procedure = env.getProcedure(name);
-        ArrayList<Integer> arguments = new ArrayList<>();
-        List<String> paramNames = env.getParamNames(name);
+        return dec.invoke(env, arguments);
+    }
 
+    /**
+     * Helper method: link retrieves the ProcedureCell of the name, linking
+     * this call site to it first if it is not yet linked to the cell of the
+     * global Environment in use.
+     */
+    private ProcedureCell link(Environment env)
+    {
+        ProcedureCell cell = site;
+        if (cell == null || cell.getOwner() != env.getGlobal())
+        {
+            cell = env.getProcedureCell(name);
+            site = cell;
+        }
+        return cell;
+    }
+
+    /**
+     * Optimizes the argument Expressions of this ProcedureCall.
+     *
+     * @return the optimized ProcedureCall.
+     */
+    @Override
+    public Expression optimize()
+    {
+        ArrayList<Expression> args = new ArrayList<>();
+        for (Expression e: parameters)
+        {
+            args.add(e.optimize());
+        }
+        return new ProcedureCall(name, args);
+    }
+
+    /**
+     * Resolves the argument Expressions of this ProcedureCall.
+     *
+     * @param scope the Scope in which this Expression is evaluated.
+     *
+     * @return the resolved ProcedureCall.
+     */
+    @Override
+    public Expression resolve(Scope scope)
+    {
+        ArrayList<Expression> args = new ArrayList<>();
         for (Expression e: parameters)
         {
-            arguments.add(e.eval(env));
+            args.add(e.resolve(scope));
+        }
+        scope.call(name);
+        return new ProcedureCall(name, args);
+    }
+
+    /**
+     * Emits the arguments, then the call.
+     *
+     * @param e the Emitter that receives the code.
+     */
+    @Override
+    public void compile(Emitter e)
+    {
+        for (Expression exp: parameters)
+        {
+            exp.compile(e);
+        }
+        e.emitCall(name, parameters.size());
+    }
+
+    /**
+     * Builds the Value that computes the arguments and calls the Procedure
+     * held by the cell of the name at the time of the call.
+     *
+     * @return the Value.
+     */
+    @Override
+    public Closure.Value closure()
+    {
+        Closure.Value[] args = new Closure.Value[parameters.size()];
+        for (int i = 0; i < args.length; i++)
+        {
+            args[i] = parameters.get(i).closure();
+        }
+        return env ->
+        {
+            ProcedureDeclaration dec = link(env).get();
+            if (dec.hasLayout(args.length))
+            {
+                Environment frame = dec.push(env);
+                for (int i = 0; i < args.length; i++)
+                {
+                    dec.setArgument(frame, i, args[i].eval(env));
+                }
+                return dec.call(frame);
+            }
+            int[] values = new int[args.length];
+            for (int i = 0; i < values.length; i++)
+            {
+                values[i] = args[i].eval(env);
+            }
+            return dec.invoke(env, values);
+        };
+    }
+
+    /**
+     * Retrieves the name of the Procedure called.
+     *
+     * @return the name.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Retrieves the argument Expressions of this call.
+     *
+     * @return the arguments.
+     */
+    public List<Expression> getArguments()
+    {
+        return parameters;
+    }
+
+    /**
+     * Retrieves the Procedure this call would call now.
+     *
+     * @param env the Environment of the caller.
+     *
+     * @return the declaration held by the cell of the name.
+     */
+    public ProcedureDeclaration target(Environment env)
+    {
+        return link(env).get();
+    }
+
+    /**
+     * Adds the name of the procedure to those called, and collects the
+     * names read by the arguments.
+     *
+     * @param reads the set the names of the variables are added to.
+     * @param calls the set the names of the procedures are added to.
+     *
+     * @return false if the names of any argument cannot be known.
+     */
+    @Override
+    public boolean readNames(Set<String> reads, Set<String> calls)
+    {
+        calls.add(name);
+        boolean known = true;
+        for (Expression exp: parameters)
+        {
+            known &= exp.readNames(reads, calls);
         }
+        return known;
+    }
 
-        local.setVariable(name, 0);
-        for (int i = 0; i < arguments.size(); i++)
+    /**
+     * A ProcedureCall is local if it calls one of the given procedures on
+     * local arguments.
+     *
+     * @param callable the names of the procedures it may call.
+     *
+     * @return true if the call is local.
+     */
+    @Override
+    public boolean isLocal(Set<String> callable)
+    {
+        if (!callable.contains(name))
+        {
+            return false;
+        }
+        for (Expression exp: parameters)
         {
-            local.declareVariable(paramNames.get(i), arguments.get(i));
+            if (!exp.isLocal(callable))
+            {
+                return false;
+            }
         }
+        return true;
+    }
+
+    /**
+     * Counts this call and the nodes of its arguments.
+     *
+     * @return the number of nodes.
+     */
+    @Override
+    public int size()
+    {
+        int size = 1;
+        for (Expression exp: parameters)
+        {
+            size += exp.size();
+        }
+        return size;
+    }
+
+    /**
+     * Substitutes the variables of the arguments.
+     *
+     * @param map the Expression that replaces each variable.
+     *
+     * @return the new ProcedureCall.
+     */
+    @Override
+    public Expression substitute(Map<String, Expression> map)
+    {
+        ArrayList<Expression> args = new ArrayList<>();
+        for (Expression exp: parameters)
+        {
+            args.add(exp.substitute(map));
+        }
+        return new ProcedureCall(name, args);
+    }
 
-        local.getProcedure(name).exec(local);
-        return local.getVariable(name);
+    /**
+     * Inlines the calls in the arguments, then this call if the Inliner can.
+     *
+     * @param inliner the Inliner.
+     *
+     * @return the Expression that replaces this call.
+     */
+    @Override
+    public Expression inline(Inliner inliner)
+    {
+        ArrayList<Expression> args = new ArrayList<>();
+        for (Expression exp: parameters)
+        {
+            args.add(exp.inline(inliner));
+        }
+        return inliner.call(new ProcedureCall(name, args));
     }
 }
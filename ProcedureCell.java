@@ -0,0 +1,60 @@
+package Environment;
+
+import AST.ProcedureDeclaration;
+
+/**
+ * The ProcedureCell class holds the declaration currently bound to one
+ * procedure name in a global Environment. A call site links to the cell of
+ * its name once and calls whatever the cell holds from then on; declaring
+ * the procedure again replaces the contents of the cell, so every linked
+ * call site sees the new declaration without being linked again.
+ *
+ * @author Annabelle Ju
+ * @version 04/17/2020
+ */
+public class ProcedureCell
+{
+    private Environment owner;
+    private ProcedureDeclaration procedure;
+
+    /**
+     * Constructor for objects of class ProcedureCell.
+     *
+     * @param env the global Environment the cell belongs to.
+     */
+    ProcedureCell(Environment env)
+    {
+        owner = env;
+    }
+
+    /**
+     * Retrieves the global Environment the cell belongs to, which a call
+     * site compares to its own to tell whether its link is still good.
+     *
+     * @return the global Environment.
+     */
+    public Environment getOwner()
+    {
+        return owner;
+    }
+
+    /**
+     * Retrieves the declaration bound to the name.
+     *
+     * @return the declaration, or null if none has been declared yet.
+     */
+    public ProcedureDeclaration get()
+    {
+        return procedure;
+    }
+
+    /**
+     * Binds the name to a declaration.
+     *
+     * @param dec the declaration.
+     */
+    void set(ProcedureDeclaration dec)
+    {
+        procedure = dec;
+    }
+}
@@ -1,14 +1,24 @@
 package AST;
 
 import Environment.Environment;
+import VM.Emitter;
+import Environment.SlotMap;
 
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * The ProcedureDeclaration class represents the instigation
  * of a Procedure, denoted by PROCEDURE name(); and including
  * a single statement as its contents.
  * ProcedureDeclaration is an instance of a Statement.
+ * Once resolved, a ProcedureDeclaration also knows the slot of each of
+ * its variables, and every call gets a frame laid out that way on the FrameStack.
+ * It keeps the declaration it was resolved from, so that it can be resolved
+ * again when a later Program declares procedures that use the same names.
+ * A resolved ProcedureDeclaration found to be a function of its arguments
+ * alone may carry a Memo, which then answers the calls it has seen before.
  *
  * @author Annabelle Ju
  * @version 04/17/2020
@@ -18,6 +28,13 @@ public class ProcedureDeclaration extends Statement
     private String name;
     private Statement contents;
     private List<String> parameters;
+    private SlotMap layout;
+    private int[] paramSlots;
+    private Set<String> pureGroup;
+    private Memo memo;
+    private ProcedureDeclaration source;
+    private Set<String> own;
+    private Set<String> globalReads;
 
     /**
      * Constructor for objects of class ProcedureDeclaration.
@@ -31,16 +48,581 @@ public class ProcedureDeclaration extends Statement
         parameters = l;
     }
 
+    /**
+     * Constructor for objects of class ProcedureDeclaration
+     * whose variables have been resolved to slots.
+     *
+     * @param str   the name of this Procedure.
+     * @param s     the resolved statement carried by this Procedure.
+     * @param l     the names of the parameters.
+     * @param slots the slot of every variable of this Procedure.
+     * @param ps    the slot of every parameter.
+     */
+    private ProcedureDeclaration(String str, Statement s, List<String> l,
+                                 SlotMap slots, int[] ps)
+    {
+        this(str, s, l);
+        layout = slots;
+        paramSlots = ps;
+    }
+
+    /**
+     * Constructor for objects of class ProcedureDeclaration resolved from another.
+     *
+     * @param from  the declaration that was resolved.
+     * @param s     the resolved statement carried by this Procedure.
+     * @param slots the slot of every variable of this Procedure.
+     * @param ps    the slot of every parameter.
+     * @param mine  the variables this Procedure assigns that are its own.
+     * @param reads the globals this Procedure reads by their addresses.
+     */
+    private ProcedureDeclaration(ProcedureDeclaration from, Statement s, SlotMap slots, int[] ps,
+                                 Set<String> mine, Set<String> reads)
+    {
+        this(from.name, s, from.parameters, slots, ps);
+        source = from;
+        own = mine;
+        globalReads = reads;
+    }
+
+    /**
+     * Constructor for objects of class ProcedureDeclaration that copies
+     * another declaration, for subclasses that call it differently.
+     *
+     * @param other the declaration to be copied.
+     */
+    protected ProcedureDeclaration(ProcedureDeclaration other)
+    {
+        this(other.name, other.contents, other.parameters, other.layout, other.paramSlots);
+        pureGroup = other.pureGroup;
+        memo = other.memo;
+        source = other.source;
+        own = other.own;
+        globalReads = other.globalReads;
+    }
+
+    /**
+     * Retrieves the name of this Procedure.
+     *
+     * @return the name.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Retrieves the Statement carried by this Procedure.
+     *
+     * @return the Statement.
+     */
+    Statement getContents()
+    {
+        return contents;
+    }
+
+    /**
+     * Retrieves the names of the parameters of this Procedure.
+     *
+     * @return the names of the parameters.
+     */
+    List<String> getParameters()
+    {
+        return parameters;
+    }
+
+    /**
+     * Tells whether every variable this Procedure assigns, its result
+     * included, would be its own if it were resolved in the given Scope,
+     * so that no frame but its own ever sees them.
+     *
+     * @param scope the Scope of the Program declaring this Procedure.
+     *
+     * @return true if the Procedure owns all the variables it assigns.
+     */
+    boolean ownsVariables(Scope scope)
+    {
+        LinkedHashSet<String> assigned = new LinkedHashSet<>();
+        if (!contents.assignedNames(assigned) || !scope.canKeepResult(name))
+        {
+            return false;
+        }
+        assigned.remove(name);
+        assigned.removeAll(parameters);
+        if (assigned.isEmpty())
+        {
+            return true;
+        }
+        ProcedureDeclaration resolved = (ProcedureDeclaration) resolve(scope);
+        return resolved.own != null && resolved.own.containsAll(assigned);
+    }
+
+    /**
+     * Collects the variables this Procedure uses, as it was declared.
+     *
+     * @param binds the set its name, its parameters and the variables it assigns are added to.
+     * @param reads the set the variables it reads are added to.
+     * @param calls the set the names of the procedures it calls are added to.
+     *
+     * @return false if the variables cannot be known before it runs.
+     */
+    boolean usage(Set<String> binds, Set<String> reads, Set<String> calls)
+    {
+        ProcedureDeclaration dec = source == null ? this : source;
+        binds.add(name);
+        binds.addAll(parameters);
+        boolean assigns = dec.contents.assignedNames(binds);
+        return dec.contents.readNames(reads, calls) && assigns;
+    }
+
     /**
      * Executes this ProcedureDeclaration by setting the name of
-     * the Procedure to its corresponding Statement.
+     * the Procedure to this declaration.
      *
      * @param env the Environment in which to execute the Statement.
      */
     @Override
     public void exec(Environment env)
     {
-        env.setProcedure(name, contents);
-        env.setParamNames(name, parameters);
+        env.setProcedure(name, this);
+    }
+
+    /**
+     * Calls this Procedure: the parameters are set to the arguments in a new
+     * Environment, the Statement is executed there, and the value of the
+     * variable named after the Procedure is returned.
+     * A resolved Procedure gets its frame from the FrameStack instead,
+     * unless the number of arguments differs from that of its parameters:
+     * a parameter left without an argument is not in the frame of the call,
+     * so it is looked up in the caller, and the Procedure runs as it was
+     * declared.
+     *
+     * @param caller the Environment of the caller.
+     * @param args   the values of the arguments.
+     *
+     * @return the result of the Procedure.
+     */
+    public int invoke(Environment caller, int[] args)
+    {
+        if (layout != null && args.length != paramSlots.length)
+        {
+            return source.invoke(caller, args);
+        }
+        Environment frame = enter(caller, args);
+        if (layout != null)
+        {
+            return call(frame);
+        }
+        run(frame);
+        return leave(frame);
+    }
+
+    /**
+     * Sets up the frame of a call of this Procedure, resolved or not, with
+     * the parameters set to the arguments, for a caller that runs the body
+     * itself and then calls leave.
+     *
+     * @param caller the Environment of the caller.
+     * @param args   the values of the arguments.
+     *
+     * @return the frame of the call.
+     */
+    public Environment enter(Environment caller, int[] args)
+    {
+        if (layout != null)
+        {
+            Environment frame = push(caller);
+            for (int i = 0; i < args.length; i++)
+            {
+                setArgument(frame, i, args[i]);
+            }
+            return frame;
+        }
+
+        Environment local = new Environment(caller);
+        local.setVariable(name, 0);
+        for (int i = 0; i < args.length; i++)
+        {
+            local.declareVariable(parameters.get(i), args[i]);
+        }
+        return local;
+    }
+
+    /**
+     * Reads the result of a call set up by enter once the body has run,
+     * popping the frame of a resolved Procedure.
+     *
+     * @param frame the frame of the call.
+     *
+     * @return the result of the Procedure.
+     */
+    public int leave(Environment frame)
+    {
+        if (layout != null)
+        {
+            return finish(frame);
+        }
+        return frame.getVariable(name);
+    }
+
+    /**
+     * Tells whether this Procedure has been resolved and has as many
+     * parameters as a call has arguments, so that the caller can push its
+     * frame, write the arguments straight into it and call it with no int
+     * array of arguments: push, setArgument, then call. A call on fewer
+     * arguments must go through invoke, which reads the other parameters
+     * from the caller by name.
+     *
+     * @param count the number of arguments of the call.
+     *
+     * @return true if the frame of the call can be pushed.
+     */
+    public boolean hasLayout(int count)
+    {
+        return layout != null && count == paramSlots.length;
+    }
+
+    /**
+     * Tells whether a call on the given number of arguments runs the
+     * Statement this Procedure carries. A resolved Procedure called on a
+     * number of arguments other than that of its parameters runs as it
+     * was declared instead, through invoke.
+     *
+     * @param count the number of arguments of the call.
+     *
+     * @return true if the call runs this Procedure's own Statement.
+     */
+    public boolean accepts(int count)
+    {
+        return layout == null || count == paramSlots.length;
+    }
+
+    /**
+     * Pushes the frame of a call of this resolved Procedure, with every
+     * variable set to 0. The arguments may be computed after the frame is
+     * pushed, since any call made meanwhile pops its own frame again.
+     *
+     * @param caller the Environment of the caller.
+     *
+     * @return the frame of the call.
+     */
+    public Environment push(Environment caller)
+    {
+        return caller.push(layout);
+    }
+
+    /**
+     * Sets a parameter of this resolved Procedure in the frame of a call.
+     *
+     * @param frame the frame of the call.
+     * @param i     the position of the parameter.
+     * @param value the value of the argument.
+     */
+    public void setArgument(Environment frame, int i, int value)
+    {
+        frame.getValues()[frame.getBase() + paramSlots[i]] = value;
+    }
+
+    /**
+     * Runs this resolved Procedure in a frame pushed by push, then pops the frame.
+     * The Statement is run again for as long as a TailCall restarts the frame.
+     * A memoized Procedure is first looked up in its Memo.
+     *
+     * @param frame the frame of the call.
+     *
+     * @return the result of the Procedure.
+     */
+    public int call(Environment frame)
+    {
+        if (memo != null && memo.isValid(frame))
+        {
+            int[] args = new int[paramSlots.length];
+            for (int i = 0; i < args.length; i++)
+            {
+                args[i] = frame.getValues()[frame.getBase() + paramSlots[i]];
+            }
+            Integer cached = memo.lookup(args);
+            if (cached != null)
+            {
+                frame.pop();
+                return cached;
+            }
+            int result = complete(frame);
+            memo.store(args, result);
+            return result;
+        }
+        return complete(frame);
+    }
+
+    /**
+     * Helper method: complete runs the Statement of this resolved Procedure
+     * until no TailCall restarts the frame, then pops the frame.
+     */
+    private int complete(Environment frame)
+    {
+        do
+        {
+            run(frame);
+        }
+        while (frame.takeRestart());
+        return finish(frame);
+    }
+
+    /**
+     * Retrieves the result cache of this Procedure.
+     *
+     * @return the Memo, or null if the Procedure is not memoized.
+     */
+    public Memo getMemo()
+    {
+        return memo;
+    }
+
+    /**
+     * Retrieves the group of pure procedures this one was found pure with.
+     *
+     * @return the names of the group, or null if the Procedure is not known to be pure.
+     */
+    Set<String> getPureGroup()
+    {
+        return pureGroup;
+    }
+
+    /**
+     * Tells whether this resolved Procedure is a function of its arguments
+     * alone, provided the given procedures are.
+     *
+     * @param callable the names of the procedures it may call.
+     *
+     * @return true if the Statement of the Procedure is local.
+     */
+    boolean isPureWith(Set<String> callable)
+    {
+        return layout != null && contents.isLocal(callable);
+    }
+
+    /**
+     * Copies this Procedure as a member of a group of pure procedures,
+     * with a Memo if it is to be memoized.
+     *
+     * @param group the names of the group.
+     * @param m     the Memo, or null.
+     *
+     * @return the copy.
+     */
+    ProcedureDeclaration pure(Set<String> group, Memo m)
+    {
+        ProcedureDeclaration copy = new ProcedureDeclaration(this);
+        copy.pureGroup = group;
+        copy.memo = m;
+        if (m != null)
+        {
+            m.attach(group);
+        }
+        return copy;
+    }
+
+    /**
+     * Tells whether a TailCall of this Procedure may reuse a frame, that is,
+     * whether the frame is laid out as this Procedure's frames are, which
+     * holds only for frames of this declaration and of its copies.
+     *
+     * @param frame the frame in which the TailCall runs.
+     *
+     * @return true if the frame can be restarted for this Procedure.
+     */
+    public boolean canRestart(Environment frame)
+    {
+        return layout != null && frame.hasLayout(layout);
+    }
+
+    /**
+     * Reads the result of a call of this resolved Procedure out of its
+     * frame, after the Statement has run, and pops the frame.
+     *
+     * @param frame the frame of the call.
+     *
+     * @return the result of the Procedure.
+     */
+    public int finish(Environment frame)
+    {
+        int result = frame.getValues()[frame.getBase()];
+        frame.pop();
+        return result;
+    }
+
+    /**
+     * Executes the Statement carried by this Procedure in the frame of a
+     * call; subclasses that run the body differently override this.
+     *
+     * @param frame the frame of the call.
+     */
+    protected void run(Environment frame)
+    {
+        contents.exec(frame);
+    }
+
+    /**
+     * Optimizes the Statement carried by this Procedure.
+     *
+     * @return the optimized ProcedureDeclaration.
+     */
+    @Override
+    public Statement optimize()
+    {
+        return new ProcedureDeclaration(name, contents.optimize(), parameters);
+    }
+
+    /**
+     * Resolves this Procedure. Its own name gets slot 0, its parameters the
+     * next slots, and the variables it assigns that the Scope lets it own
+     * the rest. A variable it reads before surely assigning it is given up,
+     * and the Statement resolved again, until none is. Its calls of itself
+     * become TailCalls only if it assigns nothing but its name and its
+     * parameters: any other variable is assigned by name, in the frame of
+     * the caller that holds it, which a TailCall running in the same frame
+     * would not be.
+     * A Procedure whose assigned variables cannot be known, or whose result
+     * is not its own as the Scope tells, is left as it is.
+     *
+     * @param scope the Scope of the Program declaring this Procedure.
+     *
+     * @return the resolved ProcedureDeclaration.
+     */
+    @Override
+    public Statement resolve(Scope scope)
+    {
+        if (source != null)
+        {
+            return source.resolve(scope);
+        }
+        LinkedHashSet<String> assigned = new LinkedHashSet<>();
+        if (!contents.assignedNames(assigned) || !scope.canKeepResult(name))
+        {
+            return this;
+        }
+
+        LinkedHashSet<String> mine = new LinkedHashSet<>();
+        for (String var: assigned)
+        {
+            if (!var.equals(name) && !parameters.contains(var) && scope.canOwn(name, var))
+            {
+                mine.add(var);
+            }
+        }
+        while (true)
+        {
+            SlotMap slots = new SlotMap();
+            slots.add(name);
+            int[] ps = new int[parameters.size()];
+            for (int i = 0; i < ps.length; i++)
+            {
+                ps[i] = slots.add(parameters.get(i));
+            }
+            for (String var: mine)
+            {
+                slots.add(var);
+            }
+
+            Scope inner = new Scope(scope, name, slots, mine);
+            Statement body = contents.resolve(inner);
+            if (inner.sharesResult())
+            {
+                return this;
+            }
+            if (inner.getEscaped().isEmpty())
+            {
+                assigned.remove(name);
+                assigned.removeAll(parameters);
+                if (assigned.isEmpty())
+                {
+                    body = body.tailCalls(name, parameters.size());
+                }
+                return new ProcedureDeclaration(this, body, slots, ps, mine, inner.getGlobalReads());
+            }
+            mine.removeAll(inner.getEscaped());
+        }
+    }
+
+    /**
+     * Checks this resolved Procedure, declared by an earlier Program, against
+     * the Scope of a later one, which may use the names of its own variables,
+     * including its own name, or assign the globals it reads by their addresses.
+     *
+     * @param scope the Scope of the later Program.
+     *
+     * @return the Procedure resolved again, or as it was declared if it can no
+     *         longer be resolved, or null if it is still resolved soundly.
+     */
+    ProcedureDeclaration revise(Scope scope)
+    {
+        if (source == null)
+        {
+            return null;
+        }
+        ProcedureDeclaration again = (ProcedureDeclaration) source.resolve(scope);
+        if (again.source != null && again.own.containsAll(own) && again.globalReads.containsAll(globalReads))
+        {
+            return null;
+        }
+        return again;
+    }
+
+    /**
+     * Compiles the Statement carried by this Procedure, and emits
+     * the declaration of the compiled Procedure.
+     *
+     * @param e the Emitter that receives the code.
+     */
+    @Override
+    public void compile(Emitter e)
+    {
+        e.emitDeclaration(this, contents);
+    }
+
+    /**
+     * Builds the Action that declares this Procedure with its Statement
+     * turned into an Action once, ahead of any call.
+     *
+     * @return the Action.
+     */
+    @Override
+    public Closure.Action closure()
+    {
+        ProcedureDeclaration closed = new Closed(this, contents.closure());
+        String n = name;
+        return env -> env.setProcedure(n, closed);
+    }
+
+    /**
+     * Closed is a ProcedureDeclaration whose Statement has been turned into
+     * an Action, which it carries out in place of the Statement.
+     */
+    private static final class Closed extends ProcedureDeclaration
+    {
+        private final Closure.Action body;
+
+        /**
+         * Constructor for objects of class Closed.
+         *
+         * @param dec the declaration the Action was built from.
+         * @param a   the Action of its Statement.
+         */
+        Closed(ProcedureDeclaration dec, Closure.Action a)
+        {
+            super(dec);
+            body = a;
+        }
+
+        /**
+         * Carries out the Action of this Procedure in the frame of a call.
+         *
+         * @param frame the frame of the call.
+         */
+        @Override
+        protected void run(Environment frame)
+        {
+            body.exec(frame);
+        }
     }
 }
@@ -1,8 +1,13 @@
 package AST;
 
 import Environment.Environment;
+import VM.Emitter;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 /**
  * The Program class serves as the root of this abstract
@@ -42,4 +47,178 @@ public class Program extends Statement
             body.exec(env);
         }
     }
+
+    /**
+     * Optimizes the ProcedureDeclarations and body Statement of this Program.
+     *
+     * @return the optimized Program.
+     */
+    @Override
+    public Program optimize()
+    {
+        ArrayList<ProcedureDeclaration> list = new ArrayList<>();
+        for (ProcedureDeclaration dec: procedures)
+        {
+            list.add((ProcedureDeclaration) dec.optimize());
+        }
+        return new Program(list, body == null ? null : body.optimize());
+    }
+
+    /**
+     * Resolves the ProcedureDeclarations and body Statement of this Program.
+     * The Program is declared to the Scope first, so that the procedures can
+     * tell their own variables from those others may see. The body is
+     * resolved before the procedures, which learn from it the globals surely
+     * assigned whenever they are called. A procedure of an earlier Program
+     * whose resolution this Program makes unsound is declared again, resolved anew.
+     *
+     * @param scope the Scope of the global Environment.
+     *
+     * @return the resolved Program.
+     */
+    @Override
+    public Program resolve(Scope scope)
+    {
+        scope.declare(procedures, body);
+        Statement main = body == null ? null : body.resolve(scope);
+        scope.end();
+
+        ArrayList<ProcedureDeclaration> list = new ArrayList<>();
+        for (ProcedureDeclaration dec: scope.getEarlier())
+        {
+            ProcedureDeclaration again = dec.revise(scope);
+            if (again != null)
+            {
+                list.add(again);
+            }
+        }
+        for (ProcedureDeclaration dec: procedures)
+        {
+            list.add((ProcedureDeclaration) dec.resolve(scope));
+        }
+        return new Program(list, main);
+    }
+
+    /**
+     * Inlines the calls of the small procedures of this Program in its body,
+     * then optimizes the body again, since arguments may now meet constants.
+     * The bodies of the procedures keep their calls: a procedure may still
+     * be called after a later Program declares a callee again, whereas the
+     * body runs right after the declarations it was inlined from.
+     *
+     * @param scope     the Scope of the global Environment.
+     * @param threshold the number of nodes a procedure may have and still be inlined.
+     *
+     * @return the Program with calls inlined.
+     */
+    @Override
+    public Program inlineCalls(Scope scope, int threshold)
+    {
+        if (body == null)
+        {
+            return this;
+        }
+        scope.declare(procedures, body);
+        Inliner inliner = new Inliner(scope, threshold);
+        inliner.offer(procedures);
+        if (inliner.isEmpty())
+        {
+            return this;
+        }
+        return new Program(procedures, body.inline(inliner).optimize());
+    }
+
+    /**
+     * Finds the procedures of this Program that are functions of their
+     * arguments alone: those whose Statements are local, calling only each
+     * other. Every procedure starts out as a candidate, and any that calls
+     * or does something else is dropped until none is. A name declared
+     * twice is never a candidate. The pure procedures that have a Memo get it.
+     *
+     * @param memos the Memo of every procedure to be memoized, by name.
+     *
+     * @return the Program with its pure procedures marked.
+     */
+    @Override
+    public Program memoize(Map<String, Memo> memos)
+    {
+        LinkedHashSet<String> pure = new LinkedHashSet<>();
+        HashSet<String> twice = new HashSet<>();
+        for (ProcedureDeclaration dec: procedures)
+        {
+            if (!pure.add(dec.getName()))
+            {
+                twice.add(dec.getName());
+            }
+        }
+        pure.removeAll(twice);
+
+        boolean changed = true;
+        while (changed)
+        {
+            changed = false;
+            for (ProcedureDeclaration dec: procedures)
+            {
+                if (pure.contains(dec.getName()) && !dec.isPureWith(pure))
+                {
+                    pure.remove(dec.getName());
+                    changed = true;
+                }
+            }
+        }
+        if (pure.isEmpty())
+        {
+            return this;
+        }
+
+        ArrayList<ProcedureDeclaration> list = new ArrayList<>();
+        for (ProcedureDeclaration dec: procedures)
+        {
+            String name = dec.getName();
+            list.add(pure.contains(name) ? dec.pure(pure, memos.get(name)) : dec);
+        }
+        return new Program(list, body);
+    }
+
+    /**
+     * Emits the declarations of the compiled Procedures, then the body Statement.
+     *
+     * @param e the Emitter that receives the code.
+     */
+    @Override
+    public void compile(Emitter e)
+    {
+        for (ProcedureDeclaration dec: procedures)
+        {
+            dec.compile(e);
+        }
+        if (body!=null)
+        {
+            body.compile(e);
+        }
+    }
+
+    /**
+     * Builds the Action that declares the Procedures, each with its body
+     * turned into an Action, and then carries out the body.
+     *
+     * @return the Action.
+     */
+    @Override
+    public Closure.Action closure()
+    {
+        Closure.Action[] actions = new Closure.Action[procedures.size() + 1];
+        for (int i = 0; i < procedures.size(); i++)
+        {
+            actions[i] = procedures.get(i).closure();
+        }
+        actions[procedures.size()] = body == null ? env -> { } : body.closure();
+        return env ->
+        {
+            for (Closure.Action a : actions)
+            {
+                a.exec(env);
+            }
+        };
+    }
 }
@@ -1,11 +1,14 @@
 package Scanner;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 
 /**
  * Scanner.Scanner is a simple scanner for Compilers and Interpreters (2014-2015) lab exercise 1.
  * The Scanner.Scanner performs the lexical analysis portion of the compiler/interpreter.
- * It reads the input, identifies the lexemes, and produces a string of tokens.
+ * It reads the input, identifies the lexemes, and produces a stream of typed Tokens.
  *
  * @author  Annabelle Ju
  * @version 04/17/2020
@@ -13,12 +16,91 @@ import java.io.*;
  * Usage:
  * FileInputStream inStream = new FileInputStream(new File("<file name>");
  * Scanner.Scanner lex = new Scanner.Scanner(inStream);
+ * or, to lex a large file straight from a memory mapping:
+ * Scanner.Scanner lex = new Scanner.Scanner(new File("<file name>"));
  */
-public class Scanner
+public class Scanner implements TokenSource, Closeable
 {
+    private static final long MAP_WINDOW = 1L << 30;
+
+    /*
+     * Character classes of the ASCII characters. DIGIT and LETTER are the two
+     * largest classes so that "classOf(c) >= DIGIT" tests for an identifier part.
+     */
+    private static final byte OTHER = 0;
+    private static final byte WHITESPACE = 1;
+    private static final byte OPERAND = 2;
+    private static final byte DIGIT = 3;
+    private static final byte LETTER = 4;
+    private static final byte[] CHAR_CLASS = new byte[128];
+
+    /*
+     * States of the operator DFA. OP_NEXT[state][c] is the state reached on
+     * character c, or OP_NONE; OP_ACCEPT[state] is the token accepted in a state.
+     */
+    private static final int OP_NONE = 0;
+    private static final int OP_START = 1;
+    private static final int OP_COLON = 2;
+    private static final int OP_LESS = 3;
+    private static final int OP_GREATER = 4;
+    private static final int OP_SLASH = 5;
+    private static final int OP_COMMENT = 6;
+    private static final int OP_STATES = 7 + TokenType.values().length;
+    private static final int[][] OP_NEXT = new int[OP_STATES][128];
+    private static final TokenType[] OP_ACCEPT = new TokenType[OP_STATES];
+
+    static
+    {
+        CHAR_CLASS[' '] = CHAR_CLASS['\t'] = CHAR_CLASS['\r'] = CHAR_CLASS['\n'] = WHITESPACE;
+        for (char c = '0'; c <= '9'; c++)
+            CHAR_CLASS[c] = DIGIT;
+        for (char c = 'A'; c <= 'Z'; c++)
+            CHAR_CLASS[c] = CHAR_CLASS[c + 'a' - 'A'] = LETTER;
+        for (char c: "=+-*/%();:<>,".toCharArray())
+            CHAR_CLASS[c] = OPERAND;
+
+        for (TokenType type: TokenType.values())
+        {
+            String lex = type.getLexeme();
+            if (lex != null && lex.length() == 1 && isOperand(lex.charAt(0)))
+                addOperator(OP_START, lex.charAt(0), type);
+        }
+        OP_NEXT[OP_START][':'] = OP_COLON;
+        OP_NEXT[OP_START]['<'] = OP_LESS;
+        OP_ACCEPT[OP_LESS] = TokenType.LT;
+        OP_NEXT[OP_START]['>'] = OP_GREATER;
+        OP_ACCEPT[OP_GREATER] = TokenType.GT;
+        OP_NEXT[OP_START]['/'] = OP_SLASH;
+        OP_ACCEPT[OP_SLASH] = TokenType.DIVIDE;
+        OP_NEXT[OP_SLASH]['/'] = OP_COMMENT;
+        addOperator(OP_COLON, '=', TokenType.ASSIGN);
+        addOperator(OP_LESS, '=', TokenType.LE);
+        addOperator(OP_LESS, '>', TokenType.NE);
+        addOperator(OP_GREATER, '=', TokenType.GE);
+    }
+
     private BufferedReader in;
+    private FileChannel channel;
+    private ByteBuffer bytes;
+    private long windowStart;
     private char currentChar;
     private boolean eof;
+    private boolean period;
+    private long position;
+    private long tokenStart;
+    private char[] lexeme;
+    private SymbolTable symbols;
+
+    /**
+     * Helper method: addOperator adds a transition of the operator DFA into the
+     * accepting state of the given operator type.
+     */
+    private static void addOperator(int from, char c, TokenType type)
+    {
+        int state = OP_COMMENT + 1 + type.ordinal();
+        OP_NEXT[from][c] = state;
+        OP_ACCEPT[state] = type;
+    }
 
     /**
      * Scanner.Scanner constructor for construction of a scanner that
@@ -32,6 +114,8 @@ public class Scanner
     {
         in = new BufferedReader(new InputStreamReader(inStream));
         eof = false;
+        lexeme = new char[64];
+        symbols = new SymbolTable();
         getNextChar();
     }
 
@@ -47,22 +131,115 @@ public class Scanner
     {
         in = new BufferedReader(new StringReader(inString));
         eof = false;
+        lexeme = new char[64];
+        symbols = new SymbolTable();
+        getNextChar();
+    }
+
+    /**
+     * Scanner.Scanner constructor for constructing a scanner that lexes a file
+     * directly from a memory mapping of it. ASCII bytes are used as characters
+     * without any charset decoding; the file is mapped one window at a time, so
+     * arbitrarily large files are scanned with constant heap usage. If a
+     * non-ASCII byte is found, the rest of the file is read through a Reader
+     * in the platform charset, exactly like the InputStream constructor.
+     * Usage: Scanner.Scanner lex = new Scanner.Scanner(new File("<file name>"));
+     *
+     * @param file the file to scan
+     *
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public Scanner(File file) throws IOException
+    {
+        channel = FileChannel.open(file.toPath());
+        mapWindow(0);
+        eof = false;
+        lexeme = new char[64];
+        symbols = new SymbolTable();
+        getNextChar();
+    }
+
+    /**
+     * Scanner.Scanner constructor for constructing a scanner over a region of
+     * bytes, such as one chunk of a mapped file. The region is lexed with the
+     * same ASCII fast path as a mapped file and ends at the end of the buffer.
+     *
+     * @param buffer the bytes to scan, from its position to its limit
+     */
+    Scanner(ByteBuffer buffer)
+    {
+        bytes = buffer;
+        eof = false;
+        lexeme = new char[64];
+        symbols = new SymbolTable();
         getNextChar();
     }
 
+    /**
+     * Helper method: mapWindow maps the part of the file starting at the given offset.
+     */
+    private void mapWindow(long start) throws IOException
+    {
+        windowStart = start;
+        bytes = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                Math.min(MAP_WINDOW, channel.size() - start));
+    }
+
+    /**
+     * Helper method: readMapped reads the next character from the mapped file,
+     * switching to a decoding Reader when a non-ASCII byte is found.
+     *
+     * @return the next character, or -1 at the end of the file.
+     */
+    private int readMapped() throws IOException
+    {
+        if (!bytes.hasRemaining())
+        {
+            if (channel == null)
+                return -1;
+            long next = windowStart + bytes.limit();
+            if (!channel.isOpen() || next >= channel.size())
+                return -1;
+            mapWindow(next);
+        }
+
+        byte b = bytes.get();
+        if (b >= 0)
+            return b;
+
+        if (channel != null)
+        {
+            channel.position(windowStart + bytes.position() - 1);
+            in = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel)));
+        }
+        else
+        {
+            byte[] rest = new byte[bytes.remaining() + 1];
+            bytes.position(bytes.position() - 1);
+            bytes.get(rest);
+            in = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(rest)));
+        }
+        bytes = null;
+        return in.read();
+    }
+
     /**
      * Method: getNextChar properly sets currentChar to the next character to be read in the input.
-     * Also identifies if the Scanner.Scanner is at the end of the file, including encountering a period.
+     * Also identifies if the Scanner.Scanner is at the end of the file; a terminating period
+     * is recognized by hasNext, so a period inside a comment does not end the input.
      */
     private void getNextChar()
     {
         try
         {
-            int inp = in.read();
-            if(inp == -1 || currentChar == '.')
+            int inp = bytes != null ? readMapped() : in.read();
+            if(inp == -1)
                 eof = true;
             else
+            {
                 currentChar = (char) inp;
+                position++;
+            }
         }
         catch (IOException e)
         {
@@ -72,96 +249,87 @@ public class Scanner
     }
 
     /**
-     * Method: eat compares the values of the inputted expected value to currentChar.
-     * If the values are equal, the Scanner.Scanner is advanced one character using getNextChar.
-     * Else, if the values are unequal, a Scanner.ScanErrorException is thrown.
+     * Method: scanNumber scans the input character and returns the number token in the input.
+     * The value is accumulated digit by digit, so no lexeme String is built.
      *
-     * @param expected the expected value of currentChar.
+     * @throws ScanErrorException if the number does not fit in an int.
      *
-     * @throws ScanErrorException if the given char does not match currentChar
+     * @return the NUMBER token found in the input.
      */
-
-    private void eat(char expected) throws ScanErrorException
+    private Token scanNumber() throws ScanErrorException
     {
-        if (expected==currentChar)
-            getNextChar();
-        else
-            throw new ScanErrorException("Illegal character: expected "+currentChar+
-                    " found "+expected);
-    }
+        long value = 0;
 
-    /**
-     * Method: scanNumber scans the input character and returns the number lexeme in the input.
-     * If no lexeme is found, then the method throws an error.
-     *
-     * @throws ScanErrorException error handler for the eat helper method.
-     *
-     * @return the number lexeme found in the input.
-     */
-    private String scanNumber() throws ScanErrorException
-    {
-        String resultLexeme = "";
-
-        while (isDigit(currentChar))
+        while (classOf(currentChar) == DIGIT && !eof)
         {
-            resultLexeme += currentChar;
-            eat(currentChar);
+            value = value * 10 + (currentChar - '0');
+            if (value > Integer.MAX_VALUE)
+                throw new ScanErrorException("Integer literal out of range");
+            getNextChar();
         }
 
-        return resultLexeme;
+        return Token.number((int) value);
     }
 
     /**
-     * Method: scanIdentifier scans the input character, returns the identifier lexeme in the input.
-     * If no lexeme is found, then the method throws an error.
+     * Method: scanIdentifier scans the input character, returns the identifier token in the input.
+     * The characters are collected into a reusable buffer and interned by the SymbolTable,
+     * which also recognizes the keywords.
      *
-     * @throws ScanErrorException error handler for the eat helper method.
-     *
-     * @return the identifier lexeme found in the input.
+     * @return the IDENTIFIER or keyword token found in the input.
      */
-    private String scanIdentifier() throws ScanErrorException
+    private Token scanIdentifier()
     {
-        String resultLexeme = "";
+        int length = 0;
+        int hash = 0;
 
-        while (isLetter(currentChar) | isDigit(currentChar))
+        while (classOf(currentChar) >= DIGIT && !eof)
         {
-            resultLexeme += currentChar;
-            eat(currentChar);
+            if (length == lexeme.length)
+            {
+                char[] bigger = new char[lexeme.length * 2];
+                System.arraycopy(lexeme, 0, bigger, 0, length);
+                lexeme = bigger;
+            }
+            lexeme[length++] = currentChar;
+            hash = 31 * hash + currentChar;
+            getNextChar();
         }
 
-        return resultLexeme;
+        return symbols.lookup(lexeme, 0, length, hash);
     }
 
     /**
-     * Method: scanOperand scans the input character and returns the operand lexeme in the input.
-     * If no lexeme is found, then the method throws an error.
+     * Method: scanOperand runs the operator DFA from the input character and returns
+     * the operand token in the input. The DFA takes the longest match, so it
+     * recognizes the two-character operators :=, <=, >=, <> and the comment marker //.
      *
-     * @throws ScanErrorException error handler for the eat helper method.
+     * @throws ScanErrorException if the characters do not form any operand.
      *
-     * @return the operand lexeme found in the input.
+     * @return the operand token found in the input, or null if a comment was skipped.
      */
-    private String scanOperand() throws ScanErrorException
+    private Token scanOperand() throws ScanErrorException
     {
-        String resultLexeme = "";
+        char first = currentChar;
+        int state = OP_START;
+        int next;
 
-        if (currentChar == '<' || currentChar == '>' || currentChar == ':')
+        while (currentChar < 128 && !eof && (next = OP_NEXT[state][currentChar]) != OP_NONE)
         {
-            while (isOperand(currentChar))
-            {
-                resultLexeme += currentChar;
-                eat(currentChar);
-            }
+            state = next;
+            getNextChar();
         }
-        else
+
+        if (state == OP_COMMENT)
         {
-            if (isOperand(currentChar))
-            {
-                resultLexeme += currentChar;
-                eat(currentChar);
-            }
+            while (currentChar != '\n' && !eof)
+                getNextChar();
+            return null;
         }
+        if (OP_ACCEPT[state] == null)
+            throw new ScanErrorException("Illegal character: " + first);
 
-        return resultLexeme;
+        return Token.of(OP_ACCEPT[state]);
     }
 
     /**
@@ -177,56 +345,100 @@ public class Scanner
 
     /**
      * Method: nextToken scans the input stream and finds the next token,
-     * Disregarding white spaces, and handles single-line comments.
+     * Disregarding white spaces and single-line comments.
+     * The character class of the current character selects the scanning method.
      *
-     * @return the lexeme found in the input or "END" if the input stream has already ended.
+     * @throws ScanErrorException if an illegal character is found in the input.
+     *
+     * @return the token found in the input or Token.EOF if the input stream has already ended.
      */
-    public String nextToken() throws ScanErrorException, IOException
+    public Token nextToken() throws ScanErrorException, IOException
     {
-        if (!hasNext() || currentChar=='.')
-        {
-            eof = true;
-            return "END";
-        }
-
-        String lexeme = "";
-
-        try
+        while (hasNext())
         {
-            if (isWhiteSpace(currentChar)&&hasNext())
+            tokenStart = position - 1;
+            switch (classOf(currentChar))
             {
-                while (isWhiteSpace(currentChar)&&hasNext())
-                    eat(currentChar);
-            }
-            else
-            {
-                if (isDigit(currentChar))
-                    lexeme = scanNumber();
-                else if (isLetter(currentChar))
-                    lexeme = scanIdentifier();
-                else if (isOperand(currentChar))
-                {
-                    lexeme = scanOperand();
-
-                    if (lexeme.equals("//"))
-                    {
-                        lexeme = "";
-                        in.readLine();
-                    }
-                }
+                case WHITESPACE:
+                    getNextChar();
+                    break;
+                case DIGIT:
+                    return scanNumber();
+                case LETTER:
+                    return scanIdentifier();
+                default:
+                    Token token = scanOperand();
+                    if (token != null)
+                        return token;
             }
         }
-        catch (ScanErrorException e)
-        {
-            System.exit(-1);
-        }
 
-        return lexeme;
+        if (!eof)
+            period = true;
+        eof = true;
+        tokenStart = position;
+        close();
+        return Token.EOF;
+    }
+
+    /**
+     * Method: close releases the file this Scanner.Scanner maps, if any. It is
+     * called by nextToken once the input has ended, whether at the terminating
+     * period or at the end of the file, and may be called again safely.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    public void close() throws IOException
+    {
+        if (channel != null)
+            channel.close();
+    }
+
+    /**
+     * Method: getTokenStart finds where the token last returned by nextToken began.
+     *
+     * @return the offset, in characters from the start of the input, of the last token.
+     */
+    public long getTokenStart()
+    {
+        return tokenStart;
+    }
+
+    /**
+     * Method: endedAtPeriod determines whether the input ended with the
+     * terminating period rather than by running out of characters.
+     *
+     * @return true if a period stopped this Scanner.Scanner.
+     */
+    boolean endedAtPeriod()
+    {
+        return period;
+    }
+
+    /**
+     * Method: getSymbolTable retrieves the table interning this scanner's identifiers.
+     *
+     * @return the SymbolTable of this Scanner.Scanner.
+     */
+    public SymbolTable getSymbolTable()
+    {
+        return symbols;
+    }
+
+    /**
+     * Helper method: classOf looks up the character class of a character.
+     *
+     * @param c the character to be classified.
+     * @return the class of c in CHAR_CLASS, or OTHER for characters outside ASCII.
+     */
+    private static byte classOf(char c)
+    {
+        return c < 128 ? CHAR_CLASS[c] : OTHER;
     }
 
     /**
      * Helper method: isOperand determines whether a given character is an operand,
-     * According to regular expression digit := ['=','+','-','*','/','%','(',')']
+     * According to regular expression operand := ['=','+','-','*','/','%','(',')',';',':','<','>',',']
      *
      * @param c the character to be assessed.
      * @return true  if the given character is an operand,
@@ -234,9 +446,7 @@ public class Scanner
      */
     public static boolean isOperand(char c)
     {
-        return (c == '=') || (c =='+') || (c =='-') || (c =='*') ||
-                (c =='/') || (c =='%') || (c =='(') || (c ==')') ||
-                (c == ';') || (c == ':' || (c == '<') || (c == '>') || (c == ','));
+        return classOf(c) == OPERAND;
     }
 
     /**
@@ -249,7 +459,7 @@ public class Scanner
      */
     public static boolean isDigit(char c)
     {
-        return c >= '0' && c <= '9';
+        return classOf(c) == DIGIT;
     }
 
     /**
@@ -262,12 +472,12 @@ public class Scanner
      */
     public static boolean isLetter(char c)
     {
-        return (c>='A' && c<='Z') || (c>='a' && c<='z');
+        return classOf(c) == LETTER;
     }
 
     /**
      * Helper method: isWhiteSpace determines whether a given character is a white space,
-     * According to regular expression letter := [' ', '\t', '\r', '\n']
+     * According to regular expression whitespace := [' ', '\t', '\r', '\n']
      *
      * @param c the character to be assessed.
      * @return true  if the given character is a white space,
@@ -275,7 +485,7 @@ public class Scanner
      */
     public static boolean isWhiteSpace(char c)
     {
-        return (c == ' ') || (c =='\t') || (c =='\r') || (c =='\n');
+        return classOf(c) == WHITESPACE;
     }
 
     /**
@@ -294,13 +504,13 @@ public class Scanner
                 new FileInputStream(new File("scannerTestAdvanced.txt"));
         Scanner lex = new Scanner(inStream);
 
-        String outputTokens = "";
-        String token;
+        StringBuilder outputTokens = new StringBuilder();
+        Token token = lex.nextToken();
 
-        while (!lex.eof)
+        while (token != Token.EOF)
         {
+            outputTokens.append(token).append(' ');
             token = lex.nextToken();
-            outputTokens += token + " ";
         }
 
         System.out.println(outputTokens);
@@ -1,4 +1,4 @@
-package Scanner;/* The following code was generated by JFlex 1.7.0 */
+package Scanner;/* The scanning loop was generated by JFlex 1.7.0; the tables by Scanner.ScannerabbTables */
 
 
 /**
@@ -13,11 +13,26 @@ import java.io.*;
 
 
 /**
- * This class is a scanner generated by 
- * <a href="http://www.jflex.de/">JFlex</a> 1.7.0
- * from the specification file <tt>/Users/thejellycraft/Downloads/JFlexScanneronlyabb.flex</tt>
+ * This class is a scanner whose scanning loop was generated by
+ * <a href="http://www.jflex.de/">JFlex</a> 1.7.0. Its DFA tables are not
+ * JFlex output: they are written out by Scanner.ScannerabbTables, in the
+ * format JFlex 1.7.0 uses, so change the rules there and paste its output
+ * over the tables below.
+ *
+ * The DFA tables recognize the tokens of the language read by Parser.Parser,
+ * so this scanner is a drop-in TokenSource next to Scanner.Scanner:
+ * <pre>
+ *   WhiteSpace = [ \t\r\n]+          skipped
+ *   "//" [^\n]*                       skipped
+ *   [0-9]+                            NUMBER
+ *   [A-Za-z][A-Za-z0-9]*              IDENTIFIER or keyword
+ *   ":=" | "<=" | "<>" | ">="         two-character operators
+ *   [=+\-*\/%();,<>]                 one-character operators
+ *   "."                               end of the program
+ *   [^]                               illegal character
+ * </pre>
  */
-public class Scannerabb {
+public class Scannerabb implements TokenSource {
 
   /** This character denotes the end of file */
   public static final int YYEOF = -1;
@@ -35,175 +50,65 @@ public class Scannerabb {
    * l is of the form l = 2*k, k a non negative integer
    */
   private static final int ZZ_LEXSTATE[] = { 
-     0, 1
+     0, 0
   };
 
-  /** 
-   * Translates characters to character classes
+  /**
+   * Marks a missing transition in ZZ_TRANS
+   */
+  private static final int ZZ_NO_TRANS = 0xFFFF;
+
+  /*
+   * The tables below are stored unpacked in String literals. toCharArray()
+   * copies a literal out of the constant pool in one block, so class
+   * initialization does not run a decode loop over any table.
    */
-  private static final String ZZ_CMAP_PACKED = 
-    "\11\0\1\3\1\2\1\6\1\7\1\1\22\0\1\35\13\0\1\25"+
-    "\2\0\1\33\1\30\1\31\1\32\1\34\1\11\1\13\1\11\1\13"+
-    "\1\11\1\13\7\0\1\35\1\10\1\26\1\14\3\35\1\27\12\35"+
-    "\1\17\7\35\6\0\1\4\1\5\1\22\1\35\1\15\3\35\1\20"+
-    "\2\35\1\23\1\35\1\21\3\35\1\16\6\35\1\24\1\35\1\0"+
-    "\1\12\10\0\1\6\u1fa2\0\1\6\1\6\uffff\0\uffff\0\uffff\0\uffff\0\uffff\0\uffff\0\uffff\0\uffff\0\uffff\0\uffff\0\uffff\0\uffff\0\uffff\0\uffff\0\uffff\0\uffff\0\udfe6\0";
 
   /** 
-   * Translates characters to character classes
+   * Translates ASCII characters to character classes
    */
-  private static final char [] ZZ_CMAP = zzUnpackCMap(ZZ_CMAP_PACKED);
+  private static final char [] ZZ_CMAP_ASCII = (
+    "\0\0\0\0\0\0\0\0\0\1\2\0\0\1\0\0"+
+    "\0\0\0\0\0\0\0\0\0\0\0\0\0\0\0\0"+
+    "\1\0\0\0\0\12\0\0\12\12\12\12\12\12\13\11"+
+    "\3\3\3\3\3\3\3\3\3\3\5\12\7\6\10\0"+
+    "\0\4\4\4\4\4\4\4\4\4\4\4\4\4\4\4"+
+    "\4\4\4\4\4\4\4\4\4\4\4\0\0\0\0\0"+
+    "\0\4\4\4\4\4\4\4\4\4\4\4\4\4\4\4"+
+    "\4\4\4\4\4\4\4\4\4\4\4\0\0\0\0\0").toCharArray();
 
   /** 
    * Translates DFA states to action switch labels.
    */
-  private static final int [] ZZ_ACTION = zzUnpackAction();
-
-  private static final String ZZ_ACTION_PACKED_0 =
-    "\2\0\1\1\2\2\2\3\1\4\2\5\2\3\1\4"+
-    "\1\5\1\6\2\3\1\7\1\4\1\5\1\10\1\3"+
-    "\1\0\1\3\3\0\1\3\2\0\1\3\2\0\1\3"+
-    "\2\0\1\3\2\0\1\3\2\0\1\3\1\11\1\0"+
-    "\1\3\1\0\1\3\1\0\1\3\1\0\1\12";
-
-  private static int [] zzUnpackAction() {
-    int [] result = new int[52];
-    int offset = 0;
-    offset = zzUnpackAction(ZZ_ACTION_PACKED_0, offset, result);
-    return result;
-  }
-
-  private static int zzUnpackAction(String packed, int offset, int [] result) {
-    int i = 0;       /* index in packed string  */
-    int j = offset;  /* index in unpacked array */
-    int l = packed.length();
-    while (i < l) {
-      int count = packed.charAt(i++);
-      int value = packed.charAt(i++);
-      do result[j++] = value; while (--count > 0);
-    }
-    return j;
-  }
-
+  private static final char [] ZZ_ACTION = (
+    "\0\1\2\3\12\5\4\4\4\4\6\7\11\12\10\1").toCharArray();
 
   /** 
    * Translates a state to a row index in the transition table
    */
-  private static final int [] ZZ_ROWMAP = zzUnpackRowMap();
-
-  private static final String ZZ_ROWMAP_PACKED_0 =
-    "\0\0\0\36\0\74\0\132\0\74\0\170\0\226\0\264"+
-    "\0\74\0\264\0\322\0\360\0\u010e\0\u012c\0\226\0\u014a"+
-    "\0\u0168\0\u0186\0\u01a4\0\u01a4\0\226\0\u01c2\0\u01e0\0\u01fe"+
-    "\0\u021c\0\u023a\0\u0258\0\u0276\0\u0294\0\u02b2\0\u02d0\0\u02ee"+
-    "\0\u030c\0\u032a\0\u0348\0\u0366\0\u0384\0\u03a2\0\u03c0\0\u03de"+
-    "\0\u03fc\0\u041a\0\u0438\0\74\0\u0456\0\u0474\0\u0492\0\u04b0"+
-    "\0\u04ce\0\u04ec\0\u050a\0\u0528";
-
-  private static int [] zzUnpackRowMap() {
-    int [] result = new int[52];
-    int offset = 0;
-    offset = zzUnpackRowMap(ZZ_ROWMAP_PACKED_0, offset, result);
-    return result;
-  }
-
-  private static int zzUnpackRowMap(String packed, int offset, int [] result) {
-    int i = 0;  /* index in packed string  */
-    int j = offset;  /* index in unpacked array */
-    int l = packed.length();
-    while (i < l) {
-      int high = packed.charAt(i++) << 16;
-      result[j++] = high | packed.charAt(i++);
-    }
-    return j;
-  }
+  private static final char [] ZZ_ROWMAP = (
+    "\0\14\30\44\60\74\110\124\140\154\170\204\220\234\250\264").toCharArray();
 
   /** 
-   * The transition table of the DFA
+   * The transition table of the DFA, ZZ_NO_TRANS where there is no transition
    */
-  private static final int [] ZZ_TRANS = zzUnpackTrans();
-
-  private static final String ZZ_TRANS_PACKED_0 =
-    "\1\3\1\4\2\5\1\6\1\7\1\0\1\5\1\7"+
-    "\1\10\1\11\1\12\1\13\10\7\1\3\1\14\1\7"+
-    "\1\15\1\16\1\10\1\3\1\12\1\7\1\3\1\4"+
-    "\2\5\1\6\1\17\1\0\1\5\1\17\1\10\1\11"+
-    "\1\12\1\13\10\7\1\3\1\14\1\7\1\15\1\16"+
-    "\1\10\1\3\1\12\1\7\40\0\1\5\37\0\1\7"+
-    "\1\20\2\0\2\7\1\0\12\7\1\0\5\7\1\0"+
-    "\2\7\4\0\2\7\2\0\2\7\1\0\12\7\1\0"+
-    "\5\7\1\0\2\7\11\0\1\10\1\11\1\12\14\0"+
-    "\1\10\1\12\1\10\1\0\1\12\5\0\2\7\2\0"+
-    "\2\7\1\0\2\7\1\21\7\7\1\0\5\7\1\0"+
-    "\2\7\4\0\2\7\2\0\1\7\1\14\1\0\1\14"+
-    "\11\7\1\0\1\7\1\22\3\14\1\0\1\14\1\7"+
-    "\11\0\1\23\1\11\1\24\14\0\1\23\1\24\1\23"+
-    "\1\0\1\24\12\0\1\10\1\11\1\12\14\0\1\10"+
-    "\1\24\1\23\1\0\1\12\5\0\1\7\1\25\2\0"+
-    "\2\7\1\0\12\7\1\0\5\7\1\0\2\7\4\0"+
-    "\1\26\1\7\2\0\2\7\1\0\12\7\1\0\5\7"+
-    "\1\0\2\7\4\0\2\7\2\0\1\7\1\22\1\0"+
-    "\1\22\11\7\1\0\2\7\3\22\1\0\1\22\1\7"+
-    "\11\0\1\10\1\11\1\12\14\0\1\10\1\12\1\10"+
-    "\1\27\1\12\5\0\2\7\2\0\2\7\1\0\3\7"+
-    "\1\30\6\7\1\0\5\7\1\0\2\7\30\0\3\31"+
-    "\1\0\1\32\1\0\1\33\2\0\1\33\2\30\2\0"+
-    "\2\30\1\33\4\30\1\34\5\30\1\33\5\30\1\33"+
-    "\2\30\11\0\1\35\1\0\1\35\14\0\3\35\1\0"+
-    "\1\35\31\0\2\35\4\0\1\33\2\0\3\33\2\0"+
-    "\7\33\1\36\17\33\2\0\1\33\2\30\2\0\2\30"+
-    "\1\33\4\30\1\34\1\37\4\30\1\33\5\30\1\33"+
-    "\2\30\33\0\1\40\2\0\1\33\2\0\3\33\2\0"+
-    "\7\33\1\36\1\41\16\33\2\0\1\33\2\30\2\0"+
-    "\2\30\1\33\4\30\1\34\1\30\1\42\3\30\1\33"+
-    "\5\30\1\33\2\30\11\0\1\43\1\0\1\43\14\0"+
-    "\3\43\1\0\1\43\1\0\1\33\2\0\3\33\2\0"+
-    "\7\33\1\36\1\33\1\44\15\33\2\0\1\33\2\30"+
-    "\2\0\2\30\1\33\4\30\1\34\2\30\1\45\2\30"+
-    "\1\33\5\30\1\33\2\30\11\0\1\46\1\0\1\46"+
-    "\14\0\3\46\1\0\1\46\1\0\1\33\2\0\3\33"+
-    "\2\0\7\33\1\36\2\33\1\47\14\33\2\0\1\33"+
-    "\2\30\2\0\2\30\1\33\2\30\1\50\1\30\1\34"+
-    "\5\30\1\33\5\30\1\33\2\30\11\0\1\51\1\0"+
-    "\1\51\14\0\3\51\1\0\1\51\1\0\1\33\2\0"+
-    "\3\33\2\0\5\33\1\52\1\33\1\36\17\33\2\0"+
-    "\1\33\2\30\2\0\2\30\1\33\3\30\1\53\1\34"+
-    "\5\30\1\33\5\30\1\33\2\30\11\0\1\54\1\0"+
-    "\1\54\14\0\3\54\1\0\1\54\1\0\1\33\2\0"+
-    "\3\33\2\0\6\33\1\55\1\36\17\33\2\0\1\33"+
-    "\2\30\2\0\2\30\1\33\2\30\1\56\1\30\1\34"+
-    "\5\30\1\33\5\30\1\33\2\30\1\33\2\0\3\33"+
-    "\2\0\5\33\1\57\1\33\1\36\17\33\2\0\1\33"+
-    "\2\30\2\0\2\30\1\33\4\30\1\34\3\30\1\60"+
-    "\1\30\1\33\5\30\1\33\2\30\1\33\2\0\3\33"+
-    "\2\0\7\33\1\36\3\33\1\61\13\33\2\0\1\33"+
-    "\2\30\2\0\2\30\1\33\4\30\1\34\4\30\1\62"+
-    "\1\33\5\30\1\33\2\30\1\33\2\0\3\33\2\0"+
-    "\7\33\1\36\4\33\1\63\12\33\2\0\1\33\2\30"+
-    "\2\0\2\30\1\33\4\30\1\34\5\30\1\64\5\30"+
-    "\1\33\2\30\1\33\2\0\3\33\2\0\7\33\1\36"+
-    "\5\33\1\64\10\33\1\64\2\0\3\64\2\0\26\64";
-
-  private static int [] zzUnpackTrans() {
-    int [] result = new int[1350];
-    int offset = 0;
-    offset = zzUnpackTrans(ZZ_TRANS_PACKED_0, offset, result);
-    return result;
-  }
-
-  private static int zzUnpackTrans(String packed, int offset, int [] result) {
-    int i = 0;       /* index in packed string  */
-    int j = offset;  /* index in unpacked array */
-    int l = packed.length();
-    while (i < l) {
-      int count = packed.charAt(i++);
-      int value = packed.charAt(i++);
-      value--;
-      do result[j++] = value; while (--count > 0);
-    }
-    return j;
-  }
-
+  private static final char [] ZZ_TRANS = (
+    "\15\1\1\2\3\4\6\7\10\11\6\14"+
+    "\uffff\1\1\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff"+
+    "\uffff\uffff\uffff\2\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff"+
+    "\uffff\uffff\uffff\3\3\uffff\uffff\uffff\uffff\uffff\uffff\uffff"+
+    "\uffff\uffff\uffff\uffff\uffff\uffff\5\uffff\uffff\uffff\uffff\uffff"+
+    "\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff"+
+    "\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff"+
+    "\uffff\uffff\uffff\uffff\uffff\uffff\12\uffff\13\uffff\uffff\uffff"+
+    "\uffff\uffff\uffff\uffff\uffff\uffff\16\uffff\uffff\uffff\uffff\uffff"+
+    "\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\17\uffff\uffff"+
+    "\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff"+
+    "\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff"+
+    "\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff"+
+    "\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff"+
+    "\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff\uffff"+
+    "\17\17\uffff\17\17\17\17\17\17\17\17\17").toCharArray();
 
   /* error codes */
   private static final int ZZ_UNKNOWN_ERROR = 0;
@@ -220,32 +125,8 @@ public class Scannerabb {
   /**
    * ZZ_ATTRIBUTE[aState] contains the attributes of state <code>aState</code>
    */
-  private static final int [] ZZ_ATTRIBUTE = zzUnpackAttribute();
-
-  private static final String ZZ_ATTRIBUTE_PACKED_0 =
-    "\2\0\1\11\1\1\1\11\3\1\1\11\15\1\1\0"+
-    "\1\1\3\0\1\1\2\0\1\1\2\0\1\1\2\0"+
-    "\1\1\2\0\1\1\2\0\1\1\1\11\1\0\1\1"+
-    "\1\0\1\1\1\0\1\1\1\0\1\1";
-
-  private static int [] zzUnpackAttribute() {
-    int [] result = new int[52];
-    int offset = 0;
-    offset = zzUnpackAttribute(ZZ_ATTRIBUTE_PACKED_0, offset, result);
-    return result;
-  }
-
-  private static int zzUnpackAttribute(String packed, int offset, int [] result) {
-    int i = 0;       /* index in packed string  */
-    int j = offset;  /* index in unpacked array */
-    int l = packed.length();
-    while (i < l) {
-      int count = packed.charAt(i++);
-      int value = packed.charAt(i++);
-      do result[j++] = value; while (--count > 0);
-    }
-    return j;
-  }
+  private static final char [] ZZ_ATTRIBUTE = (
+    "\0\1\1\1\1\11\11\1\1\1\11\11\11\11\11\1").toCharArray();
 
   /** the input device */
   private java.io.Reader zzReader;
@@ -273,22 +154,25 @@ public class Scannerabb {
       from input */
   private int zzEndRead;
 
-  /** number of newlines encountered up to the start of the matched text */
-  private int yyline;
-
   /** the number of characters up to the start of the matched text */
   private int yychar;
 
   /**
-   * the number of characters from the last newline up to the start of the 
-   * matched text
+   * zzLineStarts[k] is the character offset at which line k begins, for the
+   * first zzLines lines. The index is only built up to zzIndexed, when a
+   * position is asked for or when zzRefill is about to discard text that has
+   * not been indexed yet; matching tokens never touches it.
    */
-  private int yycolumn;
+  private int zzLineStarts[] = new int[64];
 
-  /** 
-   * zzAtBOL == true iff the scanner is currently at the beginning of a line
-   */
-  private boolean zzAtBOL = true;
+  /** the number of entries of zzLineStarts in use */
+  private int zzLines = 1;
+
+  /** the character offset up to which zzLineStarts is complete */
+  private int zzIndexed;
+
+  /** true iff the last indexed character was a '\r' */
+  private boolean zzIndexedCR;
 
   /** zzAtEOF == true iff the scanner is at the EOF */
   private boolean zzAtEOF;
@@ -304,6 +188,51 @@ public class Scannerabb {
    */
   private int zzFinalHighSurrogate = 0;
 
+  /* user code: */
+  /** the table interning identifiers and recognizing keywords */
+  private SymbolTable symbols = new SymbolTable();
+
+  /** one-character operators, indexed by their character */
+  private static final TokenType[] OPERATORS = new TokenType[128];
+
+  static {
+    for (TokenType type : TokenType.values()) {
+      String lex = type.getLexeme();
+      if (lex != null && lex.length() == 1 && lex.charAt(0) < 128)
+        OPERATORS[lex.charAt(0)] = type;
+    }
+  }
+
+  /**
+   * Returns the table interning the identifiers of this scanner.
+   */
+  public SymbolTable getSymbolTable() {
+    return symbols;
+  }
+
+  /**
+   * Interns the matched identifier straight from the buffer.
+   */
+  private Token identifier() {
+    int hash = 0;
+    for (int i = zzStartRead; i < zzMarkedPos; i++)
+      hash = 31 * hash + zzBuffer[i];
+    return symbols.lookup(zzBuffer, zzStartRead, zzMarkedPos - zzStartRead, hash);
+  }
+
+  /**
+   * Converts the matched digits to a NUMBER token.
+   */
+  private Token number() throws ScanErrorException {
+    long value = 0;
+    for (int i = zzStartRead; i < zzMarkedPos; i++) {
+      value = value * 10 + (zzBuffer[i] - '0');
+      if (value > Integer.MAX_VALUE)
+        throw new ScanErrorException("Integer literal out of range at line " + (yyline() + 1));
+    }
+    return Token.number((int) value);
+  }
+
 
   /**
    * Creates a new scanner
@@ -316,21 +245,15 @@ public class Scannerabb {
 
 
   /** 
-   * Unpacks the compressed character translation table.
+   * Translates a character to its character class. ASCII characters are
+   * looked up directly; every other character is in class 0, the class of
+   * characters that only occur inside comments or as illegal input.
    *
-   * @param packed   the packed character translation table
-   * @return         the unpacked character translation table
+   * @param ch   the character to translate
+   * @return     the character class of ch
    */
-  private static char [] zzUnpackCMap(String packed) {
-    char [] map = new char[0x110000];
-    int i = 0;  /* index in packed string  */
-    int j = 0;  /* index in unpacked array */
-    while (i < 146) {
-      int  count = packed.charAt(i++);
-      char value = packed.charAt(i++);
-      do map[j++] = value; while (--count > 0);
-    }
-    return map;
+  private static int zzCMap(int ch) {
+    return ch < 128 ? ZZ_CMAP_ASCII[ch] : 0;
   }
 
 
@@ -345,6 +268,7 @@ public class Scannerabb {
 
     /* first: make room (if you can) */
     if (zzStartRead > 0) {
+      zzIndexLines(yychar);
       zzEndRead += zzFinalHighSurrogate;
       zzFinalHighSurrogate = 0;
       System.arraycopy(zzBuffer, zzStartRead,
@@ -422,13 +346,15 @@ public class Scannerabb {
    */
   public final void yyreset(java.io.Reader reader) {
     zzReader = reader;
-    zzAtBOL  = true;
     zzAtEOF  = false;
     zzEOFDone = false;
     zzEndRead = zzStartRead = 0;
     zzCurrentPos = zzMarkedPos = 0;
     zzFinalHighSurrogate = 0;
-    yyline = yychar = yycolumn = 0;
+    yychar = 0;
+    zzLines = 1;
+    zzIndexed = 0;
+    zzIndexedCR = false;
     zzLexicalState = YYINITIAL;
     if (zzBuffer.length > ZZ_BUFFERSIZE)
       zzBuffer = new char[ZZ_BUFFERSIZE];
@@ -453,6 +379,71 @@ public class Scannerabb {
   }
 
 
+  /**
+   * Extends the line index up to the given character offset, which must not
+   * lie before the start of the buffer. A "\r\n" pair ends a single line.
+   *
+   * @param upTo the character offset to index up to, exclusive
+   */
+  private void zzIndexLines(int upTo) {
+    int base = yychar - zzStartRead;
+    for (int i = zzIndexed - base; i < upTo - base; i++) {
+      char c = zzBuffer[i];
+      if (c == '\n' && zzIndexedCR) {
+        zzLineStarts[zzLines - 1] = base + i + 1;
+      }
+      else if (c == '\n' || c == '\r') {
+        if (zzLines == zzLineStarts.length) {
+          int newStarts[] = new int[zzLineStarts.length * 2];
+          System.arraycopy(zzLineStarts, 0, newStarts, 0, zzLines);
+          zzLineStarts = newStarts;
+        }
+        zzLineStarts[zzLines++] = base + i + 1;
+      }
+      zzIndexedCR = c == '\r';
+    }
+    if (upTo > zzIndexed)
+      zzIndexed = upTo;
+  }
+
+
+  /**
+   * Returns the number of line terminators before the start of the matched
+   * text. The line index is extended on demand, so this is the only place
+   * that pays for line counting.
+   */
+  public final int yyline() {
+    zzIndexLines(yychar);
+    int lo = 0;
+    int hi = zzLines - 1;
+    while (lo < hi) {
+      int mid = (lo + hi + 1) >>> 1;
+      if (zzLineStarts[mid] <= yychar)
+        lo = mid;
+      else
+        hi = mid - 1;
+    }
+    return lo;
+  }
+
+
+  /**
+   * Returns the number of characters from the start of the line to the
+   * start of the matched text.
+   */
+  public final int yycolumn() {
+    return yychar - zzLineStarts[yyline()];
+  }
+
+
+  /**
+   * Returns the number of characters before the start of the matched text.
+   */
+  public final int yychar() {
+    return yychar;
+  }
+
+
   /**
    * Returns the text matched by the current regular expression.
    */
@@ -534,8 +525,9 @@ public class Scannerabb {
    *
    * @return      the next token
    * @exception   java.io.IOException  if any I/O-Error occurs
+   * @exception   ScanErrorException  if an illegal character is found
    */
-  public String nextToken() throws java.io.IOException {
+  public Token nextToken() throws java.io.IOException, ScanErrorException {
     int zzInput;
     int zzAction;
 
@@ -544,109 +536,20 @@ public class Scannerabb {
     int zzMarkedPosL;
     int zzEndReadL = zzEndRead;
     char [] zzBufferL = zzBuffer;
-    char [] zzCMapL = ZZ_CMAP;
-
-    int [] zzTransL = ZZ_TRANS;
-    int [] zzRowMapL = ZZ_ROWMAP;
-    int [] zzAttrL = ZZ_ATTRIBUTE;
+    char [] zzTransL = ZZ_TRANS;
+    char [] zzRowMapL = ZZ_ROWMAP;
+    char [] zzAttrL = ZZ_ATTRIBUTE;
 
     while (true) {
       zzMarkedPosL = zzMarkedPos;
 
-      boolean zzR = false;
-      int zzCh;
-      int zzCharCount;
-      for (zzCurrentPosL = zzStartRead  ;
-           zzCurrentPosL < zzMarkedPosL ;
-           zzCurrentPosL += zzCharCount ) {
-        zzCh = Character.codePointAt(zzBufferL, zzCurrentPosL, zzMarkedPosL);
-        zzCharCount = Character.charCount(zzCh);
-        switch (zzCh) {
-        case '\u000B':  // fall through
-        case '\u000C':  // fall through
-        case '\u0085':  // fall through
-        case '\u2028':  // fall through
-        case '\u2029':
-          yyline++;
-          yycolumn = 0;
-          zzR = false;
-          break;
-        case '\r':
-          yyline++;
-          yycolumn = 0;
-          zzR = true;
-          break;
-        case '\n':
-          if (zzR)
-            zzR = false;
-          else {
-            yyline++;
-            yycolumn = 0;
-          }
-          break;
-        default:
-          zzR = false;
-          yycolumn += zzCharCount;
-        }
-      }
+      yychar+= zzMarkedPosL-zzStartRead;
 
-      if (zzR) {
-        // peek one character ahead if it is \n (if we have counted one line too much)
-        boolean zzPeek;
-        if (zzMarkedPosL < zzEndReadL)
-          zzPeek = zzBufferL[zzMarkedPosL] == '\n';
-        else if (zzAtEOF)
-          zzPeek = false;
-        else {
-          boolean eof = zzRefill();
-          zzEndReadL = zzEndRead;
-          zzMarkedPosL = zzMarkedPos;
-          zzBufferL = zzBuffer;
-          if (eof) 
-            zzPeek = false;
-          else 
-            zzPeek = zzBufferL[zzMarkedPosL] == '\n';
-        }
-        if (zzPeek) yyline--;
-      }
-      if (zzMarkedPosL > zzStartRead) {
-        switch (zzBufferL[zzMarkedPosL-1]) {
-        case '\n':
-        case '\u000B':  // fall through
-        case '\u000C':  // fall through
-        case '\u0085':  // fall through
-        case '\u2028':  // fall through
-        case '\u2029':  // fall through
-          zzAtBOL = true;
-          break;
-        case '\r': 
-          if (zzMarkedPosL < zzEndReadL)
-            zzAtBOL = zzBufferL[zzMarkedPosL] != '\n';
-          else if (zzAtEOF)
-            zzAtBOL = false;
-          else {
-            boolean eof = zzRefill();
-            zzMarkedPosL = zzMarkedPos;
-            zzEndReadL = zzEndRead;
-            zzBufferL = zzBuffer;
-            if (eof) 
-              zzAtBOL = false;
-            else 
-              zzAtBOL = zzBufferL[zzMarkedPosL] != '\n';
-          }
-          break;
-        default:
-          zzAtBOL = false;
-        }
-      }
       zzAction = -1;
 
       zzCurrentPosL = zzCurrentPos = zzStartRead = zzMarkedPosL;
   
-      if (zzAtBOL)
-        zzState = ZZ_LEXSTATE[zzLexicalState+1];
-      else
-        zzState = ZZ_LEXSTATE[zzLexicalState];
+      zzState = ZZ_LEXSTATE[zzLexicalState];
 
       // set up zzAction for empty match case:
       int zzAttributes = zzAttrL[zzState];
@@ -685,8 +588,8 @@ public class Scannerabb {
               zzCurrentPosL += Character.charCount(zzInput);
             }
           }
-          int zzNext = zzTransL[ zzRowMapL[zzState] + zzCMapL[zzInput] ];
-          if (zzNext == -1) break zzForAction;
+          int zzNext = zzTransL[ zzRowMapL[zzState] + zzCMap(zzInput) ];
+          if (zzNext == ZZ_NO_TRANS) break zzForAction;
           zzState = zzNext;
 
           zzAttributes = zzAttrL[zzState];
@@ -704,58 +607,59 @@ public class Scannerabb {
 
       if (zzInput == YYEOF && zzStartRead == zzCurrentPos) {
         zzAtEOF = true;
-          { return "END";
+          { return Token.EOF;
  }
       }
       else {
         switch (zzAction < 0 ? zzAction : ZZ_ACTION[zzAction]) {
           case 1: 
-            { return yytext();
+            { 
             } 
             // fall through
           case 11: break;
           case 2: 
-            { 
+            { return number();
             } 
             // fall through
           case 12: break;
           case 3: 
-            { return "ID: " + yytext();
+            { return identifier();
             } 
             // fall through
           case 13: break;
           case 4: 
-            { return "Even number: " + yytext();
+            { return Token.of(OPERATORS[zzBufferL[zzStartRead]]);
             } 
             // fall through
           case 14: break;
           case 5: 
-            { return "Odd number: " + yytext();
+            { return Token.of(TokenType.ASSIGN);
             } 
             // fall through
           case 15: break;
           case 6: 
-            { return "Words starting with the letter B: " + yytext();
+            { return Token.of(TokenType.LE);
             } 
             // fall through
           case 16: break;
           case 7: 
-            { return "Hydrocarbon Chemical Formulas: "+yytext();
+            { return Token.of(TokenType.NE);
             } 
             // fall through
           case 17: break;
           case 8: 
-            { return "Found " + yytext() + " at line " + yyline + " and column " + yycolumn;
+            { return Token.of(TokenType.GE);
             } 
             // fall through
           case 18: break;
           case 9: 
-            { return "Date:" + yytext();
+            { zzAtEOF = true; zzEndRead = zzMarkedPos; return Token.EOF;
             } 
             // fall through
           case 19: break;
           case 10: 
-            { return "Letter: " + yytext();
+            { throw new ScanErrorException("Illegal character: " + yytext()
+                      + " at line " + (yyline() + 1) + " and column " + (yycolumn() + 1));
             } 
             // fall through
           case 20: break;
@@ -766,17 +670,16 @@ public class Scannerabb {
     }
   }
 
-  public static void main(String[] args) throws IOException
+  public static void main(String[] args) throws IOException, ScanErrorException
   {
     Reader inStream = new BufferedReader(new FileReader("scannerTest.txt"));
     Scannerabb lex = new Scannerabb(inStream);
 
-    String outputTokens = "";
-    String token = lex.nextToken();
+    Token token = lex.nextToken();
 
-    while (!token.equals("ID: END"))
+    while (token != Token.EOF)
     {
-      System.out.println(token);
+      System.out.println(token.getType() + ": " + token);
       token = lex.nextToken();
     }
   }
@@ -0,0 +1,260 @@
+package Scanner;
+
+import java.util.Arrays;
+
+/**
+ * ScannerabbTables writes out the DFA tables of Scanner.Scannerabb. The
+ * scanning loop of Scannerabb was generated by JFlex 1.7.0, but its tables
+ * for this language are built here, by hand, from the rules listed in the
+ * class comment of Scannerabb, and printed as the String literals Scannerabb
+ * declares. When a rule changes, change the states below, run this class and
+ * paste its output over the tables of Scannerabb.
+ *
+ * Every state is a row of CLASSES entries in ZZ_TRANS. A state with an action
+ * accepts the text matched so far, and its action is the label of the case
+ * in Scannerabb.yylex that runs for it.
+ *
+ * Usage: java Scanner.ScannerabbTables
+ *
+ * @author  Annabelle Ju
+ * @version 04/17/2020
+ */
+public class ScannerabbTables
+{
+    /*
+     * Character classes. Every character that is not ASCII is in OTHER.
+     */
+    private static final int OTHER = 0;
+    private static final int SPACE = 1;
+    private static final int NEWLINE = 2;
+    private static final int DIGIT = 3;
+    private static final int LETTER = 4;
+    private static final int COLON = 5;
+    private static final int EQUALS = 6;
+    private static final int LESS = 7;
+    private static final int GREATER = 8;
+    private static final int SLASH = 9;
+    private static final int OPERATOR = 10;
+    private static final int PERIOD = 11;
+    private static final int CLASSES = 12;
+
+    /*
+     * States of the DFA.
+     */
+    private static final int START = 0;
+    private static final int BLANK = 1;
+    private static final int NUMBER = 2;
+    private static final int WORD = 3;
+    private static final int AFTER_COLON = 4;
+    private static final int ASSIGN = 5;
+    private static final int SINGLE = 6;
+    private static final int AFTER_LESS = 7;
+    private static final int AFTER_GREATER = 8;
+    private static final int AFTER_SLASH = 9;
+    private static final int LE = 10;
+    private static final int NE = 11;
+    private static final int END = 12;
+    private static final int ILLEGAL = 13;
+    private static final int GE = 14;
+    private static final int COMMENT = 15;
+    private static final int STATES = 16;
+
+    /*
+     * Action labels, as numbered in the switch of Scannerabb.yylex.
+     */
+    private static final int SKIP = 1;
+    private static final int NUMBER_ACTION = 2;
+    private static final int IDENTIFIER_ACTION = 3;
+    private static final int OPERATOR_ACTION = 4;
+    private static final int ASSIGN_ACTION = 5;
+    private static final int LE_ACTION = 6;
+    private static final int NE_ACTION = 7;
+    private static final int GE_ACTION = 8;
+    private static final int END_ACTION = 9;
+    private static final int ERROR_ACTION = 10;
+
+    /** the value of a missing transition, Scannerabb.ZZ_NO_TRANS */
+    private static final int NO_TRANS = 0xFFFF;
+
+    /** the JFlex attribute of an accepting state */
+    private static final int FINAL = 1;
+
+    /** the JFlex attribute of a state that has no transitions */
+    private static final int NO_LOOKAHEAD = 8;
+
+    private final int[] classes = new int[128];
+    private final int[][] trans = new int[STATES][CLASSES];
+    private final int[] actions = new int[STATES];
+
+    /**
+     * Constructor for objects of class ScannerabbTables: builds the character
+     * classes and the states of the DFA.
+     */
+    public ScannerabbTables()
+    {
+        classify(" \t\r", SPACE);
+        classify("\n", NEWLINE);
+        classify("0123456789", DIGIT);
+        classify("ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz", LETTER);
+        classify(":", COLON);
+        classify("=", EQUALS);
+        classify("<", LESS);
+        classify(">", GREATER);
+        classify("/", SLASH);
+        classify("+-*%();,", OPERATOR);
+        classify(".", PERIOD);
+
+        for (int[] row: trans)
+        {
+            Arrays.fill(row, NO_TRANS);
+        }
+        move(START, BLANK, SPACE, NEWLINE);
+        move(START, NUMBER, DIGIT);
+        move(START, WORD, LETTER);
+        move(START, AFTER_COLON, COLON);
+        move(START, SINGLE, EQUALS, OPERATOR);
+        move(START, AFTER_LESS, LESS);
+        move(START, AFTER_GREATER, GREATER);
+        move(START, AFTER_SLASH, SLASH);
+        move(START, END, PERIOD);
+        move(START, ILLEGAL, OTHER);
+        move(BLANK, BLANK, SPACE, NEWLINE);
+        move(NUMBER, NUMBER, DIGIT);
+        move(WORD, WORD, DIGIT, LETTER);
+        move(AFTER_COLON, ASSIGN, EQUALS);
+        move(AFTER_LESS, LE, EQUALS);
+        move(AFTER_LESS, NE, GREATER);
+        move(AFTER_GREATER, GE, EQUALS);
+        move(AFTER_SLASH, COMMENT, SLASH);
+        for (int c = 0; c < CLASSES; c++)
+        {
+            if (c != NEWLINE)
+                move(COMMENT, COMMENT, c);
+        }
+
+        actions[BLANK] = SKIP;
+        actions[NUMBER] = NUMBER_ACTION;
+        actions[WORD] = IDENTIFIER_ACTION;
+        actions[AFTER_COLON] = ERROR_ACTION;
+        actions[ASSIGN] = ASSIGN_ACTION;
+        actions[SINGLE] = OPERATOR_ACTION;
+        actions[AFTER_LESS] = OPERATOR_ACTION;
+        actions[AFTER_GREATER] = OPERATOR_ACTION;
+        actions[AFTER_SLASH] = OPERATOR_ACTION;
+        actions[LE] = LE_ACTION;
+        actions[NE] = NE_ACTION;
+        actions[END] = END_ACTION;
+        actions[ILLEGAL] = ERROR_ACTION;
+        actions[GE] = GE_ACTION;
+        actions[COMMENT] = SKIP;
+    }
+
+    /**
+     * Helper method: classify puts every character of a String in a class.
+     *
+     * @param chars the characters of the class.
+     * @param type  the character class.
+     */
+    private void classify(String chars, int type)
+    {
+        for (char c: chars.toCharArray())
+        {
+            classes[c] = type;
+        }
+    }
+
+    /**
+     * Helper method: move adds the transitions from one state to another on
+     * the given character classes.
+     *
+     * @param from  the state the transitions leave.
+     * @param to    the state the transitions enter.
+     * @param types the character classes of the transitions.
+     */
+    private void move(int from, int to, int... types)
+    {
+        for (int type: types)
+        {
+            trans[from][type] = to;
+        }
+    }
+
+    /**
+     * Method: attributes finds the JFlex attributes of every state.
+     *
+     * @return the attributes, indexed by state.
+     */
+    public int[] attributes()
+    {
+        int[] attr = new int[STATES];
+        for (int s = 0; s < STATES; s++)
+        {
+            if (actions[s] != 0)
+            {
+                attr[s] = FINAL;
+                boolean dead = true;
+                for (int next: trans[s])
+                {
+                    dead &= next == NO_TRANS;
+                }
+                if (dead)
+                    attr[s] |= NO_LOOKAHEAD;
+            }
+        }
+        return attr;
+    }
+
+    /**
+     * Method: literal writes a table as a Java String literal, split into
+     * lines of the given number of characters.
+     *
+     * @param values  the entries of the table.
+     * @param perLine the number of entries on a line.
+     *
+     * @return the Java source of the literal.
+     */
+    public static String literal(int[] values, int perLine)
+    {
+        StringBuilder out = new StringBuilder("    \"");
+        for (int i = 0; i < values.length; i++)
+        {
+            if (i > 0 && i % perLine == 0)
+                out.append("\"+\n    \"");
+            int v = values[i];
+            if (v < 256)
+                out.append('\\').append(Integer.toOctalString(v));
+            else
+                out.append(String.format("\\u%04x", v));
+        }
+        return out.append('"').toString();
+    }
+
+    /**
+     * The main method prints the tables of Scannerabb, in the order in which
+     * Scannerabb declares them.
+     *
+     * @param args not used.
+     */
+    public static void main(String[] args)
+    {
+        ScannerabbTables tables = new ScannerabbTables();
+        int[] rowmap = new int[STATES];
+        int[] flat = new int[STATES * CLASSES];
+        for (int s = 0; s < STATES; s++)
+        {
+            rowmap[s] = s * CLASSES;
+            System.arraycopy(tables.trans[s], 0, flat, s * CLASSES, CLASSES);
+        }
+
+        System.out.println("ZZ_CMAP_ASCII");
+        System.out.println(literal(tables.classes, 16));
+        System.out.println("ZZ_ACTION");
+        System.out.println(literal(tables.actions, 16));
+        System.out.println("ZZ_ROWMAP");
+        System.out.println(literal(rowmap, 16));
+        System.out.println("ZZ_TRANS");
+        System.out.println(literal(flat, CLASSES));
+        System.out.println("ZZ_ATTRIBUTE");
+        System.out.println(literal(tables.attributes(), 16));
+    }
+}
@@ -0,0 +1,452 @@
+package AST;
+
+import Environment.Environment;
+import Environment.SlotMap;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The Scope class tells the resolver pass where each variable lives.
+ * A variable looked up by name is searched for in the frame of the call,
+ * then in the frame of its caller and so on up to the global frame, and an
+ * assignment by name writes the caller's variable if the caller's frame
+ * holds one of that name. An address may only stand for a name where it
+ * is sure to find the same variable:
+ * At the top level of a Program every variable the body assigns is global
+ * and gets a slot in the global Environment, but the slot is only used
+ * once the variable is surely assigned; before that the variable is looked
+ * up by name, which fails as it would without the resolver.
+ * Inside a procedure the local variables are the procedure's own name,
+ * which holds its result, its parameters, and the variables it assigns that
+ * are its own. A procedure is only resolved if its result is its own:
+ * the global frame has no slot
+ * for the name and no other procedure uses the name for a variable, since
+ * a call writes its result into the frame of the caller if that frame
+ * holds a variable of the name; and if the procedure calls itself, it must
+ * assign its result after each such call before reading it or returning,
+ * since the call writes it too. The other variables are its own if no
+ * other procedure uses their names, they are not global, the procedure
+ * does not call itself, and it assigns each before reading it.
+ * They are numbered in that order. A global a procedure reads has an address
+ * if it is surely assigned before any call and no procedure assigns it or
+ * takes it as a parameter. Any other variable is looked up by name at run time.
+ * The procedures considered are those of the Program and those already
+ * declared in the global Environment.
+ *
+ * @author Annabelle Ju
+ * @version 04/17/2020
+ */
+public class Scope
+{
+    private Environment global;
+    private Scope outer;
+    private SlotMap locals;
+    private Set<String> own;
+    private Set<String> assigned;
+    private Set<String> escaped;
+    private Set<String> globalReads;
+    private String procedure;
+    private boolean stale;
+    private boolean shared;
+    private ArrayDeque<Boolean> staleSaved;
+
+    private LinkedHashMap<String, ProcedureDeclaration> known;
+    private List<ProcedureDeclaration> earlier;
+    private HashMap<String, Set<String>> users;
+    private HashMap<String, Set<String>> binders;
+    private HashSet<String> bound;
+    private HashSet<String> selfCalling;
+    private boolean opaque;
+    private Set<String> callSafe;
+
+    /**
+     * Constructor for objects of class Scope at the top level of a Program.
+     *
+     * @param env the global Environment the Program will run in.
+     */
+    public Scope(Environment env)
+    {
+        global = env.getGlobal();
+        assigned = new HashSet<>();
+        declare(new ArrayList<>(), null);
+    }
+
+    /**
+     * Constructor for objects of class Scope inside a procedure.
+     *
+     * @param top        the Scope of the Program that declares the procedure.
+     * @param name       the name of the procedure, which holds its result.
+     * @param layout     the slot of every local variable of the procedure.
+     * @param variables  the local variables that are neither its name nor a parameter.
+     */
+    public Scope(Scope top, String name, SlotMap layout, Set<String> variables)
+    {
+        global = top.global;
+        outer = top;
+        procedure = name;
+        staleSaved = new ArrayDeque<>();
+        locals = layout;
+        own = variables;
+        assigned = new HashSet<>();
+        escaped = new LinkedHashSet<>();
+        globalReads = new LinkedHashSet<>();
+    }
+
+    /**
+     * Declares the procedures and body of a Program at the top level: the
+     * variables the body assigns get slots in the global Environment, and
+     * the names every procedure uses are noted, together with those of the
+     * procedures already declared that the Program does not declare again.
+     *
+     * @param procedures the declarations of the Program.
+     * @param body       the body of the Program, or null.
+     */
+    public void declare(List<ProcedureDeclaration> procedures, Statement body)
+    {
+        if (body != null)
+        {
+            LinkedHashSet<String> globals = new LinkedHashSet<>();
+            body.assignedNames(globals);
+            for (String name: globals)
+            {
+                global.reserve(name);
+            }
+        }
+
+        known = new LinkedHashMap<>();
+        earlier = new ArrayList<>();
+        HashSet<String> redeclared = new HashSet<>();
+        for (ProcedureDeclaration dec: procedures)
+        {
+            redeclared.add(dec.getName());
+        }
+        for (String name: new ArrayList<>(global.getProcedureNames()))
+        {
+            ProcedureDeclaration dec = global.getProcedure(name);
+            if (dec != null && !redeclared.contains(name))
+            {
+                known.put(name, dec);
+                earlier.add(dec);
+            }
+        }
+        for (ProcedureDeclaration dec: procedures)
+        {
+            known.put(dec.getName(), dec);
+        }
+
+        users = new HashMap<>();
+        binders = new HashMap<>();
+        bound = new HashSet<>();
+        selfCalling = new HashSet<>();
+        opaque = false;
+        for (ProcedureDeclaration dec: known.values())
+        {
+            HashSet<String> binds = new HashSet<>();
+            HashSet<String> reads = new HashSet<>();
+            HashSet<String> calls = new HashSet<>();
+            if (!dec.usage(binds, reads, calls))
+            {
+                opaque = true;
+            }
+            bound.addAll(binds);
+            for (String var: binds)
+            {
+                binders.computeIfAbsent(var, k -> new HashSet<>()).add(dec.getName());
+            }
+            reads.addAll(binds);
+            for (String var: reads)
+            {
+                users.computeIfAbsent(var, k -> new HashSet<>()).add(dec.getName());
+            }
+            if (calls.contains(dec.getName()))
+            {
+                selfCalling.add(dec.getName());
+            }
+        }
+        assigned.clear();
+        callSafe = null;
+    }
+
+    /**
+     * Retrieves the procedures declared before this Program that it does not
+     * declare again, so that their resolution can be checked against it.
+     *
+     * @return the declarations.
+     */
+    List<ProcedureDeclaration> getEarlier()
+    {
+        return earlier;
+    }
+
+    /**
+     * Tells whether a variable is global, that is, has a slot in the global
+     * Environment, whether or not it has been assigned yet.
+     *
+     * @param name the name of the variable.
+     *
+     * @return true if the global Environment has a slot for the variable.
+     */
+    public boolean isGlobal(String name)
+    {
+        return global.hasSlot(name);
+    }
+
+    /**
+     * Tells whether a variable a procedure assigns can be its own, kept in a
+     * slot of its frame that nothing but the procedure itself ever looks at.
+     *
+     * @param procedure the name of the procedure.
+     * @param name      the name of the variable.
+     *
+     * @return true if the variable can be local to the procedure.
+     */
+    public boolean canOwn(String procedure, String name)
+    {
+        if (outer != null)
+        {
+            return outer.canOwn(procedure, name);
+        }
+        Set<String> names = users.get(name);
+        return !opaque && !isGlobal(name) && !selfCalling.contains(procedure)
+               && (names == null || (names.size() == 1 && names.contains(procedure)));
+    }
+
+    /**
+     * Tells whether a procedure can keep its result in a slot of its own
+     * frame: the global frame has no slot for its name, and no other
+     * procedure has a variable of that name, so no caller's frame holds
+     * one for the call to write its result into.
+     *
+     * @param procedure the name of the procedure.
+     *
+     * @return true if the procedure can be resolved.
+     */
+    public boolean canKeepResult(String procedure)
+    {
+        if (outer != null)
+        {
+            return outer.canKeepResult(procedure);
+        }
+        Set<String> names = binders.get(procedure);
+        return !opaque && !isGlobal(procedure)
+               && (names == null || (names.size() == 1 && names.contains(procedure)));
+    }
+
+    /**
+     * Helper method: isDefined tells whether a global variable is surely
+     * assigned at this point of the body of the Program.
+     */
+    private boolean isDefined(String name)
+    {
+        return isGlobal(name) && (global.hasVariable(name) || assigned.contains(name));
+    }
+
+    /**
+     * Helper method: isShared tells whether a procedure can read a global
+     * variable by its address: the variable is surely assigned before any
+     * call, and no frame of a procedure can hold a variable of that name.
+     */
+    private boolean isShared(String name)
+    {
+        return isGlobal(name) && !opaque && !bound.contains(name)
+               && (global.hasVariable(name) || (callSafe != null && callSafe.contains(name)));
+    }
+
+    /**
+     * Finds the depth of a variable that is read: 0 for a local, 1 for a
+     * global, or -1 if it must be looked up by name.
+     *
+     * @param name the name of the variable.
+     *
+     * @return the depth.
+     */
+    public int depthOf(String name)
+    {
+        if (outer == null)
+        {
+            return isDefined(name) ? 1 : -1;
+        }
+        if (name.equals(procedure) && stale)
+        {
+            shared = true;
+        }
+        if (locals.containsKey(name))
+        {
+            if (own.contains(name) && !assigned.contains(name))
+            {
+                escaped.add(name);
+            }
+            return 0;
+        }
+        if (outer.isShared(name))
+        {
+            globalReads.add(name);
+            return 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the depth of a variable that is assigned: 0 for a local, 1 for
+     * a global that is surely assigned already, or -1 if it must be assigned by name.
+     *
+     * @param name the name of the variable.
+     *
+     * @return the depth.
+     */
+    public int assignedDepthOf(String name)
+    {
+        if (outer == null)
+        {
+            return isDefined(name) ? 1 : -1;
+        }
+        return locals.containsKey(name) ? 0 : -1;
+    }
+
+    /**
+     * Finds the slot of a variable within its frame.
+     *
+     * @param name the name of the variable, which must have an address.
+     *
+     * @return the slot.
+     */
+    public int slotOf(String name)
+    {
+        if (locals != null && locals.containsKey(name))
+        {
+            return locals.get(name);
+        }
+        return global.slotOf(name);
+    }
+
+    /**
+     * Notes that a variable is surely assigned from this point on.
+     *
+     * @param name the name of the variable.
+     */
+    public void assign(String name)
+    {
+        assigned.add(name);
+        if (name.equals(procedure))
+        {
+            stale = false;
+        }
+    }
+
+    /**
+     * Notes that a procedure is called at this point. Only the globals
+     * surely assigned at every call of the body are known to procedures.
+     * Inside a procedure that calls itself, the call writes the result of
+     * the procedure, which must be assigned again before it is read.
+     *
+     * @param name the name of the procedure called.
+     */
+    public void call(String name)
+    {
+        if (outer != null)
+        {
+            if (name.equals(procedure))
+            {
+                stale = true;
+            }
+            return;
+        }
+        if (callSafe == null)
+        {
+            callSafe = new HashSet<>(assigned);
+        }
+        else
+        {
+            callSafe.retainAll(assigned);
+        }
+    }
+
+    /**
+     * Notes that the body of the Program ends here, after which procedures
+     * may still be called by the Programs that follow.
+     */
+    public void end()
+    {
+        call(null);
+    }
+
+    /**
+     * Saves the variables surely assigned so far, before a Statement that
+     * may not run.
+     *
+     * @return the variables.
+     */
+    public Set<String> save()
+    {
+        if (outer != null)
+        {
+            staleSaved.push(stale);
+        }
+        return new HashSet<>(assigned);
+    }
+
+    /**
+     * Goes back to the variables surely assigned before a Statement that may
+     * not run. A result the Statement may have left stale stays stale.
+     *
+     * @param saved the variables returned by save.
+     */
+    public void restore(Set<String> saved)
+    {
+        assigned = saved;
+        if (outer != null)
+        {
+            stale |= staleSaved.pop();
+        }
+    }
+
+    /**
+     * Tells whether the result of the procedure may have been written by a
+     * call of itself since the procedure last assigned it.
+     *
+     * @return true if the result must be assigned before it is read.
+     */
+    public boolean isStale()
+    {
+        return stale;
+    }
+
+    /**
+     * Tells whether the procedure may read or return a result that a call
+     * of itself wrote, so that the result is not its own.
+     *
+     * @return true if the procedure cannot be resolved.
+     */
+    boolean sharesResult()
+    {
+        return shared || stale;
+    }
+
+    /**
+     * Retrieves the variables of a procedure that were read before it surely
+     * assigned them, and so cannot be its own.
+     *
+     * @return the names of the variables.
+     */
+    Set<String> getEscaped()
+    {
+        return escaped;
+    }
+
+    /**
+     * Retrieves the globals a procedure reads by their addresses.
+     *
+     * @return the names of the variables.
+     */
+    Set<String> getGlobalReads()
+    {
+        return globalReads;
+    }
+}
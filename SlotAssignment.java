@@ -0,0 +1,133 @@
+package AST;
+
+import Environment.Environment;
+import VM.Bytecode;
+import VM.Emitter;
+
+import java.util.Set;
+
+/**
+ * The SlotAssignment class represents an assignment to a variable whose
+ * address was found by the resolver pass, so that executing it writes
+ * a frame slot directly instead of looking the name up.
+ * SlotAssignment is an instance of a Statement.
+ *
+ * @author Annabelle Ju
+ * @version 04/17/2020
+ */
+public class SlotAssignment extends Statement
+{
+    private String var;
+    private int depth;
+    private int slot;
+    private Expression exp;
+
+    /**
+     * Constructor for objects of class SlotAssignment.
+     *
+     * @param s the String variable to be assigned.
+     * @param d the depth of its frame: 0 for the local frame, 1 for the global frame.
+     * @param i the slot of the variable in that frame.
+     * @param e the Expression to be assigned to the variable.
+     */
+    public SlotAssignment(String s, int d, int i, Expression e)
+    {
+        var = s;
+        depth = d;
+        slot = i;
+        exp = e;
+    }
+
+    /**
+     * Executes this Assignment by setting the slot of
+     * the variable to the value of the Expression.
+     *
+     * @param env the Environment in which to execute the Statement.
+     */
+    @Override
+    public void exec(Environment env)
+    {
+        env.setSlot(depth, slot, exp.eval(env));
+    }
+
+    /**
+     * Emits the Expression, then the store into the slot.
+     *
+     * @param e the Emitter that receives the code.
+     */
+    @Override
+    public void compile(Emitter e)
+    {
+        exp.compile(e);
+        e.emit(depth == 0 ? Bytecode.STORE_LOCAL : Bytecode.STORE_GLOBAL, slot);
+    }
+
+    /**
+     * Builds the Action that writes the value of the Expression to the
+     * slot of the variable. The frame array is fetched after the value is
+     * computed, since computing it may call code that grows the frame.
+     *
+     * @return the Action.
+     */
+    @Override
+    public Closure.Action closure()
+    {
+        Closure.Value v = exp.closure();
+        int s = slot;
+        if (depth == 0)
+        {
+            return env ->
+            {
+                int x = v.eval(env);
+                env.getValues()[env.getBase() + s] = x;
+            };
+        }
+        if (depth == 1)
+        {
+            return env ->
+            {
+                int x = v.eval(env);
+                env.getGlobal().getValues()[s] = x;
+            };
+        }
+        int d = depth;
+        return env -> env.setSlot(d, s, v.eval(env));
+    }
+
+    /**
+     * Turns this Assignment into a TailCall if it assigns a call of the
+     * Procedure on as many arguments as it has parameters to the result of
+     * the Procedure. A call on fewer arguments reads the other parameters
+     * from its caller, so it needs a frame of its own.
+     *
+     * @param procedure the name of the Procedure whose Statement this is.
+     * @param arity     the number of its parameters.
+     *
+     * @return a TailCall, or this Assignment.
+     */
+    @Override
+    public Statement tailCalls(String procedure, int arity)
+    {
+        if (depth == 0 && slot == 0 && var.equals(procedure) && exp instanceof ProcedureCall
+                && ((ProcedureCall) exp).getName().equals(procedure)
+                && ((ProcedureCall) exp).getArguments().size() == arity)
+        {
+            return new TailCall((ProcedureCall) exp);
+        }
+        return this;
+    }
+
+    /**
+     * A SlotAssignment is local if it assigns a variable of the frame
+     * itself a local value.
+     *
+     * @param callable the names of the procedures it may call.
+     *
+     * @return true if the Assignment is local.
+     */
+    @Override
+    public boolean isLocal(Set<String> callable)
+    {
+        return depth == 0 && exp.isLocal(callable);
+    }
+}
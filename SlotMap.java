@@ -0,0 +1,167 @@
+package Environment;
+
+/**
+ * SlotMap maps variable names to int slots without boxing. It is an
+ * open-addressing table with linear probing, like Scanner.SymbolTable:
+ * names, their hashes and their slots sit in parallel arrays, so a lookup
+ * is one probe sequence that compares cached hashes before Strings, and
+ * names that are the same interned String match without calling equals.
+ * Names are never removed.
+ *
+ * @author  Annabelle Ju
+ * @version 04/17/2020
+ */
+public class SlotMap
+{
+    private String[] keys;
+    private int[] hashes;
+    private int[] slots;
+    private int size;
+
+    /**
+     * Constructor for objects of class SlotMap.
+     */
+    public SlotMap()
+    {
+        keys = new String[8];
+        hashes = new int[8];
+        slots = new int[8];
+    }
+
+    /**
+     * Constructor for objects of class SlotMap that copies another SlotMap.
+     *
+     * @param other the SlotMap to be copied.
+     */
+    public SlotMap(SlotMap other)
+    {
+        keys = other.keys.clone();
+        hashes = other.hashes.clone();
+        slots = other.slots.clone();
+        size = other.size;
+    }
+
+    /**
+     * The method "size" gives the number of names in this SlotMap.
+     *
+     * @return the number of names.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Helper method: find locates the index at which a name is stored,
+     * or the empty index at which it would be stored.
+     */
+    private int find(String name, int hash)
+    {
+        int mask = keys.length - 1;
+        int i = hash & mask;
+        String key;
+        while ((key = keys[i]) != null)
+        {
+            if (key == name || (hashes[i] == hash && key.equals(name)))
+                return i;
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * The method "get" retrieves the slot of a name.
+     *
+     * @param name the name to be looked up.
+     *
+     * @return the slot of the name, or -1 if it is not in this SlotMap.
+     */
+    public int get(String name)
+    {
+        int i = find(name, name.hashCode());
+        return keys[i] == null ? -1 : slots[i];
+    }
+
+    /**
+     * The method "containsKey" tells whether a name is in this SlotMap.
+     *
+     * @param name the name to be looked up.
+     *
+     * @return true if the name has a slot.
+     */
+    public boolean containsKey(String name)
+    {
+        return get(name) >= 0;
+    }
+
+    /**
+     * The method "put" sets the slot of a name.
+     *
+     * @param name the name.
+     * @param slot the slot of the name, which must not be negative.
+     */
+    public void put(String name, int slot)
+    {
+        int hash = name.hashCode();
+        int i = find(name, hash);
+        if (keys[i] == null)
+        {
+            i = insert(name, hash);
+        }
+        slots[i] = slot;
+    }
+
+    /**
+     * The method "add" retrieves the slot of a name, first giving it the
+     * next free slot, which is the current size, if it has none.
+     *
+     * @param name the name.
+     *
+     * @return the slot of the name.
+     */
+    public int add(String name)
+    {
+        int hash = name.hashCode();
+        int i = find(name, hash);
+        if (keys[i] == null)
+        {
+            int slot = size;
+            i = insert(name, hash);
+            slots[i] = slot;
+        }
+        return slots[i];
+    }
+
+    /**
+     * Helper method: insert stores a new name, growing the table to keep it
+     * at most half full, and returns the index it was stored at.
+     */
+    private int insert(String name, int hash)
+    {
+        if (2 * (size + 1) > keys.length)
+        {
+            String[] oldKeys = keys;
+            int[] oldHashes = hashes;
+            int[] oldSlots = slots;
+            keys = new String[oldKeys.length * 2];
+            hashes = new int[oldKeys.length * 2];
+            slots = new int[oldKeys.length * 2];
+            for (int j = 0; j < oldKeys.length; j++)
+            {
+                if (oldKeys[j] != null)
+                {
+                    int k = find(oldKeys[j], oldHashes[j]);
+                    keys[k] = oldKeys[j];
+                    hashes[k] = oldHashes[j];
+                    slots[k] = oldSlots[j];
+                }
+            }
+        }
+
+        int i = find(name, hash);
+        keys[i] = name;
+        hashes[i] = hash;
+        size++;
+        return i;
+    }
+}
@@ -0,0 +1,131 @@
+package AST;
+
+import Environment.Environment;
+import VM.Bytecode;
+import VM.Emitter;
+
+import java.util.Set;
+
+/**
+ * The SlotVariable class represents a variable whose address was found
+ * by the resolver pass, so that evaluating it indexes a frame directly
+ * instead of looking its name up.
+ * SlotVariable is an instance of an Expression.
+ *
+ * @author Annabelle Ju
+ * @version 04/17/2020
+ */
+public class SlotVariable extends Expression
+{
+    private String name;
+    private int depth;
+    private int slot;
+
+    /**
+     * Constructor for objects of class SlotVariable.
+     *
+     * @param s the string name of this Variable.
+     * @param d the depth of its frame: 0 for the local frame, 1 for the global frame.
+     * @param i the slot of the variable in that frame.
+     */
+    public SlotVariable(String s, int d, int i)
+    {
+        name = s;
+        depth = d;
+        slot = i;
+    }
+
+    /**
+     * Evaluates this Variable by reading its slot.
+     *
+     * @param env the Environment in which to evaluate the Expression.
+     *
+     * @return the value of this Variable
+     */
+    @Override
+    public int eval(Environment env)
+    {
+        return env.getSlot(depth, slot);
+    }
+
+    /**
+     * A SlotVariable is pure.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean isPure()
+    {
+        return true;
+    }
+
+    /**
+     * A SlotVariable cannot trap, since its slot always holds a value.
+     *
+     * @return false.
+     */
+    @Override
+    public boolean canTrap()
+    {
+        return false;
+    }
+
+    /**
+     * A SlotVariable is local if it is in the frame itself.
+     *
+     * @param callable the names of the procedures it may call.
+     *
+     * @return true if the depth is 0.
+     */
+    @Override
+    public boolean isLocal(Set<String> callable)
+    {
+        return depth == 0;
+    }
+
+    /**
+     * Compares this SlotVariable to another Expression.
+     *
+     * @param other the Expression to be compared.
+     *
+     * @return true if other is a SlotVariable of the same address.
+     */
+    @Override
+    public boolean sameAs(Expression other)
+    {
+        return other instanceof SlotVariable && ((SlotVariable) other).depth == depth
+                && ((SlotVariable) other).slot == slot;
+    }
+
+    /**
+     * Emits the load of the slot of this Variable.
+     *
+     * @param e the Emitter that receives the code.
+     */
+    @Override
+    public void compile(Emitter e)
+    {
+        e.emit(depth == 0 ? Bytecode.LOAD_LOCAL : Bytecode.LOAD_GLOBAL, slot);
+    }
+
+    /**
+     * Builds the Value that reads the slot of this Variable.
+     *
+     * @return the Value.
+     */
+    @Override
+    public Closure.Value closure()
+    {
+        int s = slot;
+        if (depth == 0)
+        {
+            return env -> env.getValues()[env.getBase() + s];
+        }
+        if (depth == 1)
+        {
+            return env -> env.getGlobal().getValues()[s];
+        }
+        int d = depth;
+        return env -> env.getSlot(d, s);
+    }
+}
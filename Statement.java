@@ -1,6 +1,10 @@
 package AST;
 
 import Environment.Environment;
+import VM.Emitter;
+
+import java.util.Map;
+import java.util.Set;
 
 /**
  * The Statement class represents any code that
@@ -18,4 +22,180 @@ public abstract class Statement
      * @param env the Environment in which to execute the Statement.
      */
     public abstract void exec(Environment env);
+
+    /**
+     * The method "optimize" returns a Statement that does the same
+     * with less work, by optimizing its Expressions and dropping what
+     * can never run. By default nothing changes.
+     *
+     * @return the optimized Statement, which may be this one.
+     */
+    public Statement optimize()
+    {
+        return this;
+    }
+
+    /**
+     * The method "resolve" returns this Statement with every variable it
+     * reads or assigns replaced by its address in the given Scope, where it has one.
+     * By default nothing changes.
+     *
+     * @param scope the Scope in which this Statement is executed.
+     *
+     * @return the resolved Statement, which may be this one.
+     */
+    public Statement resolve(Scope scope)
+    {
+        return this;
+    }
+
+    /**
+     * The method "assignedNames" collects the names of the variables
+     * this Statement assigns.
+     *
+     * @param names the set the names are added to.
+     *
+     * @return false if the names cannot be known before this Statement runs.
+     */
+    public boolean assignedNames(Set<String> names)
+    {
+        return false;
+    }
+
+    /**
+     * The method "readNames" collects the names of the variables this
+     * Statement reads and of the procedures it calls.
+     *
+     * @param reads the set the names of the variables are added to.
+     * @param calls the set the names of the procedures are added to.
+     *
+     * @return false if the names cannot be known before this Statement runs.
+     */
+    public boolean readNames(Set<String> reads, Set<String> calls)
+    {
+        return false;
+    }
+
+    /**
+     * The method "isLocal" tells whether this Statement reads and writes
+     * nothing outside the frame it runs in, writes no output, and calls no
+     * procedure but the given ones. By default it does not.
+     *
+     * @param callable the names of the procedures it may call.
+     *
+     * @return true if this Statement is local.
+     */
+    public boolean isLocal(Set<String> callable)
+    {
+        return false;
+    }
+
+    /**
+     * The method "size" counts the nodes of this Statement, for the
+     * Inliner to weigh the cost of copying it. By default a node is one
+     * the Inliner cannot copy, and is counted as too large for any threshold.
+     *
+     * @return the number of nodes.
+     */
+    public int size()
+    {
+        return Inliner.TOO_LARGE;
+    }
+
+    /**
+     * The method "substitute" returns a copy of this Statement in which
+     * every variable the map names is replaced by the Expression it maps
+     * to; a variable that is assigned is renamed to the Variable it maps to.
+     * By default nothing changes.
+     *
+     * @param map the Expression that replaces each variable.
+     *
+     * @return the Statement, which may be this one.
+     */
+    public Statement substitute(Map<String, Expression> map)
+    {
+        return this;
+    }
+
+    /**
+     * The method "inline" returns this Statement with the calls the
+     * Inliner can replace replaced. By default nothing changes.
+     *
+     * @param inliner the Inliner.
+     *
+     * @return the Statement, which may be this one.
+     */
+    public Statement inline(Inliner inliner)
+    {
+        return this;
+    }
+
+    /**
+     * The method "compile" emits the Bytecode that executes this Statement.
+     * By default the Bytecode hands this Statement to the tree walker.
+     *
+     * @param e the Emitter that receives the code.
+     */
+    public void compile(Emitter e)
+    {
+        e.emitStatement(this);
+    }
+
+    /**
+     * The method "closure" turns this Statement into a Closure.Action, built
+     * once, that executes it. By default the Action executes this Statement.
+     *
+     * @return the Action.
+     */
+    public Closure.Action closure()
+    {
+        return this::exec;
+    }
+
+    /**
+     * The method "tailCalls" returns this Statement with each assignment of
+     * a call of the named Procedure, on as many arguments as it has
+     * parameters, to its result, where the assignment is the last thing the
+     * Statement does, replaced by a TailCall. It is applied to the resolved
+     * Statement of a Procedure. By default nothing changes.
+     *
+     * @param procedure the name of the Procedure whose Statement this is.
+     * @param arity     the number of its parameters.
+     *
+     * @return the Statement, which may be this one.
+     */
+    public Statement tailCalls(String procedure, int arity)
+    {
+        return this;
+    }
+
+    /**
+     * The method "memoize" returns this Statement with the given Memos
+     * attached to the procedures of those names it declares that are
+     * functions of their arguments alone. It is applied to a resolved
+     * Program. By default nothing changes.
+     *
+     * @param memos the Memo of every procedure to be memoized, by name.
+     *
+     * @return the Statement, which may be this one.
+     */
+    public Statement memoize(Map<String, Memo> memos)
+    {
+        return this;
+    }
+
+    /**
+     * The method "inlineCalls" returns this Statement with the calls of
+     * its small procedures replaced by their bodies. It is applied to an
+     * optimized Program before it is resolved. By default nothing changes.
+     *
+     * @param scope     the Scope of the global Environment.
+     * @param threshold the number of nodes a procedure may have and still be inlined.
+     *
+     * @return the Statement, which may be this one.
+     */
+    public Statement inlineCalls(Scope scope, int threshold)
+    {
+        return this;
+    }
 }
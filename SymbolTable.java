@@ -0,0 +1,160 @@
+package Scanner;
+
+/**
+ * SymbolTable interns identifiers scanned by the Scanner.Scanner. A lookup takes
+ * the characters of a lexeme straight from the scanner's buffer, so an identifier
+ * that has been seen before is resolved to its Token without creating a String.
+ * The table is seeded with the keywords, which therefore come back as their
+ * keyword Tokens. Every identifier is numbered in order of first occurrence;
+ * its number is the value of its Token and indexes getIdentifier.
+ *
+ * @author  Annabelle Ju
+ * @version 04/17/2020
+ */
+public class SymbolTable
+{
+    private Token[] entries;
+    private int[] hashes;
+    private int size;
+    private Token[] identifiers;
+    private int identifierCount;
+
+    /**
+     * Constructor for objects of class SymbolTable.
+     * Creates a table that already contains every keyword.
+     */
+    public SymbolTable()
+    {
+        entries = new Token[64];
+        hashes = new int[64];
+        identifiers = new Token[32];
+        for (TokenType type: TokenType.values())
+        {
+            String lex = type.getLexeme();
+            if (lex != null && Scanner.isLetter(lex.charAt(0)))
+                insert(Token.of(type), lex.hashCode());
+        }
+    }
+
+    /**
+     * The method "lookup" finds the Token for the given characters,
+     * creating and interning a new IDENTIFIER token on the first occurrence.
+     *
+     * @param buf  the buffer holding the lexeme.
+     * @param off  the index of the first character of the lexeme in buf.
+     * @param len  the number of characters of the lexeme.
+     * @param hash the hash of the lexeme, computed as String.hashCode would.
+     *
+     * @return the keyword or interned IDENTIFIER token for the lexeme.
+     */
+    public Token lookup(char[] buf, int off, int len, int hash)
+    {
+        int mask = entries.length - 1;
+        int i = hash & mask;
+        Token entry;
+        while ((entry = entries[i]) != null)
+        {
+            if (hashes[i] == hash && matches(entry.getSymbol(), buf, off, len))
+                return entry;
+            i = (i + 1) & mask;
+        }
+
+        Token token = new Token(TokenType.IDENTIFIER, identifierCount, new String(buf, off, len));
+        if (identifierCount == identifiers.length)
+        {
+            Token[] bigger = new Token[identifiers.length * 2];
+            System.arraycopy(identifiers, 0, bigger, 0, identifierCount);
+            identifiers = bigger;
+        }
+        identifiers[identifierCount++] = token;
+        insert(token, hash);
+        return token;
+    }
+
+    /**
+     * The method "lookup" finds the Token for the given name.
+     *
+     * @param name the name to be looked up.
+     *
+     * @return the keyword or interned IDENTIFIER token for the name.
+     */
+    public Token lookup(String name)
+    {
+        return lookup(name.toCharArray(), 0, name.length(), name.hashCode());
+    }
+
+    /**
+     * Retrieves an identifier by its number.
+     *
+     * @param id the number of the identifier, the value of its Token.
+     *
+     * @return the interned IDENTIFIER token with the given number.
+     */
+    public Token getIdentifier(int id)
+    {
+        return identifiers[id];
+    }
+
+    /**
+     * Retrieves the number of identifiers in this table.
+     *
+     * @return the number of distinct identifiers interned so far.
+     */
+    public int identifierCount()
+    {
+        return identifierCount;
+    }
+
+    /**
+     * Retrieves the number of entries in this table, including the keywords.
+     *
+     * @return the number of interned symbols.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Helper method: matches compares an interned symbol to the characters in a buffer.
+     */
+    private static boolean matches(String symbol, char[] buf, int off, int len)
+    {
+        if (symbol.length() != len)
+            return false;
+        for (int i = 0; i < len; i++)
+        {
+            if (symbol.charAt(i) != buf[off + i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Helper method: insert adds a Token, doubling the table when it is half full.
+     */
+    private void insert(Token token, int hash)
+    {
+        if (2 * (size + 1) > entries.length)
+        {
+            Token[] oldEntries = entries;
+            int[] oldHashes = hashes;
+            entries = new Token[oldEntries.length * 2];
+            hashes = new int[oldEntries.length * 2];
+            size = 0;
+            for (int j = 0; j < oldEntries.length; j++)
+            {
+                if (oldEntries[j] != null)
+                    insert(oldEntries[j], oldHashes[j]);
+            }
+        }
+
+        int mask = entries.length - 1;
+        int i = hash & mask;
+        while (entries[i] != null)
+            i = (i + 1) & mask;
+        entries[i] = token;
+        hashes[i] = hash;
+        size++;
+    }
+}
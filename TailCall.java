@@ -0,0 +1,136 @@
+package AST;
+
+import Environment.Environment;
+import VM.Emitter;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The TailCall class represents the assignment of a call of a resolved
+ * Procedure to its own result, where it is the last thing the Procedure
+ * does, as in fact := fact(n - 1, n * acc). If the Procedure declared under
+ * the name is still the one whose frame this is, the call is made by
+ * clearing the frame, setting the parameters to the arguments and running
+ * the Procedure again from the start in the same frame, so a tail-recursive
+ * Procedure runs as a loop, in constant stack. Otherwise it is an ordinary
+ * call whose value is assigned to the result.
+ * TailCall is an instance of a Statement.
+ *
+ * @author Annabelle Ju
+ * @version 04/17/2020
+ */
+public class TailCall extends Statement
+{
+    private ProcedureCall call;
+
+    /**
+     * Constructor for objects of class TailCall.
+     *
+     * @param c the call whose value the Procedure returns.
+     */
+    public TailCall(ProcedureCall c)
+    {
+        call = c;
+    }
+
+    /**
+     * Executes this TailCall: the arguments are computed, and the frame is
+     * either restarted with them or the call is made and its value assigned
+     * to the result.
+     *
+     * @param env the frame of the Procedure.
+     */
+    @Override
+    public void exec(Environment env)
+    {
+        ProcedureDeclaration dec = call.target(env);
+        if (!dec.canRestart(env))
+        {
+            env.setSlot(0, 0, call.eval(env));
+            return;
+        }
+        List<Expression> args = call.getArguments();
+        int[] values = new int[args.size()];
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = args.get(i).eval(env);
+        }
+        restart(dec, env, values);
+    }
+
+    /**
+     * A TailCall is local if its call is.
+     *
+     * @param callable the names of the procedures it may call.
+     *
+     * @return true if the call is local.
+     */
+    @Override
+    public boolean isLocal(Set<String> callable)
+    {
+        return call.isLocal(callable);
+    }
+
+    /**
+     * Helper method: restart clears the frame, sets the parameters and asks
+     * for the Procedure to be run again once its Statement returns.
+     */
+    private static void restart(ProcedureDeclaration dec, Environment env, int[] values)
+    {
+        env.clear();
+        for (int i = 0; i < values.length; i++)
+        {
+            dec.setArgument(env, i, values[i]);
+        }
+        env.requestRestart();
+    }
+
+    /**
+     * Builds the Action that executes this TailCall.
+     *
+     * @return the Action.
+     */
+    @Override
+    public Closure.Action closure()
+    {
+        Closure.Value whole = call.closure();
+        List<Expression> list = call.getArguments();
+        Closure.Value[] args = new Closure.Value[list.size()];
+        for (int i = 0; i < args.length; i++)
+        {
+            args[i] = list.get(i).closure();
+        }
+        return env ->
+        {
+            ProcedureDeclaration dec = call.target(env);
+            if (!dec.canRestart(env))
+            {
+                int result = whole.eval(env);
+                env.getValues()[env.getBase()] = result;
+                return;
+            }
+            int[] values = new int[args.length];
+            for (int i = 0; i < values.length; i++)
+            {
+                values[i] = args[i].eval(env);
+            }
+            restart(dec, env, values);
+        };
+    }
+
+    /**
+     * Emits the arguments, then the tail call.
+     *
+     * @param e the Emitter that receives the code.
+     */
+    @Override
+    public void compile(Emitter e)
+    {
+        for (Expression exp: call.getArguments())
+        {
+            exp.compile(e);
+        }
+        e.emitTailCall(call.getName(), call.getArguments().size());
+    }
+}
@@ -0,0 +1,120 @@
+package Scanner;
+
+/**
+ * Token is a single lexical unit produced by the Scanner.Scanner. Keywords and
+ * operators are shared singletons, identifiers are interned by a SymbolTable
+ * and numbers carry their value already parsed, so the Parser can dispatch on
+ * the TokenType without ever comparing Strings.
+ *
+ * @author  Annabelle Ju
+ * @version 04/17/2020
+ */
+public final class Token
+{
+    private static final Token[] FIXED = new Token[TokenType.values().length];
+    private static final Token[] SMALL_NUMBERS = new Token[256];
+
+    static
+    {
+        for (TokenType type: TokenType.values())
+        {
+            if (type.getLexeme() != null)
+                FIXED[type.ordinal()] = new Token(type, 0, type.getLexeme());
+        }
+        for (int i = 0; i < SMALL_NUMBERS.length; i++)
+            SMALL_NUMBERS[i] = new Token(TokenType.NUMBER, i, null);
+    }
+
+    /**
+     * The token returned once the input has ended.
+     */
+    public static final Token EOF = FIXED[TokenType.EOF.ordinal()];
+
+    private final TokenType type;
+    private final int value;
+    private final String symbol;
+
+    /**
+     * Constructor for objects of class Token.
+     *
+     * @param t the type of this Token.
+     * @param v the value of a NUMBER token, the symbol number of an IDENTIFIER, 0 otherwise.
+     * @param s the interned text of an IDENTIFIER or keyword, null for numbers.
+     */
+    Token(TokenType t, int v, String s)
+    {
+        type = t;
+        value = v;
+        symbol = s;
+    }
+
+    /**
+     * Retrieves the shared Token of a keyword or operator type.
+     *
+     * @param type a type with a fixed lexeme.
+     *
+     * @return the singleton Token of the given type.
+     */
+    public static Token of(TokenType type)
+    {
+        return FIXED[type.ordinal()];
+    }
+
+    /**
+     * Retrieves a NUMBER token with the given value, reusing a cached Token for small values.
+     *
+     * @param value the value of the number.
+     *
+     * @return a NUMBER token carrying the given value.
+     */
+    public static Token number(int value)
+    {
+        if (value >= 0 && value < SMALL_NUMBERS.length)
+            return SMALL_NUMBERS[value];
+        return new Token(TokenType.NUMBER, value, null);
+    }
+
+    /**
+     * Retrieves the type of this Token.
+     *
+     * @return the TokenType of this Token.
+     */
+    public TokenType getType()
+    {
+        return type;
+    }
+
+    /**
+     * Retrieves the value of a NUMBER token, or the number of an IDENTIFIER
+     * token within the SymbolTable that interned it.
+     *
+     * @return the integer value of this Token.
+     */
+    public int getValue()
+    {
+        return value;
+    }
+
+    /**
+     * Retrieves the interned name of an IDENTIFIER token.
+     *
+     * @return the interned String of this Token.
+     */
+    public String getSymbol()
+    {
+        return symbol;
+    }
+
+    /**
+     * Retrieves the text of this Token as it appeared in the input.
+     *
+     * @return the lexeme of this Token.
+     */
+    @Override
+    public String toString()
+    {
+        if (type == TokenType.NUMBER)
+            return Integer.toString(value);
+        return symbol;
+    }
+}
@@ -0,0 +1,423 @@
+package Scanner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * TokenArray is a fully lexed source held as one packed int[] of
+ * (type, value) pairs and a long[] of starts, with whitespace and comments
+ * already dropped. The start is the character offset of the token in the
+ * source, a long so that sources past 2 GB keep their offsets; the value is
+ * the value of a NUMBER, the symbol number of an IDENTIFIER, or the length of
+ * any other token. A TokenArray is never modified once built, so the same
+ * array can be handed to any number of Parsers.
+ *
+ * Usage:
+ * TokenArray tokens = TokenArray.lex(new Scanner.Scanner(new File("<file name>")));
+ * or, lexing a large file on every core:
+ * TokenArray tokens = TokenArray.lexParallel(new File("<file name>"), ForkJoinPool.commonPool());
+ * Program prog = new Parser(tokens).parseProgram();
+ *
+ * @author  Annabelle Ju
+ * @version 04/17/2020
+ */
+public class TokenArray
+{
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final long MIN_CHUNK = 1 << 20;
+
+    private final int[] tokens;
+    private final long[] starts;
+    private final int count;
+    private final Token[] identifiers;
+
+    /**
+     * Constructor for objects of class TokenArray.
+     *
+     * @param t the packed pairs; the last pair is the EOF token.
+     * @param s the starts of the tokens in t.
+     * @param n the number of tokens in t, including EOF.
+     * @param ids the IDENTIFIER tokens indexed by symbol number.
+     */
+    TokenArray(int[] t, long[] s, int n, Token[] ids)
+    {
+        tokens = t;
+        starts = s;
+        count = n;
+        identifiers = ids;
+    }
+
+    /**
+     * The method "lex" runs a Scanner.Scanner to the end of its input and packs every token.
+     *
+     * @param scanner the scanner to be drained.
+     *
+     * @return the TokenArray holding every token of the input followed by EOF.
+     *
+     * @throws IOException error handler for scanner method nextToken.
+     * @throws ScanErrorException if the input contains an illegal character.
+     */
+    public static TokenArray lex(Scanner scanner) throws IOException, ScanErrorException
+    {
+        Chunk chunk = new Chunk(scanner, 0);
+        chunk.lex();
+        chunk.add(Token.EOF, scanner.getTokenStart());
+
+        SymbolTable symbols = scanner.getSymbolTable();
+        Token[] ids = new Token[symbols.identifierCount()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = symbols.getIdentifier(i);
+
+        return new TokenArray(chunk.packed, chunk.starts, chunk.count, ids);
+    }
+
+    /**
+     * The method "lexParallel" lexes a file on several threads. The file is
+     * mapped and split into chunks that end just after a newline; since no token
+     * or comment spans a newline, every chunk can be lexed on its own. The chunks
+     * are lexed as tasks of the given pool and their tokens are stitched back
+     * together in order, with the identifiers of every chunk renumbered into one
+     * SymbolTable and the starts shifted by the offset of the chunk. Tokens after
+     * a terminating period are dropped, exactly as a single Scanner would.
+     *
+     * For ASCII sources the starts are identical to those of lex; a chunk holding
+     * non-ASCII characters makes the starts of the following chunks byte offsets.
+     *
+     * @param file the file to be lexed.
+     * @param pool the pool whose threads lex the chunks.
+     *
+     * @return the TokenArray holding every token of the file followed by EOF.
+     *
+     * @throws IOException if the file cannot be read.
+     * @throws ScanErrorException if the input contains an illegal character.
+     */
+    public static TokenArray lexParallel(File file, ForkJoinPool pool) throws IOException, ScanErrorException
+    {
+        List<Chunk> chunks = new ArrayList<>();
+
+        try (FileChannel channel = FileChannel.open(file.toPath()))
+        {
+            long size = channel.size();
+            int pieces = (int) Math.max(1, Math.min(4L * pool.getParallelism(), size / MIN_CHUNK));
+            long start = 0;
+            for (int i = 1; i <= pieces && start < size; i++)
+            {
+                long end = i == pieces ? size : nextLineStart(channel, Math.max(start, size / pieces * i));
+                if (end > start)
+                {
+                    ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                    chunks.add(new Chunk(new Scanner(bytes), start));
+                }
+                start = end;
+            }
+        }
+
+        List<ForkJoinTask<Chunk>> tasks = new ArrayList<>();
+        for (Chunk chunk: chunks)
+            tasks.add(pool.submit(chunk));
+
+        try
+        {
+            for (int i = 0; i < tasks.size(); i++)
+            {
+                if (tasks.get(i).join().period)
+                {
+                    for (ForkJoinTask<Chunk> rest: tasks.subList(i + 1, tasks.size()))
+                        rest.cancel(false);
+                    break;
+                }
+            }
+        }
+        catch (RuntimeException e)
+        {
+            // join wraps a failure thrown on another thread once more than one thrown on this one
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause())
+            {
+                if (cause instanceof ScanErrorException)
+                    throw (ScanErrorException) cause;
+                if (cause instanceof IOException)
+                    throw (IOException) cause;
+            }
+            throw e;
+        }
+
+        return stitch(chunks);
+    }
+
+    /**
+     * Helper method: nextLineStart finds the offset just after the first newline
+     * at or after the given offset, or the end of the file if there is none.
+     */
+    private static long nextLineStart(FileChannel channel, long from) throws IOException
+    {
+        ByteBuffer buf = ByteBuffer.allocate(4096);
+        long pos = from;
+        while (pos < channel.size())
+        {
+            buf.clear();
+            int n = channel.read(buf, pos);
+            for (int i = 0; i < n; i++)
+            {
+                if (buf.get(i) == '\n')
+                    return pos + i + 1;
+            }
+            pos += n;
+        }
+        return channel.size();
+    }
+
+    /**
+     * Helper method: stitch joins the tokens of the lexed chunks into one TokenArray.
+     */
+    private static TokenArray stitch(List<Chunk> chunks)
+    {
+        int total = 1;
+        for (Chunk chunk: chunks)
+        {
+            total += chunk.count;
+            if (chunk.period)
+                break;
+        }
+
+        SymbolTable symbols = new SymbolTable();
+        int[] packed = new int[2 * total];
+        long[] starts = new long[total];
+        int n = 0;
+        long end = 0;
+        for (Chunk chunk: chunks)
+        {
+            SymbolTable local = chunk.scanner.getSymbolTable();
+            int[] renumber = new int[local.identifierCount()];
+            for (int i = 0; i < renumber.length; i++)
+                renumber[i] = symbols.lookup(local.getIdentifier(i).getSymbol()).getValue();
+
+            for (int i = 0; i < chunk.count; i++, n++)
+            {
+                int type = chunk.packed[2 * i];
+                packed[2 * n] = type;
+                packed[2 * n + 1] = type == TokenType.IDENTIFIER.ordinal()
+                        ? renumber[chunk.packed[2 * i + 1]] : chunk.packed[2 * i + 1];
+                starts[n] = chunk.offset + chunk.starts[i];
+            }
+            end = chunk.offset + chunk.scanner.getTokenStart();
+            if (chunk.period)
+                break;
+        }
+        packed[2 * n] = TokenType.EOF.ordinal();
+        starts[n] = end;
+
+        Token[] ids = new Token[symbols.identifierCount()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = symbols.getIdentifier(i);
+
+        return new TokenArray(packed, starts, total, ids);
+    }
+
+    /**
+     * The method "cursor" creates a TokenSource that reads this array from the given token on.
+     *
+     * @param start the index of the first token to be returned.
+     *
+     * @return a new Cursor positioned at token start.
+     */
+    public Cursor cursor(int start)
+    {
+        return new Cursor(start);
+    }
+
+    /**
+     * Cursor reads the tokens of a TokenArray in order. Every Cursor has its
+     * own position, so any number of them can read the same array.
+     */
+    public class Cursor implements TokenSource
+    {
+        private int position;
+
+        /**
+         * Constructor for objects of class Cursor.
+         *
+         * @param start the index of the first token to be returned.
+         */
+        private Cursor(int start)
+        {
+            position = start;
+        }
+
+        /**
+         * Returns the token at the position of this Cursor and moves past it.
+         *
+         * @return the next token, or Token.EOF past the end of the array.
+         */
+        @Override
+        public Token nextToken()
+        {
+            return get(position++);
+        }
+
+        /**
+         * Retrieves the index of the token the next call to nextToken returns.
+         *
+         * @return the position of this Cursor.
+         */
+        public int getPosition()
+        {
+            return position;
+        }
+    }
+
+    /**
+     * Chunk holds the tokens lexed from one region of the input, packed like a
+     * TokenArray but without the final EOF and with starts relative to the region.
+     * As a Callable it lexes its region on a pool thread.
+     */
+    private static class Chunk implements Callable<Chunk>
+    {
+        private final Scanner scanner;
+        private final long offset;
+        private int[] packed;
+        private long[] starts;
+        private int count;
+        private boolean period;
+
+        /**
+         * Constructor for objects of class Chunk.
+         *
+         * @param s the scanner over the region.
+         * @param off the offset of the region in the whole input.
+         */
+        Chunk(Scanner s, long off)
+        {
+            scanner = s;
+            offset = off;
+            packed = new int[2 * 1024];
+            starts = new long[1024];
+        }
+
+        /**
+         * Lexes the region of this Chunk.
+         *
+         * @return this Chunk.
+         */
+        @Override
+        public Chunk call() throws IOException, ScanErrorException
+        {
+            lex();
+            return this;
+        }
+
+        /**
+         * Drains the scanner, packing every token before EOF.
+         */
+        void lex() throws IOException, ScanErrorException
+        {
+            Token token = scanner.nextToken();
+            while (token != Token.EOF)
+            {
+                add(token, scanner.getTokenStart());
+                token = scanner.nextToken();
+            }
+            period = scanner.endedAtPeriod();
+        }
+
+        /**
+         * Appends one token, growing the arrays as needed.
+         */
+        void add(Token token, long start)
+        {
+            if (count == starts.length)
+            {
+                packed = Arrays.copyOf(packed, packed.length * 2);
+                starts = Arrays.copyOf(starts, starts.length * 2);
+            }
+            packed[2 * count] = token.getType().ordinal();
+            packed[2 * count + 1] = valueOf(token);
+            starts[count] = start;
+            count++;
+        }
+    }
+
+    /**
+     * Helper method: valueOf computes the second int of the pair for a Token.
+     */
+    static int valueOf(Token token)
+    {
+        if (token.getType() == TokenType.NUMBER || token.getType() == TokenType.IDENTIFIER)
+            return token.getValue();
+        return token.getType() == TokenType.EOF ? 0 : token.getType().getLexeme().length();
+    }
+
+    /**
+     * Retrieves the number of tokens in this array, including the final EOF.
+     *
+     * @return the number of tokens.
+     */
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * Retrieves the type of a token.
+     *
+     * @param i the index of the token.
+     * @return the TokenType of token i.
+     */
+    public TokenType getType(int i)
+    {
+        return TYPES[tokens[2 * i]];
+    }
+
+    /**
+     * Retrieves the start of a token.
+     *
+     * @param i the index of the token.
+     * @return the character offset of token i in the source.
+     */
+    public long getStart(int i)
+    {
+        return starts[i];
+    }
+
+    /**
+     * Retrieves the value of a token.
+     *
+     * @param i the index of the token.
+     * @return the number value, symbol number or length of token i.
+     */
+    public int getValue(int i)
+    {
+        return tokens[2 * i + 1];
+    }
+
+    /**
+     * Retrieves a token as a Token object. Keywords, operators, identifiers and
+     * small numbers are shared Tokens, so this does not allocate for them.
+     *
+     * @param i the index of the token; indices past the end give EOF.
+     * @return token i.
+     */
+    public Token get(int i)
+    {
+        if (i >= count)
+            return Token.EOF;
+
+        int value = tokens[2 * i + 1];
+        switch (TYPES[tokens[2 * i]])
+        {
+            case NUMBER:
+                return Token.number(value);
+            case IDENTIFIER:
+                return identifiers[value];
+            default:
+                return Token.of(TYPES[tokens[2 * i]]);
+        }
+    }
+}
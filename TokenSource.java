@@ -0,0 +1,25 @@
+package Scanner;
+
+import java.io.IOException;
+
+/**
+ * TokenSource is anything the Parser can pull Tokens from: the hand-written
+ * Scanner.Scanner, the JFlex-generated Scanner.Scannerabb, or a cursor over an
+ * already lexed TokenArray. Whitespace and comments never reach the Parser,
+ * and once the input has ended every call returns Token.EOF.
+ *
+ * @author  Annabelle Ju
+ * @version 04/17/2020
+ */
+public interface TokenSource
+{
+    /**
+     * The method "nextToken" finds the next token of the input.
+     *
+     * @return the next token, or Token.EOF once the input has ended.
+     *
+     * @throws IOException if the input cannot be read.
+     * @throws ScanErrorException if an illegal character is found in the input.
+     */
+    Token nextToken() throws IOException, ScanErrorException;
+}
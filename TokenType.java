@@ -0,0 +1,76 @@
+package Scanner;
+
+/**
+ * TokenType enumerates every kind of token the Scanner.Scanner can produce.
+ * Keywords and operators carry their fixed lexeme; identifiers and numbers
+ * carry their text or value on the Token itself.
+ *
+ * @author  Annabelle Ju
+ * @version 04/17/2020
+ */
+public enum TokenType
+{
+    IDENTIFIER(null),
+    NUMBER(null),
+
+    BEGIN("BEGIN"),
+    END("END"),
+    WRITELN("WRITELN"),
+    IF("IF"),
+    THEN("THEN"),
+    WHILE("WHILE"),
+    DO("DO"),
+    PROCEDURE("PROCEDURE"),
+
+    ASSIGN(":="),
+    PLUS("+"),
+    MINUS("-"),
+    TIMES("*"),
+    DIVIDE("/"),
+    MOD("%"),
+    LPAREN("("),
+    RPAREN(")"),
+    SEMICOLON(";"),
+    COMMA(","),
+
+    EQ("="),
+    NE("<>"),
+    LT("<"),
+    GT(">"),
+    LE("<="),
+    GE(">="),
+
+    EOF(".");
+
+    private final String lexeme;
+
+    /**
+     * Constructor for the constants of TokenType.
+     *
+     * @param lex the fixed lexeme of this type, or null if the lexeme varies.
+     */
+    TokenType(String lex)
+    {
+        lexeme = lex;
+    }
+
+    /**
+     * Retrieves the fixed lexeme of this type.
+     *
+     * @return the lexeme of a keyword or operator, null for identifiers and numbers.
+     */
+    public String getLexeme()
+    {
+        return lexeme;
+    }
+
+    /**
+     * Determines whether this type is one of the six relational operators.
+     *
+     * @return true if this type is =, <>, <, >, <= or >=.
+     */
+    public boolean isRelop()
+    {
+        return this == EQ || this == NE || this == LT || this == GT || this == LE || this == GE;
+    }
+}
@@ -0,0 +1,106 @@
+package AST;
+
+import java.util.List;
+
+/**
+ * The TreeBuilder interface receives the nodes of a Program from the Parser
+ * in postfix order: the children of every node are reported before the node
+ * itself, so an implementation only needs a stack to put the tree together.
+ * ObjectTreeBuilder builds the usual tree of AST objects; FlatTree.Builder
+ * builds the array-backed FlatTree without creating a node object.
+ *
+ * @author Annabelle Ju
+ * @version 04/17/2020
+ */
+public interface TreeBuilder
+{
+    /**
+     * Reports an integer literal.
+     *
+     * @param value the value of the literal.
+     */
+    void number(int value);
+
+    /**
+     * Reports a reference to a variable.
+     *
+     * @param name the name of the variable.
+     */
+    void variable(String name);
+
+    /**
+     * Reports a binary operation on the two most recent expressions.
+     *
+     * @param op the operator: "+", "-", "*" or "/".
+     */
+    void binOp(String op);
+
+    /**
+     * Reports a call of a procedure on the most recent expressions.
+     *
+     * @param name     the name of the procedure.
+     * @param argCount the number of argument expressions.
+     */
+    void call(String name, int argCount);
+
+    /**
+     * Reports a comparison of the two most recent expressions.
+     *
+     * @param relop the relational operator: "=", "<>", "<", ">", "<=" or ">=".
+     */
+    void condition(String relop);
+
+    /**
+     * Reports a WRITELN of the most recent expression.
+     */
+    void writeln();
+
+    /**
+     * Reports an assignment of the most recent expression.
+     *
+     * @param name the name of the assigned variable.
+     */
+    void assignment(String name);
+
+    /**
+     * Reports an IF of the most recent condition and statement.
+     */
+    void ifStatement();
+
+    /**
+     * Reports a WHILE of the most recent condition and statement.
+     */
+    void whileStatement();
+
+    /**
+     * Reports a BEGIN/END block of the most recent statements.
+     *
+     * @param statementCount the number of statements in the block.
+     */
+    void block(int statementCount);
+
+    /**
+     * Reports a Statement that has already been built, such as the body
+     * of a procedure whose parsing has been put off.
+     *
+     * @param body the Statement.
+     */
+    void statement(Statement body);
+
+    /**
+     * Reports a procedure declaration whose body is the most recent statement.
+     *
+     * @param name   the name of the procedure.
+     * @param params the names of its parameters.
+     */
+    void procedure(String name, List<String> params);
+
+    /**
+     * Reports the end of a Program made of the most recent procedure
+     * declarations, followed by the most recent statement if it has a body.
+     *
+     * @param procedureCount the number of procedure declarations.
+     * @param hasBody        true if the Program ends with a main statement.
+     */
+    void program(int procedureCount, boolean hasBody);
+}
@@ -0,0 +1,199 @@
+package Parser;
+
+import AST.FlatTree;
+import AST.ObjectTreeBuilder;
+import AST.Statement;
+import AST.TreeReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * The TreeCache class keeps the parsed Programs of source files in a
+ * directory, in the binary form written by AST.TreeWriter. Each entry is
+ * named after the SHA-256 hash of the source it was parsed from, so an
+ * edited file simply misses the cache and an unchanged one is never parsed again.
+ * Each entry ends with the CRC-32 of its bytes, and is checked and decoded
+ * in full before any of its Programs is handed out, so one that is
+ * truncated or corrupt is a miss rather than a failure halfway through
+ * running the Programs.
+ *
+ * @author Annabelle Ju
+ * @version 04/17/2020
+ */
+public class TreeCache
+{
+    private Path directory;
+
+    /**
+     * Constructor for objects of class TreeCache.
+     *
+     * @param dir the directory that holds the cache entries.
+     */
+    public TreeCache(File dir)
+    {
+        directory = dir.toPath();
+    }
+
+    /**
+     * Computes the cache key of a source file: the hex SHA-256 of its contents,
+     * read in fixed-size blocks so that a file of any size can be hashed.
+     *
+     * @param source the source file.
+     *
+     * @return the key of the file.
+     *
+     * @throws IOException if the file cannot be read.
+     */
+    public String key(File source) throws IOException
+    {
+        MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = new DigestInputStream(Files.newInputStream(source.toPath()), digest))
+        {
+            while (in.read(buffer) != -1)
+            {
+            }
+        }
+        byte[] hash = digest.digest();
+        StringBuilder hex = new StringBuilder();
+        for (byte b: hash)
+        {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Builds every cached Program stored under a key. An entry that cannot
+     * be decoded to the end is deleted and counts as a miss.
+     *
+     * @param key  the key of the source file.
+     * @param flat true to build each Program as an AST.FlatTree, false for AST objects.
+     *
+     * @return the Programs in order, or null on a cache miss.
+     */
+    public List<Statement> load(String key, boolean flat)
+    {
+        Path entry = directory.resolve(key + ".ast");
+        byte[] bytes;
+        try
+        {
+            bytes = Files.readAllBytes(entry);
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+
+        ObjectTreeBuilder objects = new ObjectTreeBuilder();
+        FlatTree.Builder flatBuilder = new FlatTree.Builder();
+        ArrayList<Statement> programs = new ArrayList<>();
+        try
+        {
+            int length = bytes.length - 4;
+            if (length < 0 || checksum(bytes, length) != readChecksum(bytes, length))
+            {
+                throw new IOException("Bad checksum");
+            }
+            TreeReader reader = new TreeReader(new ByteArrayInputStream(bytes, 0, length));
+            while (reader.replay(flat ? flatBuilder : objects))
+            {
+                programs.add(flat ? flatBuilder.getTree() : objects.getProgram());
+            }
+            return programs;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            try
+            {
+                Files.deleteIfExists(entry);
+            }
+            catch (IOException ignored)
+            {
+                // The entry is overwritten once the source has been parsed again.
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Helper method: checksum computes the CRC-32 of the first bytes of an array.
+     */
+    private static int checksum(byte[] bytes, int length)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Helper method: readChecksum reads the CRC-32 stored big-endian at the given index.
+     */
+    private static int readChecksum(byte[] bytes, int at)
+    {
+        return (bytes[at] & 0xFF) << 24 | (bytes[at + 1] & 0xFF) << 16
+               | (bytes[at + 2] & 0xFF) << 8 | (bytes[at + 3] & 0xFF);
+    }
+
+    /**
+     * Stores the Programs recorded by a TreeWriter under a key, followed by
+     * their CRC-32. The entry is written to a temporary file first and then
+     * moved into place, so a concurrent reader never sees half of it.
+     *
+     * @param key   the key of the source file.
+     * @param bytes the bytes written by the TreeWriter.
+     *
+     * @throws IOException if the entry cannot be written.
+     */
+    public void store(String key, byte[] bytes) throws IOException
+    {
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, key, ".tmp");
+        try
+        {
+            int crc = checksum(bytes, bytes.length);
+            byte[] entry = Arrays.copyOf(bytes, bytes.length + 4);
+            entry[bytes.length] = (byte) (crc >>> 24);
+            entry[bytes.length + 1] = (byte) (crc >>> 16);
+            entry[bytes.length + 2] = (byte) (crc >>> 8);
+            entry[bytes.length + 3] = (byte) crc;
+            Files.write(temp, entry);
+            try
+            {
+                Files.move(temp, directory.resolve(key + ".ast"), StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(temp, directory.resolve(key + ".ast"), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package AST;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+
+/**
+ * The TreeReader class reads the Programs recorded by a TreeWriter
+ * and reports their nodes to a TreeBuilder, exactly as the Parser
+ * reported them when they were recorded.
+ *
+ * @author Annabelle Ju
+ * @version 04/17/2020
+ */
+public class TreeReader
+{
+    private DataInputStream in;
+    private ArrayList<String> names;
+
+    /**
+     * Constructor for objects of class TreeReader.
+     *
+     * @param stream the stream written by a TreeWriter.
+     *
+     * @throws IOException if the stream does not start with TreeWriter.MAGIC.
+     */
+    public TreeReader(InputStream stream) throws IOException
+    {
+        in = new DataInputStream(stream);
+        names = new ArrayList<>();
+        if (in.readInt() != TreeWriter.MAGIC)
+        {
+            throw new IOException("Not a recorded tree");
+        }
+    }
+
+    /**
+     * Helper method: readInt reads an unsigned variable-length integer.
+     */
+    private int readInt() throws IOException
+    {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7)
+        {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if (b < 0x80)
+            {
+                return value;
+            }
+        }
+        throw new IOException("Malformed integer");
+    }
+
+    /**
+     * Helper method: readName reads a name written by TreeWriter.writeName.
+     */
+    private String readName() throws IOException
+    {
+        int index = readInt();
+        if (index == names.size())
+        {
+            names.add(in.readUTF().intern());
+        }
+        else if (index > names.size())
+        {
+            throw new IOException("Malformed name");
+        }
+        return names.get(index);
+    }
+
+    /**
+     * Helper method: readOperator reads an operator written by TreeWriter.writeOperator.
+     */
+    private String readOperator() throws IOException
+    {
+        int index = readInt();
+        if (index >= TreeWriter.OPERATORS.length)
+        {
+            throw new IOException("Malformed operator");
+        }
+        return TreeWriter.OPERATORS[index];
+    }
+
+    /**
+     * Reports the nodes of the next recorded Program to the given TreeBuilder.
+     *
+     * @param out the TreeBuilder that receives the Program.
+     *
+     * @return true if a Program was reported, false if none remain.
+     *
+     * @throws IOException if the stream cannot be read or is malformed.
+     */
+    public boolean replay(TreeBuilder out) throws IOException
+    {
+        while (true)
+        {
+            int tag = readInt();
+            switch (tag)
+            {
+                case TreeWriter.NUMBER:
+                {
+                    int value = readInt();
+                    out.number((value >>> 1) ^ -(value & 1));
+                    break;
+                }
+                case TreeWriter.VARIABLE:
+                    out.variable(readName());
+                    break;
+                case TreeWriter.BIN_OP:
+                    out.binOp(readOperator());
+                    break;
+                case TreeWriter.CALL:
+                {
+                    String name = readName();
+                    out.call(name, readInt());
+                    break;
+                }
+                case TreeWriter.CONDITION:
+                    out.condition(readOperator());
+                    break;
+                case TreeWriter.WRITELN:
+                    out.writeln();
+                    break;
+                case TreeWriter.ASSIGNMENT:
+                    out.assignment(readName());
+                    break;
+                case TreeWriter.IF:
+                    out.ifStatement();
+                    break;
+                case TreeWriter.WHILE:
+                    out.whileStatement();
+                    break;
+                case TreeWriter.BLOCK:
+                    out.block(readInt());
+                    break;
+                case TreeWriter.PROCEDURE:
+                {
+                    String name = readName();
+                    int count = readInt();
+                    ArrayList<String> params = new ArrayList<>();
+                    for (int i = 0; i < count; i++)
+                    {
+                        params.add(readName());
+                    }
+                    out.procedure(name, params);
+                    break;
+                }
+                case TreeWriter.PROGRAM:
+                {
+                    int count = readInt();
+                    out.program(count, readInt() != 0);
+                    return true;
+                }
+                case TreeWriter.END:
+                    return false;
+                default:
+                    throw new IOException("Malformed tree: tag " + tag);
+            }
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package AST;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The TreeWriter class is a TreeBuilder that records the nodes of every
+ * Program reported to it in a compact binary form, so that TreeReader can
+ * report them again later without scanning or parsing the source.
+ * Each node is written as a one-byte tag followed by its variable-length
+ * integer fields; a name is written as its index in a table of the names
+ * seen so far, and only its first occurrence carries the characters.
+ * Every node is also passed on to the next TreeBuilder, if there is one,
+ * so a Program can be recorded while it is being built.
+ *
+ * @author Annabelle Ju
+ * @version 04/17/2020
+ */
+public class TreeWriter implements TreeBuilder
+{
+    /** The first four bytes of a recorded tree: "AST" and the format version. */
+    public static final int MAGIC = 0x41535401;
+
+    static final int NUMBER = 0;
+    static final int VARIABLE = 1;
+    static final int BIN_OP = 2;
+    static final int CALL = 3;
+    static final int CONDITION = 4;
+    static final int WRITELN = 5;
+    static final int ASSIGNMENT = 6;
+    static final int IF = 7;
+    static final int WHILE = 8;
+    static final int BLOCK = 9;
+    static final int PROCEDURE = 10;
+    static final int PROGRAM = 11;
+    static final int END = 12;
+
+    static final String[] OPERATORS = {
+        "+", "-", "*", "/", "=", "<>", "<", ">", "<=", ">="
+    };
+
+    private DataOutputStream out;
+    private TreeBuilder next;
+    private HashMap<String, Integer> names;
+
+    /**
+     * Constructor for objects of class TreeWriter.
+     *
+     * @param stream the stream the recorded Programs are written to.
+     * @param n      the TreeBuilder every node is passed on to, or null.
+     *
+     * @throws IOException if the header cannot be written.
+     */
+    public TreeWriter(OutputStream stream, TreeBuilder n) throws IOException
+    {
+        out = new DataOutputStream(stream);
+        next = n;
+        names = new HashMap<>();
+        out.writeInt(MAGIC);
+    }
+
+    /**
+     * Marks the end of the recorded Programs and flushes the stream.
+     *
+     * @throws IOException if the stream cannot be written.
+     */
+    public void finish() throws IOException
+    {
+        out.writeByte(END);
+        out.flush();
+    }
+
+    /**
+     * Helper method: writeInt writes an unsigned variable-length integer,
+     * seven bits per byte with the high bit set on every byte but the last.
+     */
+    private void writeInt(int value)
+    {
+        try
+        {
+            while ((value & ~0x7F) != 0)
+            {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Helper method: writeName writes the index of a name, followed by
+     * the name itself the first time it is written.
+     */
+    private void writeName(String name)
+    {
+        Integer index = names.get(name);
+        if (index != null)
+        {
+            writeInt(index);
+            return;
+        }
+        names.put(name, names.size());
+        writeInt(names.size() - 1);
+        try
+        {
+            out.writeUTF(name);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Helper method: writeOperator writes the index of an operator in OPERATORS.
+     */
+    private void writeOperator(String op)
+    {
+        for (int i = 0; i < OPERATORS.length; i++)
+        {
+            if (OPERATORS[i].equals(op))
+            {
+                writeInt(i);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operator " + op);
+    }
+
+    @Override
+    public void number(int value)
+    {
+        writeInt(NUMBER);
+        writeInt((value << 1) ^ (value >> 31));
+        if (next != null) next.number(value);
+    }
+
+    @Override
+    public void variable(String name)
+    {
+        writeInt(VARIABLE);
+        writeName(name);
+        if (next != null) next.variable(name);
+    }
+
+    @Override
+    public void binOp(String op)
+    {
+        writeInt(BIN_OP);
+        writeOperator(op);
+        if (next != null) next.binOp(op);
+    }
+
+    @Override
+    public void call(String name, int argCount)
+    {
+        writeInt(CALL);
+        writeName(name);
+        writeInt(argCount);
+        if (next != null) next.call(name, argCount);
+    }
+
+    @Override
+    public void condition(String relop)
+    {
+        writeInt(CONDITION);
+        writeOperator(relop);
+        if (next != null) next.condition(relop);
+    }
+
+    @Override
+    public void writeln()
+    {
+        writeInt(WRITELN);
+        if (next != null) next.writeln();
+    }
+
+    @Override
+    public void assignment(String name)
+    {
+        writeInt(ASSIGNMENT);
+        writeName(name);
+        if (next != null) next.assignment(name);
+    }
+
+    @Override
+    public void ifStatement()
+    {
+        writeInt(IF);
+        if (next != null) next.ifStatement();
+    }
+
+    @Override
+    public void whileStatement()
+    {
+        writeInt(WHILE);
+        if (next != null) next.whileStatement();
+    }
+
+    @Override
+    public void block(int statementCount)
+    {
+        writeInt(BLOCK);
+        writeInt(statementCount);
+        if (next != null) next.block(statementCount);
+    }
+
+    /**
+     * A Statement that is already built has no recorded form. Parser.main
+     * never parses lazily while recording, so this is never called.
+     *
+     * @param body the Statement.
+     */
+    @Override
+    public void statement(Statement body)
+    {
+        throw new IllegalStateException("Cannot record an already built "
+                                        + body.getClass().getName());
+    }
+
+    @Override
+    public void procedure(String name, List<String> params)
+    {
+        writeInt(PROCEDURE);
+        writeName(name);
+        writeInt(params.size());
+        for (String param: params)
+        {
+            writeName(param);
+        }
+        if (next != null) next.procedure(name, params);
+    }
+
+    @Override
+    public void program(int procedureCount, boolean hasBody)
+    {
+        writeInt(PROGRAM);
+        writeInt(procedureCount);
+        writeInt(hasBody ? 1 : 0);
+        if (next != null) next.program(procedureCount, hasBody);
+    }
+}
@@ -1,6 +1,11 @@
 package AST;
 
 import Environment.Environment;
+import VM.Bytecode;
+import VM.Emitter;
+
+import java.util.Map;
+import java.util.Set;
 
 /**
  * The Variable class represents a variable.
@@ -35,4 +40,131 @@ public class Variable extends Expression
     {
         return env.getVariable(name);
     }
+
+    /**
+     * Retrieves the name of this Variable.
+     *
+     * @return the name.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * A Variable is pure.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean isPure()
+    {
+        return true;
+    }
+
+    /**
+     * A Variable looked up by name can trap, since it may not exist.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean canTrap()
+    {
+        return true;
+    }
+
+    /**
+     * Adds the name of this Variable to the variables read.
+     *
+     * @param reads the set the names of the variables are added to.
+     * @param calls the set the names of the procedures are added to.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean readNames(Set<String> reads, Set<String> calls)
+    {
+        reads.add(name);
+        return true;
+    }
+
+    /**
+     * Compares this Variable to another Expression.
+     *
+     * @param other the Expression to be compared.
+     *
+     * @return true if other is a Variable of the same name.
+     */
+    @Override
+    public boolean sameAs(Expression other)
+    {
+        return other instanceof Variable && ((Variable) other).name.equals(name);
+    }
+
+    /**
+     * Resolves this Variable to a SlotVariable if it has an address, and
+     * leaves it to be looked up by name otherwise.
+     *
+     * @param scope the Scope in which this Expression is evaluated.
+     *
+     * @return the resolved Expression.
+     */
+    @Override
+    public Expression resolve(Scope scope)
+    {
+        int depth = scope.depthOf(name);
+        if (depth < 0)
+        {
+            return this;
+        }
+        return new SlotVariable(name, depth, scope.slotOf(name));
+    }
+
+    /**
+     * A Variable is a single node.
+     *
+     * @return 1.
+     */
+    @Override
+    public int size()
+    {
+        return 1;
+    }
+
+    /**
+     * Replaces this Variable if the map names it.
+     *
+     * @param map the Expression that replaces each variable.
+     *
+     * @return the Expression it maps to, or this Variable.
+     */
+    @Override
+    public Expression substitute(Map<String, Expression> map)
+    {
+        Expression e = map.get(name);
+        return e == null ? this : e;
+    }
+
+    /**
+     * Emits the lookup of this Variable by name.
+     *
+     * @param e the Emitter that receives the code.
+     */
+    @Override
+    public void compile(Emitter e)
+    {
+        e.emit(Bytecode.LOAD_NAME, e.nameOf(name));
+    }
+
+    /**
+     * Builds the Value that looks this Variable up by name.
+     *
+     * @return the Value.
+     */
+    @Override
+    public Closure.Value closure()
+    {
+        String n = name;
+        return env -> env.getVariable(n);
+    }
 }
@@ -1,6 +1,12 @@
 package AST;
 
 import Environment.Environment;
+import VM.Bytecode;
+import VM.Emitter;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * The While class represents a while loop that continually
@@ -37,9 +43,169 @@ public class While extends Statement
     @Override
     public void exec(Environment env)
     {
-        while (cond.eval(env)>0)
+        while (cond.test(env))
         {
             state.exec(env);
         }
     }
+
+    /**
+     * Optimizes the Condition and Statement of this While.
+     * A While whose Condition is always false is removed.
+     *
+     * @return the optimized Statement.
+     */
+    @Override
+    public Statement optimize()
+    {
+        Expression c = cond.optimize();
+        if (c instanceof Number)
+        {
+            if (((Number) c).getValue() > 0)
+            {
+                return new While(cond, state.optimize());
+            }
+            return new Block(new ArrayList<Statement>());
+        }
+        return new While((Condition) c, state.optimize());
+    }
+
+    /**
+     * Resolves the Condition and Statement of this While. If the Statement
+     * may leave the result of its procedure written by a call of itself,
+     * both are resolved once more from there, as the next round runs them.
+     *
+     * @param scope the Scope in which this Statement is executed.
+     *
+     * @return the resolved While.
+     */
+    @Override
+    public Statement resolve(Scope scope)
+    {
+        Condition c = cond.resolve(scope);
+        Set<String> saved = scope.save();
+        Statement s = state.resolve(scope);
+        if (scope.isStale())
+        {
+            cond.resolve(scope);
+            state.resolve(scope);
+        }
+        scope.restore(saved);
+        return new While(c, s);
+    }
+
+    /**
+     * Collects the variables assigned by the Statement of this While.
+     *
+     * @param names the set the names are added to.
+     *
+     * @return false if the names cannot be known.
+     */
+    @Override
+    public boolean assignedNames(Set<String> names)
+    {
+        return state.assignedNames(names);
+    }
+
+    /**
+     * Collects the names read by the Condition and the Statement of this While.
+     *
+     * @param reads the set the names of the variables are added to.
+     * @param calls the set the names of the procedures are added to.
+     *
+     * @return false if the names cannot be known.
+     */
+    @Override
+    public boolean readNames(Set<String> reads, Set<String> calls)
+    {
+        return cond.readNames(reads, calls) & state.readNames(reads, calls);
+    }
+
+    /**
+     * An While is local if its Condition and its Statement are.
+     *
+     * @param callable the names of the procedures it may call.
+     *
+     * @return true if both are local.
+     */
+    @Override
+    public boolean isLocal(Set<String> callable)
+    {
+        return cond.isLocal(callable) && state.isLocal(callable);
+    }
+
+    /**
+     * Counts this While and the nodes of its Condition and Statement.
+     *
+     * @return the number of nodes.
+     */
+    @Override
+    public int size()
+    {
+        return 1 + cond.size() + state.size();
+    }
+
+    /**
+     * Substitutes the variables of the Condition and the Statement.
+     *
+     * @param map the Expression that replaces each variable.
+     *
+     * @return the new While.
+     */
+    @Override
+    public Statement substitute(Map<String, Expression> map)
+    {
+        return new While(cond.substitute(map), state.substitute(map));
+    }
+
+    /**
+     * Inlines the calls in the Condition and the Statement.
+     *
+     * @param inliner the Inliner.
+     *
+     * @return the new While.
+     */
+    @Override
+    public Statement inline(Inliner inliner)
+    {
+        return new While(cond.inline(inliner), state.inline(inliner));
+    }
+
+    /**
+     * Emits a jump to the Condition, the Statement, and then the Condition
+     * with a branch back to the Statement if it holds, so that each pass
+     * through the loop runs a single branch.
+     *
+     * @param e the Emitter that receives the code.
+     */
+    @Override
+    public void compile(Emitter e)
+    {
+        int body = e.newLabel();
+        int test = e.newLabel();
+        e.emitJump(Bytecode.JUMP, test);
+        e.placeLabel(body);
+        state.compile(e);
+        e.placeLabel(test);
+        cond.compileBranch(e, body, true);
+    }
+
+    /**
+     * Builds the Action that carries out the Statement for as long as the Test holds.
+     *
+     * @return the Action.
+     */
+    @Override
+    public Closure.Action closure()
+    {
+        Closure.Test t = cond.testClosure();
+        Closure.Action a = state.closure();
+        return env ->
+        {
+            while (t.test(env))
+            {
+                a.exec(env);
+            }
+        };
+    }
 }
@@ -1,6 +1,11 @@
 package AST;
 
 import Environment.Environment;
+import VM.Bytecode;
+import VM.Emitter;
+
+import java.util.Map;
+import java.util.Set;
 
 /**
  * The Writeln class represents a WRITELN statement that
@@ -35,4 +40,126 @@ public class Writeln extends Statement
     {
         System.out.println(exp.eval(env));
     }
+
+    /**
+     * Optimizes the Expression of this Writeln.
+     *
+     * @return the optimized Writeln.
+     */
+    @Override
+    public Statement optimize()
+    {
+        return new Writeln(exp.optimize());
+    }
+
+    /**
+     * Resolves the Expression of this Writeln.
+     *
+     * @param scope the Scope in which this Statement is executed.
+     *
+     * @return the resolved Writeln.
+     */
+    @Override
+    public Statement resolve(Scope scope)
+    {
+        return new Writeln(exp.resolve(scope));
+    }
+
+    /**
+     * Counts this Writeln and the nodes of its Expression.
+     *
+     * @return the number of nodes.
+     */
+    @Override
+    public int size()
+    {
+        return 1 + exp.size();
+    }
+
+    /**
+     * Substitutes the variables of the Expression.
+     *
+     * @param map the Expression that replaces each variable.
+     *
+     * @return the new Writeln.
+     */
+    @Override
+    public Statement substitute(Map<String, Expression> map)
+    {
+        return new Writeln(exp.substitute(map));
+    }
+
+    /**
+     * Inlines the calls in the Expression; if what is left is a call, the
+     * Inliner may replace the whole Writeln by the body of the procedure.
+     *
+     * @param inliner the Inliner.
+     *
+     * @return the Statement that replaces this Writeln.
+     */
+    @Override
+    public Statement inline(Inliner inliner)
+    {
+        Expression e = exp.inline(inliner);
+        if (e instanceof ProcedureCall)
+        {
+            Statement s = inliner.expand((ProcedureCall) e, Writeln::new);
+            if (s != null)
+            {
+                return s;
+            }
+        }
+        return new Writeln(e);
+    }
+
+    /**
+     * Collects the names read by the Expression.
+     *
+     * @param reads the set the names of the variables are added to.
+     * @param calls the set the names of the procedures are added to.
+     *
+     * @return false if the names cannot be known.
+     */
+    @Override
+    public boolean readNames(Set<String> reads, Set<String> calls)
+    {
+        return exp.readNames(reads, calls);
+    }
+
+    /**
+     * A Writeln assigns no variable.
+     *
+     * @param names the set the names are added to.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean assignedNames(Set<String> names)
+    {
+        return true;
+    }
+
+    /**
+     * Emits the Expression, then the print.
+     *
+     * @param e the Emitter that receives the code.
+     */
+    @Override
+    public void compile(Emitter e)
+    {
+        exp.compile(e);
+        e.emit(Bytecode.PRINT);
+    }
+
+    /**
+     * Builds the Action that prints the value of the Expression.
+     *
+     * @return the Action.
+     */
+    @Override
+    public Closure.Action closure()
+    {
+        Closure.Value v = exp.closure();
+        return env -> System.out.println(v.eval(env));
+    }
 }